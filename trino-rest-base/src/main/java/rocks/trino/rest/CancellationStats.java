@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Counts scans cancelled by their {@link ScanScope}, and the HTTP requests they wasted or skipped.
+ * Cancellation latency is the time between the cancellation and the scan giving its thread back.
+ */
+public class CancellationStats
+        implements CancellationStatsMBean
+{
+    private final AtomicLong cancelledScans = new AtomicLong();
+    private final AtomicLong wastedRequests = new AtomicLong();
+    private final AtomicLong skippedRequests = new AtomicLong();
+    private final AtomicLong latencyCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    void recordCancelledScan()
+    {
+        cancelledScans.incrementAndGet();
+    }
+
+    void recordWastedRequest()
+    {
+        wastedRequests.incrementAndGet();
+    }
+
+    void recordSkippedRequest()
+    {
+        skippedRequests.incrementAndGet();
+    }
+
+    void recordCancellationLatency(long nanos)
+    {
+        latencyCount.incrementAndGet();
+        totalLatencyNanos.addAndGet(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public long getCancelledScanCount()
+    {
+        return cancelledScans.get();
+    }
+
+    @Override
+    public long getWastedRequestCount()
+    {
+        return wastedRequests.get();
+    }
+
+    @Override
+    public long getSkippedRequestCount()
+    {
+        return skippedRequests.get();
+    }
+
+    @Override
+    public double getAverageCancellationLatencyMillis()
+    {
+        long count = latencyCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) NANOSECONDS.toMicros(totalLatencyNanos.get() / count) / 1000;
+    }
+
+    @Override
+    public double getMaxCancellationLatencyMillis()
+    {
+        return (double) NANOSECONDS.toMicros(maxLatencyNanos.get()) / 1000;
+    }
+}
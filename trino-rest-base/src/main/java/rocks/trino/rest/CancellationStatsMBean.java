@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+public interface CancellationStatsMBean
+{
+    long getCancelledScanCount();
+
+    /**
+     * Requests that were in flight when their scan was cancelled, so their responses are thrown away.
+     */
+    long getWastedRequestCount();
+
+    /**
+     * Requests that were never sent, because their scan was already cancelled.
+     */
+    long getSkippedRequestCount();
+
+    double getAverageCancellationLatencyMillis();
+
+    double getMaxCancellationLatencyMillis();
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures and then rejects requests for
+ * {@code openDuration}, after which a single trial request is let through. The breaker closes
+ * again when the trial succeeds, and stays open for another {@code openDuration} when it fails.
+ */
+public class CircuitBreaker
+{
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final Ticker ticker;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Ticker ticker)
+    {
+        checkArgument(failureThreshold > 0, "failureThreshold must be positive");
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    /**
+     * Whether a request may be sent now. Every allowed request must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     */
+    public synchronized boolean tryAcquire()
+    {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (ticker.read() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess()
+    {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure()
+    {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = ticker.read();
+        }
+    }
+
+    /**
+     * Ends an allowed request without an outcome, e.g. when it was cancelled.
+     */
+    public synchronized void release()
+    {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState()
+    {
+        return state;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.ByteArrayBlock;
+import io.trino.spi.block.DictionaryBlock;
+import io.trino.spi.block.DictionaryId;
+import io.trino.spi.block.LongArrayBlock;
+import io.trino.spi.block.VariableWidthBlock;
+import io.trino.spi.type.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.trino.spi.block.DictionaryId.randomDictionaryId;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Rows stored column by column in off-heap memory, so that large caches of them put no pressure
+ * on the garbage collector. Fixed width values are packed in a single slice, and variable width
+ * values are dictionary encoded. They are read back as pages, without creating any Java objects
+ * per value: variable width columns become {@link DictionaryBlock}s over the stored dictionary.
+ */
+public final class ColumnarRows
+{
+    private static final int NULL_ID = -1;
+
+    private final List<Type> types;
+    private final int positionCount;
+    private final Column[] columns;
+    private final long retainedSizeInBytes;
+
+    private ColumnarRows(List<Type> types, int positionCount, Column[] columns)
+    {
+        this.types = ImmutableList.copyOf(types);
+        this.positionCount = positionCount;
+        this.columns = columns;
+        long retainedSize = 0;
+        for (Column column : columns) {
+            retainedSize += column.getRetainedSizeInBytes();
+        }
+        this.retainedSizeInBytes = retainedSize;
+    }
+
+    public static boolean isSupported(Type type)
+    {
+        Class<?> javaType = type.getJavaType();
+        return javaType == long.class || javaType == double.class || javaType == boolean.class || javaType == Slice.class;
+    }
+
+    /**
+     * Encodes pages whose channels are of {@code types}.
+     */
+    public static ColumnarRows encode(List<Type> types, List<Page> pages)
+    {
+        int positionCount = 0;
+        for (Page page : pages) {
+            checkArgument(page.getChannelCount() == types.size(), "Expected %s channels, but got %s", types.size(), page.getChannelCount());
+            positionCount += page.getPositionCount();
+        }
+        Column[] columns = new Column[types.size()];
+        for (int field = 0; field < types.size(); field++) {
+            Type type = types.get(field);
+            checkArgument(isSupported(type), "Unsupported type: %s", type);
+            if (type.getJavaType() == Slice.class) {
+                columns[field] = DictionaryColumn.encode(type, pages, field, positionCount);
+            }
+            else {
+                columns[field] = FixedWidthColumn.encode(type, pages, field, positionCount);
+            }
+        }
+        return new ColumnarRows(types, positionCount, columns);
+    }
+
+    public int getPositionCount()
+    {
+        return positionCount;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public Iterator<Page> getPages(int maxRowsPerPage)
+    {
+        return new AbstractIterator<>()
+        {
+            private int position;
+
+            @Override
+            protected Page computeNext()
+            {
+                if (position >= positionCount) {
+                    return endOfData();
+                }
+                int length = min(maxRowsPerPage, positionCount - position);
+                Block[] blocks = new Block[columns.length];
+                for (int field = 0; field < columns.length; field++) {
+                    blocks[field] = columns[field].getBlock(position, length);
+                }
+                position += length;
+                return new Page(length, blocks);
+            }
+        };
+    }
+
+    private interface Column
+    {
+        Block getBlock(int start, int length);
+
+        long getRetainedSizeInBytes();
+    }
+
+    private static final class FixedWidthColumn
+            implements Column
+    {
+        private final Type type;
+        private final Slice values;
+        private final Slice nulls;
+
+        private FixedWidthColumn(Type type, Slice values, Slice nulls)
+        {
+            this.type = type;
+            this.values = values;
+            this.nulls = nulls;
+        }
+
+        static FixedWidthColumn encode(Type type, List<Page> pages, int field, int positionCount)
+        {
+            Slice values = Slices.allocateDirect(positionCount * SIZE_OF_LONG);
+            Slice nulls = Slices.allocateDirect(positionCount);
+            int position = 0;
+            for (Page page : pages) {
+                Block block = page.getBlock(field);
+                for (int i = 0; i < block.getPositionCount(); i++) {
+                    if (block.isNull(i)) {
+                        nulls.setByte(position, 1);
+                    }
+                    else if (type.getJavaType() == boolean.class) {
+                        values.setLong(position * SIZE_OF_LONG, type.getBoolean(block, i) ? 1 : 0);
+                    }
+                    else if (type.getJavaType() == double.class) {
+                        values.setLong(position * SIZE_OF_LONG, Double.doubleToLongBits(type.getDouble(block, i)));
+                    }
+                    else {
+                        values.setLong(position * SIZE_OF_LONG, type.getLong(block, i));
+                    }
+                    position++;
+                }
+            }
+            return new FixedWidthColumn(type, values, nulls);
+        }
+
+        @Override
+        public Block getBlock(int start, int length)
+        {
+            boolean[] valueIsNull = new boolean[length];
+            boolean hasNull = false;
+            for (int i = 0; i < length; i++) {
+                valueIsNull[i] = nulls.getByte(start + i) != 0;
+                hasNull |= valueIsNull[i];
+            }
+            Optional<boolean[]> blockNulls = hasNull ? Optional.of(valueIsNull) : Optional.empty();
+
+            if (type.getJavaType() == boolean.class) {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = (byte) values.getLong((start + i) * SIZE_OF_LONG);
+                }
+                return new ByteArrayBlock(length, blockNulls, bytes);
+            }
+            long[] longs = new long[length];
+            for (int i = 0; i < length; i++) {
+                longs[i] = values.getLong((start + i) * SIZE_OF_LONG);
+            }
+            return new LongArrayBlock(length, blockNulls, longs);
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return values.getRetainedSize() + nulls.getRetainedSize();
+        }
+    }
+
+    private static final class DictionaryColumn
+            implements Column
+    {
+        private final Slice ids;
+        private final Slice dictionary;
+        private final Slice offsets;
+        private final int dictionarySize;
+        private final DictionaryId dictionaryId = randomDictionaryId();
+        private volatile Block dictionaryBlock;
+
+        private DictionaryColumn(Slice ids, Slice dictionary, Slice offsets, int dictionarySize)
+        {
+            this.ids = ids;
+            this.dictionary = dictionary;
+            this.offsets = offsets;
+            this.dictionarySize = dictionarySize;
+        }
+
+        static DictionaryColumn encode(Type type, List<Page> pages, int field, int positionCount)
+        {
+            Map<Slice, Integer> dictionaryIds = new HashMap<>();
+            List<Slice> dictionaryValues = new ArrayList<>();
+            Slice ids = Slices.allocateDirect(positionCount * SIZE_OF_INT);
+            int position = 0;
+            long dictionarySize = 0;
+            for (Page page : pages) {
+                Block block = page.getBlock(field);
+                for (int i = 0; i < block.getPositionCount(); i++) {
+                    int id = NULL_ID;
+                    if (!block.isNull(i)) {
+                        Slice slice = type.getSlice(block, i);
+                        Integer existing = dictionaryIds.get(slice);
+                        if (existing == null) {
+                            existing = dictionaryValues.size();
+                            dictionaryIds.put(slice, existing);
+                            dictionaryValues.add(slice);
+                            dictionarySize += slice.length();
+                        }
+                        id = existing;
+                    }
+                    ids.setInt(position * SIZE_OF_INT, id);
+                    position++;
+                }
+            }
+
+            Slice dictionary = Slices.allocateDirect(toIntExact(dictionarySize));
+            Slice offsets = Slices.allocateDirect((dictionaryValues.size() + 1) * SIZE_OF_INT);
+            int offset = 0;
+            for (int id = 0; id < dictionaryValues.size(); id++) {
+                Slice value = dictionaryValues.get(id);
+                dictionary.setBytes(offset, value);
+                offsets.setInt(id * SIZE_OF_INT, offset);
+                offset += value.length();
+            }
+            offsets.setInt(dictionaryValues.size() * SIZE_OF_INT, offset);
+            return new DictionaryColumn(ids, dictionary, offsets, dictionaryValues.size());
+        }
+
+        @Override
+        public Block getBlock(int start, int length)
+        {
+            int[] positions = new int[length];
+            for (int i = 0; i < length; i++) {
+                int id = ids.getInt((start + i) * SIZE_OF_INT);
+                // nulls point to the extra null entry at the end of the dictionary
+                positions[i] = id == NULL_ID ? dictionarySize : id;
+            }
+            // all pages share the same dictionary, so operators can process it once
+            return new DictionaryBlock(length, getDictionaryBlock(), positions, dictionaryId);
+        }
+
+        private Block getDictionaryBlock()
+        {
+            Block block = dictionaryBlock;
+            if (block == null) {
+                int[] blockOffsets = new int[dictionarySize + 2];
+                for (int id = 0; id <= dictionarySize; id++) {
+                    blockOffsets[id] = offsets.getInt(id * SIZE_OF_INT);
+                }
+                blockOffsets[dictionarySize + 1] = blockOffsets[dictionarySize];
+                boolean[] valueIsNull = new boolean[dictionarySize + 1];
+                valueIsNull[dictionarySize] = true;
+                // values are not copied, the block reads them from off-heap memory
+                block = new VariableWidthBlock(dictionarySize + 1, dictionary, blockOffsets, Optional.of(valueIsNull));
+                dictionaryBlock = block;
+            }
+            return block;
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return ids.getRetainedSize() + dictionary.getRetainedSize() + offsets.getRetainedSize();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Asks for gzip or deflate compressed responses and decompresses them while they are read, so the
+ * body is never held in memory as a whole, neither compressed nor decompressed. Bodies larger than
+ * {@code maxBodySizeBytes} after decompression fail with an {@link IOException}, instead of
+ * filling up the memory of the worker.
+ * <p>
+ * OkHttp only decompresses gzip on its own, and only when the request does not set {@code Accept-Encoding}.
+ */
+public class CompressionInterceptor
+        implements Interceptor
+{
+    private final long maxBodySizeBytes;
+
+    public CompressionInterceptor(long maxBodySizeBytes)
+    {
+        checkArgument(maxBodySizeBytes > 0, "maxBodySizeBytes must be positive");
+        this.maxBodySizeBytes = maxBodySizeBytes;
+    }
+
+    @Override
+    public Response intercept(Chain chain)
+            throws IOException
+    {
+        Request request = chain.request();
+        if (request.header("Accept-Encoding") == null) {
+            request = request.newBuilder()
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .build();
+        }
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+
+        String encoding = response.header("Content-Encoding");
+        Source source;
+        if (encoding == null || encoding.equalsIgnoreCase("identity")) {
+            if (body.contentLength() > maxBodySizeBytes) {
+                body.close();
+                throw new IOException(format("Response body of %s bytes exceeds the maximum size of %s bytes", body.contentLength(), maxBodySizeBytes));
+            }
+            source = body.source();
+        }
+        else if (encoding.equalsIgnoreCase("gzip")) {
+            source = new GzipSource(body.source());
+        }
+        else if (encoding.equalsIgnoreCase("deflate")) {
+            source = new InflaterSource(body.source(), new Inflater());
+        }
+        else {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(body.contentType(), encoding == null ? body.contentLength() : -1, Okio.buffer(new LimitingSource(source, maxBodySizeBytes))))
+                .build();
+    }
+
+    private static class LimitingSource
+            extends ForwardingSource
+    {
+        private final long maxBytes;
+        private long totalBytes;
+
+        LimitingSource(Source delegate, long maxBytes)
+        {
+            super(delegate);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount)
+                throws IOException
+        {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                totalBytes += read;
+                if (totalBytes > maxBytes) {
+                    throw new IOException(format("Response body exceeds the maximum size of %s bytes", maxBytes));
+                }
+            }
+            return read;
+        }
+    }
+}
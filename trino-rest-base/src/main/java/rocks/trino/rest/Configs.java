@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+public final class Configs
+{
+    private static final Pattern DURATION_PATTERN = Pattern.compile("^\\s*(\\d+)\\s*(ms|s|m|h|d)\\s*$");
+    private static final Pattern DATA_SIZE_PATTERN = Pattern.compile("^\\s*(\\d+)\\s*(B|kB|MB|GB)\\s*$");
+
+    private Configs() {}
+
+    public static boolean getBoolean(Map<String, String> config, String name, boolean defaultValue)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.trim().equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.trim().equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(format("Invalid value for '%s': %s", name, value));
+    }
+
+    /**
+     * Parses comma separated values, e.g. a list of tokens.
+     */
+    public static List<String> getList(Map<String, String> config, String name)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return ImmutableList.of();
+        }
+        return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value);
+    }
+
+    public static long getLong(Map<String, String> config, String name, long defaultValue)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Invalid value for '%s': %s", name, value), e);
+        }
+    }
+
+    public static double getDouble(Map<String, String> config, String name, double defaultValue)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Invalid value for '%s': %s", name, value), e);
+        }
+    }
+
+    /**
+     * Parses durations written the same way as in Trino configuration files, e.g. {@code 500ms}, {@code 30s} or {@code 5m}.
+     */
+    public static Duration getDuration(Map<String, String> config, String name, Duration defaultValue)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        Matcher matcher = DURATION_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(format("Invalid duration for '%s': %s", name, value));
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "s":
+                return Duration.ofSeconds(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            case "h":
+                return Duration.ofHours(amount);
+            default:
+                return Duration.ofDays(amount);
+        }
+    }
+
+    /**
+     * Parses data sizes written the same way as in Trino configuration files, e.g. {@code 512kB} or {@code 64MB}, into bytes.
+     */
+    public static long getDataSize(Map<String, String> config, String name, long defaultBytes)
+    {
+        String value = config.get(name);
+        if (value == null) {
+            return defaultBytes;
+        }
+        Matcher matcher = DATA_SIZE_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(format("Invalid data size for '%s': %s", name, value));
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "kB":
+                return amount << 10;
+            case "MB":
+                return amount << 20;
+            case "GB":
+                return amount << 30;
+            default:
+                return amount;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Spreads requests over several credentials (e.g. API tokens) with a rate limit each, so the throughput
+ * of a catalog grows with the number of credentials. A credential is an interceptor that authenticates the request.
+ * <p>
+ * Every request goes to the credential with the most remaining quota, as reported by the rate limit headers
+ * of its last response, less the requests it has in flight. A credential that gets a 429, or a 403 with no
+ * quota left, is skipped until its quota resets and the request is sent again with another one. Once all of
+ * them are exhausted, the response is returned as is, so the {@link RetryInterceptor} backs off.
+ * Requests other than GET always use the first credential, so that writes come from the same identity.
+ */
+public class CredentialPool
+        implements Interceptor
+{
+    private static final long UNKNOWN = Long.MAX_VALUE;
+    private static final long DEFAULT_EXHAUSTED_NANOS = SECONDS.toNanos(60);
+
+    private final List<Credential> credentials;
+    private final Ticker ticker;
+    private final AtomicLong rotations = new AtomicLong();
+    private int next;
+
+    public CredentialPool(List<? extends Interceptor> credentials)
+    {
+        this(credentials, Ticker.systemTicker());
+    }
+
+    public CredentialPool(List<? extends Interceptor> credentials, Ticker ticker)
+    {
+        checkArgument(!credentials.isEmpty(), "credentials is empty");
+        this.credentials = credentials.stream()
+                .map(Credential::new)
+                .collect(toImmutableList());
+        this.ticker = requireNonNull(ticker, "ticker is null");
+    }
+
+    @Override
+    public Response intercept(Chain chain)
+            throws IOException
+    {
+        boolean pinned = !chain.request().method().equals("GET");
+        Set<Credential> tried = new HashSet<>();
+        while (true) {
+            Credential credential = acquire(pinned ? credentials.get(0) : null, tried);
+            Response response;
+            try {
+                response = credential.interceptor.intercept(chain);
+            }
+            finally {
+                release(credential);
+            }
+            tried.add(credential);
+            if (!update(credential, response) || pinned || tried.size() == credentials.size()) {
+                return response;
+            }
+            response.close();
+            rotations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of requests sent again with another credential, because the quota of the first one was exhausted.
+     */
+    public long getRotationCount()
+    {
+        return rotations.get();
+    }
+
+    public synchronized int getAvailableCount()
+    {
+        long now = ticker.read();
+        return (int) credentials.stream()
+                .filter(credential -> credential.isAvailable(now))
+                .count();
+    }
+
+    private synchronized Credential acquire(Credential pinned, Set<Credential> tried)
+    {
+        Credential result = pinned;
+        if (result == null) {
+            long now = ticker.read();
+            // start from a different credential every time, so that ties are broken round robin
+            for (int i = 0; i < credentials.size(); i++) {
+                Credential credential = credentials.get((next + i) % credentials.size());
+                if (!tried.contains(credential) && (result == null || isBetter(credential, result, now))) {
+                    result = credential;
+                }
+            }
+            next = (next + 1) % credentials.size();
+        }
+        result.inFlight++;
+        if (result.remaining != UNKNOWN) {
+            result.remaining = max(0, result.remaining - 1);
+        }
+        return result;
+    }
+
+    private static boolean isBetter(Credential credential, Credential other, long now)
+    {
+        if (credential.isAvailable(now) != other.isAvailable(now)) {
+            return credential.isAvailable(now);
+        }
+        if (!credential.isAvailable(now)) {
+            return credential.exhaustedUntilNanos < other.exhaustedUntilNanos;
+        }
+        return credential.getScore() > other.getScore();
+    }
+
+    private synchronized void release(Credential credential)
+    {
+        credential.inFlight--;
+    }
+
+    /**
+     * Records the quota reported by the response, and returns whether the request was rejected because it was exhausted.
+     */
+    private synchronized boolean update(Credential credential, Response response)
+    {
+        long now = ticker.read();
+        Long remaining = parseLong(response.header("X-RateLimit-Remaining", response.header("x-rate-limit-remaining")));
+        Long resetEpochSeconds = parseLong(response.header("X-RateLimit-Reset", response.header("x-rate-limit-reset")));
+        Long retryAfterSeconds = parseLong(response.header("Retry-After"));
+        if (remaining != null) {
+            credential.remaining = remaining;
+        }
+
+        boolean rejected = response.code() == 429 || (response.code() == 403 && remaining != null && remaining == 0);
+        if (!rejected && (remaining == null || remaining > 0)) {
+            return false;
+        }
+        long exhaustedNanos = DEFAULT_EXHAUSTED_NANOS;
+        if (retryAfterSeconds != null) {
+            exhaustedNanos = SECONDS.toNanos(retryAfterSeconds);
+        }
+        else if (resetEpochSeconds != null) {
+            exhaustedNanos = MILLISECONDS.toNanos(max(0, SECONDS.toMillis(resetEpochSeconds) - System.currentTimeMillis()));
+        }
+        credential.exhausted = true;
+        credential.exhaustedUntilNanos = now + exhaustedNanos;
+        credential.remaining = UNKNOWN;
+        return rejected;
+    }
+
+    private static Long parseLong(String value)
+    {
+        if (value == null || !value.trim().matches("\\d{1,18}")) {
+            return null;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    private static class Credential
+    {
+        private final Interceptor interceptor;
+        private long remaining = UNKNOWN;
+        private long exhaustedUntilNanos;
+        private boolean exhausted;
+        private int inFlight;
+
+        Credential(Interceptor interceptor)
+        {
+            this.interceptor = requireNonNull(interceptor, "interceptor is null");
+        }
+
+        boolean isAvailable(long now)
+        {
+            return !exhausted || now - exhaustedUntilNanos >= 0;
+        }
+
+        long getScore()
+        {
+            // credentials that were not used yet are tried before the ones known to have quota left
+            return (remaining == UNKNOWN ? Long.MAX_VALUE / 2 : remaining) - inFlight;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Sends a duplicate of a GET request when the response takes longer than the given quantile of recent
+ * response times, and returns whichever response comes first. The slower call is cancelled.
+ * At most {@code maxRatio} of the requests are hedged, so hedging never takes more than that share
+ * of the rate limit. Other methods are not idempotent and are never hedged.
+ * Calls made while running a {@link ScanScope} are cancelled together with the scan, and every request they send,
+ * hedges included, spends the {@link QuotaBudget} of the scan.
+ */
+public class HedgingCallFactory
+        implements Call.Factory
+{
+    private static final int MIN_SAMPLES = 20;
+
+    private final OkHttpClient client;
+    private final double quantile;
+    private final double maxRatio;
+    private final long minDelayNanos;
+    private final LatencyWindow latencies = new LatencyWindow(1000);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public HedgingCallFactory(OkHttpClient client, HttpClientConfig config)
+    {
+        this.client = requireNonNull(client, "client is null").newBuilder()
+                // a network interceptor sees every request sent, so retries and requests sent again with another credential are charged too
+                .addNetworkInterceptor(QuotaBudget::intercept)
+                .build();
+        this.quantile = config.getHedgeQuantile();
+        this.maxRatio = config.getHedgeMaxRatio();
+        this.minDelayNanos = config.getHedgeMinDelay().toNanos();
+    }
+
+    @Override
+    public Call newCall(Request request)
+    {
+        Request tagged = ScanScope.tag(request);
+        if (!tagged.method().equals("GET") || maxRatio == 0) {
+            return ScanScope.track(client.newCall(tagged));
+        }
+        return ScanScope.track(new HedgedCall(tagged));
+    }
+
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    public long getHedgeCount()
+    {
+        return hedges.get();
+    }
+
+    /**
+     * Number of hedges that responded before the original request.
+     */
+    public long getHedgeWinCount()
+    {
+        return hedgeWins.get();
+    }
+
+    private OptionalLong getHedgeDelayNanos()
+    {
+        OptionalLong latency = latencies.getQuantile(quantile, MIN_SAMPLES);
+        if (latency.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(max(minDelayNanos, latency.getAsLong()));
+    }
+
+    private boolean tryAcquireHedge()
+    {
+        while (true) {
+            long current = hedges.get();
+            if (current + 1 > maxRatio * requests.get()) {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private class HedgedCall
+            implements Call
+    {
+        private final Request request;
+        private final AtomicBoolean executed = new AtomicBoolean();
+        private final List<Call> attempts = new CopyOnWriteArrayList<>();
+        private volatile boolean canceled;
+
+        HedgedCall(Request request)
+        {
+            this.request = request;
+        }
+
+        @Override
+        public Request request()
+        {
+            return request;
+        }
+
+        @Override
+        public Response execute()
+                throws IOException
+        {
+            checkState(executed.compareAndSet(false, true), "Already executed");
+            requests.incrementAndGet();
+            long start = System.nanoTime();
+            CompletableFuture<Response> result = new CompletableFuture<>();
+            AtomicReference<Call> winner = new AtomicReference<>();
+            AtomicInteger pending = new AtomicInteger();
+            try {
+                Call primary = startAttempt(result, winner, pending);
+                OptionalLong delay = getHedgeDelayNanos();
+                Response response;
+                if (delay.isPresent()) {
+                    try {
+                        response = result.get(delay.getAsLong(), NANOSECONDS);
+                    }
+                    catch (TimeoutException e) {
+                        // the primary may have failed meanwhile, so the request already failed
+                        if (!result.isDone() && tryAcquireHedge()) {
+                            startAttempt(result, winner, pending);
+                        }
+                        response = result.get();
+                    }
+                }
+                else {
+                    response = result.get();
+                }
+                if (winner.get() != primary) {
+                    hedgeWins.incrementAndGet();
+                }
+                latencies.add(System.nanoTime() - start);
+                return response;
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + request.url());
+            }
+            finally {
+                for (Call attempt : attempts) {
+                    if (attempt != winner.get()) {
+                        attempt.cancel();
+                    }
+                }
+            }
+        }
+
+        private Call startAttempt(CompletableFuture<Response> result, AtomicReference<Call> winner, AtomicInteger pending)
+        {
+            Call attempt = client.newCall(request);
+            attempts.add(attempt);
+            if (canceled) {
+                attempt.cancel();
+            }
+            pending.incrementAndGet();
+            attempt.enqueue(new Callback()
+            {
+                @Override
+                public void onResponse(Call call, Response response)
+                {
+                    // a hedge that responds after the primary failed the request wins, so it is not cancelled and is closed here
+                    if (!winner.compareAndSet(null, call) || !result.complete(response)) {
+                        response.close();
+                    }
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e)
+                {
+                    // the request fails only when all the attempts do
+                    if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+            return attempt;
+        }
+
+        @Override
+        public void enqueue(Callback callback)
+        {
+            checkState(executed.compareAndSet(false, true), "Already executed");
+            Call call = client.newCall(request);
+            attempts.add(call);
+            call.enqueue(callback);
+        }
+
+        @Override
+        public void cancel()
+        {
+            canceled = true;
+            attempts.forEach(Call::cancel);
+        }
+
+        @Override
+        public boolean isExecuted()
+        {
+            return executed.get();
+        }
+
+        @Override
+        public boolean isCanceled()
+        {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout()
+        {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public Call clone()
+        {
+            return new HedgedCall(request);
+        }
+    }
+
+    private static class LatencyWindow
+    {
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int size)
+        {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long nanos)
+        {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        OptionalLong getQuantile(double quantile, int minSamples)
+        {
+            long[] sorted;
+            synchronized (this) {
+                if (count < minSamples) {
+                    return OptionalLong.empty();
+                }
+                sorted = Arrays.copyOf(samples, count);
+            }
+            Arrays.sort(sorted);
+            return OptionalLong.of(sorted[(int) Math.min(sorted.length - 1, (long) (quantile * sorted.length))]);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+import static rocks.trino.rest.Configs.getDataSize;
+import static rocks.trino.rest.Configs.getDouble;
+import static rocks.trino.rest.Configs.getDuration;
+import static rocks.trino.rest.Configs.getLong;
+
+/**
+ * Settings of the HTTP clients, shared by all connectors.
+ */
+public class HttpClientConfig
+{
+    public static final HttpClientConfig DEFAULT = new HttpClientConfig(
+            64L << 20,
+            0.95,
+            0.05,
+            Duration.ofMillis(100),
+            3,
+            Duration.ofMillis(100),
+            Duration.ofSeconds(5),
+            0.2,
+            5,
+            Duration.ofSeconds(30));
+
+    private final long maxResponseSizeBytes;
+    private final double hedgeQuantile;
+    private final double hedgeMaxRatio;
+    private final Duration hedgeMinDelay;
+    private final int maxRetries;
+    private final Duration retryInitialDelay;
+    private final Duration retryMaxDelay;
+    private final double retryBudgetRatio;
+    private final int breakerFailureThreshold;
+    private final Duration breakerOpenDuration;
+
+    public HttpClientConfig(
+            long maxResponseSizeBytes,
+            double hedgeQuantile,
+            double hedgeMaxRatio,
+            Duration hedgeMinDelay,
+            int maxRetries,
+            Duration retryInitialDelay,
+            Duration retryMaxDelay,
+            double retryBudgetRatio,
+            int breakerFailureThreshold,
+            Duration breakerOpenDuration)
+    {
+        checkArgument(maxResponseSizeBytes > 0, "maxResponseSizeBytes must be positive");
+        checkArgument(hedgeQuantile > 0 && hedgeQuantile < 1, "hedgeQuantile must be in (0, 1)");
+        checkArgument(hedgeMaxRatio >= 0 && hedgeMaxRatio <= 1, "hedgeMaxRatio must be in [0, 1]");
+        checkArgument(maxRetries >= 0, "maxRetries is negative");
+        checkArgument(retryBudgetRatio >= 0, "retryBudgetRatio is negative");
+        checkArgument(breakerFailureThreshold > 0, "breakerFailureThreshold must be positive");
+        this.maxResponseSizeBytes = maxResponseSizeBytes;
+        this.hedgeQuantile = hedgeQuantile;
+        this.hedgeMaxRatio = hedgeMaxRatio;
+        this.hedgeMinDelay = requireNonNull(hedgeMinDelay, "hedgeMinDelay is null");
+        this.maxRetries = maxRetries;
+        this.retryInitialDelay = requireNonNull(retryInitialDelay, "retryInitialDelay is null");
+        this.retryMaxDelay = requireNonNull(retryMaxDelay, "retryMaxDelay is null");
+        this.retryBudgetRatio = retryBudgetRatio;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenDuration = requireNonNull(breakerOpenDuration, "breakerOpenDuration is null");
+    }
+
+    public static HttpClientConfig fromConfig(Map<String, String> config)
+    {
+        return new HttpClientConfig(
+                getDataSize(config, "max_response_size", DEFAULT.maxResponseSizeBytes),
+                getDouble(config, "hedge_quantile", DEFAULT.hedgeQuantile),
+                getDouble(config, "hedge_max_ratio", DEFAULT.hedgeMaxRatio),
+                getDuration(config, "hedge_min_delay", DEFAULT.hedgeMinDelay),
+                toIntExact(getLong(config, "max_retries", DEFAULT.maxRetries)),
+                getDuration(config, "retry_initial_delay", DEFAULT.retryInitialDelay),
+                getDuration(config, "retry_max_delay", DEFAULT.retryMaxDelay),
+                getDouble(config, "retry_budget_ratio", DEFAULT.retryBudgetRatio),
+                toIntExact(getLong(config, "circuit_breaker_failure_threshold", DEFAULT.breakerFailureThreshold)),
+                getDuration(config, "circuit_breaker_open_duration", DEFAULT.breakerOpenDuration));
+    }
+
+    public long getMaxResponseSizeBytes()
+    {
+        return maxResponseSizeBytes;
+    }
+
+    /**
+     * Latency quantile of recent requests after which a GET request is hedged.
+     */
+    public double getHedgeQuantile()
+    {
+        return hedgeQuantile;
+    }
+
+    /**
+     * Maximum share of requests that may be hedged, which bounds the extra rate limit used; 0 disables hedging.
+     */
+    public double getHedgeMaxRatio()
+    {
+        return hedgeMaxRatio;
+    }
+
+    public Duration getHedgeMinDelay()
+    {
+        return hedgeMinDelay;
+    }
+
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+    public Duration getRetryInitialDelay()
+    {
+        return retryInitialDelay;
+    }
+
+    public Duration getRetryMaxDelay()
+    {
+        return retryMaxDelay;
+    }
+
+    /**
+     * Retries earned by every request; retries beyond the earned ones are not made.
+     */
+    public double getRetryBudgetRatio()
+    {
+        return retryBudgetRatio;
+    }
+
+    public int getBreakerFailureThreshold()
+    {
+        return breakerFailureThreshold;
+    }
+
+    public Duration getBreakerOpenDuration()
+    {
+        return breakerOpenDuration;
+    }
+}
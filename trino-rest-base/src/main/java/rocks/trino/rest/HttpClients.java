@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+public final class HttpClients
+{
+    private HttpClients() {}
+
+    /**
+     * Client that negotiates compression, fails on responses larger than the configured maximum,
+     * and retries failed requests unless the circuit breaker of the endpoint is open.
+     */
+    public static OkHttpClient.Builder newClientBuilder(HttpClientConfig config)
+    {
+        // hedges and concurrent splits all go to the same host, so do not queue them behind the default 5 requests per host
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                // limits are checked outside of retries, as retrying an oversized response will not make it smaller
+                .addInterceptor(new CompressionInterceptor(config.getMaxResponseSizeBytes()))
+                .addInterceptor(new RetryInterceptor(config));
+    }
+
+    public static <T> T createService(Class<T> service, String baseUrl, OkHttpClient client, HttpClientConfig config)
+    {
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .addConverterFactory(JsonConverterFactory.create())
+                .callFactory(new HedgingCallFactory(client, config))
+                .build()
+                .create(service);
+    }
+}
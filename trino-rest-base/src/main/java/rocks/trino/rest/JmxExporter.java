@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Exports connector metrics as standard MBeans of the platform MBean server,
+ * named {@code rocks.trino.rest:type=<type>,catalog=<catalog>}.
+ */
+public class JmxExporter
+{
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final String catalogName;
+    private final List<ObjectName> exported = new ArrayList<>();
+
+    public JmxExporter(String catalogName)
+    {
+        this.catalogName = catalogName;
+    }
+
+    public synchronized void export(String type, Object mbean)
+    {
+        try {
+            ObjectName name = new ObjectName(format("rocks.trino.rest:type=%s,catalog=%s", type, ObjectName.quote(catalogName)));
+            server.registerMBean(mbean, name);
+            exported.add(name);
+        }
+        catch (InstanceAlreadyExistsException e) {
+            // several nodes of a testing cluster share the JVM, the first one wins
+        }
+        catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public synchronized void unexportAll()
+    {
+        for (ObjectName name : exported) {
+            try {
+                server.unregisterMBean(name);
+            }
+            catch (JMException ignored) {
+            }
+        }
+        exported.clear();
+    }
+}
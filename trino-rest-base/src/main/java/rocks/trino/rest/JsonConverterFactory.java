@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes JSON responses straight from the byte stream of the body, so the parser reads the
+ * (decompressed) network buffers directly, without copying the body into a {@link String}, a
+ * {@code byte[]} or a character stream first.
+ */
+public final class JsonConverterFactory
+        extends Converter.Factory
+{
+    private static final MediaType JSON = MediaType.get("application/json; charset=UTF-8");
+
+    private final ObjectMapper objectMapper;
+
+    private JsonConverterFactory(ObjectMapper objectMapper)
+    {
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper is null");
+    }
+
+    public static JsonConverterFactory create()
+    {
+        return new JsonConverterFactory(new ObjectMapper());
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit)
+    {
+        ObjectReader reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type));
+        return body -> {
+            try (body) {
+                return reader.readValue(body.byteStream());
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit)
+    {
+        ObjectWriter writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructType(type));
+        return value -> RequestBody.create(JSON, writer.writeValueAsBytes(value));
+    }
+}
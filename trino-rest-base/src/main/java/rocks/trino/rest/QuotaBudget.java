@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Requests a split may send, as leased to it by the coordinator. Once the lease is spent, calls wait for the
+ * rate limit window to reset, or fail when it is more than {@code maxWait} away. Requests of the next window
+ * are not limited, as the lease only covers the window it was handed out in.
+ * <p>
+ * Every request sent is charged by {@link #intercept}, including hedges, retries and requests sent again with
+ * another credential, for the requests {@link ScanScope} tagged with the budget of their scan. Those never wait,
+ * as they are sent on threads shared by all the queries, so a call may overspend a lease by its hedges and retries,
+ * and the next call of the scan waits instead.
+ */
+public class QuotaBudget
+{
+    public static final QuotaBudget UNLIMITED = new QuotaBudget(Optional.empty(), Duration.ZERO, new QuotaLedger(1));
+
+    private final Optional<QuotaLease> lease;
+    private final long maxWaitMillis;
+    private final QuotaLedger ledger;
+    private final AtomicLong spent = new AtomicLong();
+
+    public QuotaBudget(Optional<QuotaLease> lease, Duration maxWait, QuotaLedger ledger)
+    {
+        this.lease = requireNonNull(lease, "lease is null");
+        this.maxWaitMillis = maxWait.toMillis();
+        this.ledger = requireNonNull(ledger, "ledger is null");
+    }
+
+    public void acquire()
+            throws IOException
+    {
+        acquire(() -> false);
+    }
+
+    /**
+     * Called on the thread of the scan before every call, blocks while the lease is spent.
+     * Returns early once {@code cancelled} is true when {@link #wakeUp woken up}.
+     */
+    public synchronized void acquire(BooleanSupplier cancelled)
+            throws IOException
+    {
+        if (lease.isEmpty() || spent.get() < lease.get().getRequests()) {
+            return;
+        }
+        long resetEpochMillis = lease.get().getResetEpochMillis();
+        long waitMillis = resetEpochMillis - System.currentTimeMillis();
+        if (waitMillis <= 0) {
+            return;
+        }
+        if (waitMillis > maxWaitMillis) {
+            ledger.recordExhaustedLease();
+            throw new IOException(format("Quota lease of %s is spent", lease.get()));
+        }
+        ledger.recordLeaseWait();
+        try {
+            while (waitMillis > 0 && !cancelled.getAsBoolean()) {
+                wait(waitMillis);
+                waitMillis = resetEpochMillis - System.currentTimeMillis();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit to reset");
+        }
+    }
+
+    /**
+     * Wakes up the calls waiting in {@link #acquire(BooleanSupplier)}, e.g. when their scan is cancelled.
+     */
+    public synchronized void wakeUp()
+    {
+        notifyAll();
+    }
+
+    /**
+     * Network interceptor that charges the budget the request is tagged with, once for every request sent.
+     */
+    static Response intercept(Interceptor.Chain chain)
+            throws IOException
+    {
+        QuotaBudget budget = chain.request().tag(QuotaBudget.class);
+        if (budget != null) {
+            budget.charge();
+        }
+        return chain.proceed(chain.request());
+    }
+
+    void charge()
+    {
+        spent.incrementAndGet();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Number of requests that may be sent before the rate limit window of the API resets. Reported by
+ * {@link Rest#getRemainingQuota()} for the whole catalog, and handed out by the coordinator
+ * to the splits in smaller parts, so that the workers together stay within the shared limit.
+ */
+public class QuotaLease
+{
+    private final long requests;
+    private final long resetEpochMillis;
+
+    @JsonCreator
+    public QuotaLease(
+            @JsonProperty("requests") long requests,
+            @JsonProperty("resetEpochMillis") long resetEpochMillis)
+    {
+        checkArgument(requests >= 0, "requests is negative");
+        this.requests = requests;
+        this.resetEpochMillis = resetEpochMillis;
+    }
+
+    @JsonProperty("requests")
+    public long getRequests()
+    {
+        return requests;
+    }
+
+    @JsonProperty("resetEpochMillis")
+    public long getResetEpochMillis()
+    {
+        return resetEpochMillis;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        QuotaLease that = (QuotaLease) o;
+        return requests == that.requests &&
+                resetEpochMillis == that.resetEpochMillis;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(requests, resetEpochMillis);
+    }
+
+    @Override
+    public String toString()
+    {
+        return requests + " requests until " + Instant.ofEpochMilli(resetEpochMillis);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Keeps track of the quota leased to splits by the coordinator, within the current rate limit window.
+ * Workers cannot report back how much of a lease they used, so the requests sent since the window started,
+ * i.e. how much the remaining quota dropped, are taken to be spent out of the leases, and the rest of the leases
+ * is still outstanding until their query is {@link #release released}. Leases of finished queries may account
+ * for all of the requests sent, so only the requests beyond them are taken out of the leases of running queries.
+ * To keep a single query from taking the whole window, every split gets at most {@code maxLeaseSize}.
+ * Workers record here how often their splits ran out of their lease, see {@link QuotaBudget}.
+ */
+public class QuotaLedger
+        implements QuotaLedgerMBean
+{
+    private final long maxLeaseSize;
+    private final AtomicLong leaseWaits = new AtomicLong();
+    private final AtomicLong exhaustedLeases = new AtomicLong();
+    private final Map<String, Long> leasedByQuery = new HashMap<>();
+
+    private long windowResetEpochMillis;
+    private long windowStartRemaining;
+    private long leased;
+    private long released;
+    private long leases;
+    private long emptyLeases;
+
+    public QuotaLedger(long maxLeaseSize)
+    {
+        checkArgument(maxLeaseSize > 0, "maxLeaseSize must be positive");
+        this.maxLeaseSize = maxLeaseSize;
+    }
+
+    /**
+     * Splits what is left of {@code remaining}, once the leases that are still outstanding are taken out,
+     * into a lease for each of the {@code splits}. Some leases may be empty when there is not enough quota.
+     */
+    public synchronized List<QuotaLease> lease(String queryId, QuotaLease remaining, int splits)
+    {
+        if (remaining.getResetEpochMillis() != windowResetEpochMillis) {
+            // a new window, which does not know about the requests leased in the previous one
+            windowResetEpochMillis = remaining.getResetEpochMillis();
+            windowStartRemaining = remaining.getRequests();
+            leased = 0;
+            released = 0;
+            leasedByQuery.clear();
+        }
+        // the remaining quota already went down by the part of the leases that was spent
+        long spent = windowStartRemaining - remaining.getRequests();
+        long outstanding = max(0, leased - released - max(0, spent - released));
+        long available = max(0, remaining.getRequests() - outstanding);
+        ImmutableList.Builder<QuotaLease> result = ImmutableList.builder();
+        for (int split = 0; split < splits; split++) {
+            // spread what is available evenly, giving the remainder to the first splits
+            long size = min(maxLeaseSize, available / splits + (split < available % splits ? 1 : 0));
+            leased += size;
+            leasedByQuery.merge(queryId, size, Long::sum);
+            leases++;
+            if (size == 0) {
+                emptyLeases++;
+            }
+            result.add(new QuotaLease(size, remaining.getResetEpochMillis()));
+        }
+        return result.build();
+    }
+
+    /**
+     * Called once the query is done, so the part of its leases it did not spend is available to other queries.
+     */
+    public synchronized void release(String queryId)
+    {
+        Long size = leasedByQuery.remove(queryId);
+        if (size != null) {
+            released += size;
+        }
+    }
+
+    void recordLeaseWait()
+    {
+        leaseWaits.incrementAndGet();
+    }
+
+    void recordExhaustedLease()
+    {
+        exhaustedLeases.incrementAndGet();
+    }
+
+    @Override
+    public synchronized long getLeasedRequestCount()
+    {
+        return leased;
+    }
+
+    @Override
+    public synchronized long getLeaseCount()
+    {
+        return leases;
+    }
+
+    @Override
+    public synchronized long getEmptyLeaseCount()
+    {
+        return emptyLeases;
+    }
+
+    @Override
+    public long getLeaseWaitCount()
+    {
+        return leaseWaits.get();
+    }
+
+    @Override
+    public long getExhaustedLeaseCount()
+    {
+        return exhaustedLeases.get();
+    }
+}
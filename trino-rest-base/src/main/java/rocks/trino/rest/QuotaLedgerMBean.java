@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+public interface QuotaLedgerMBean
+{
+    /**
+     * Requests leased to splits in the current rate limit window.
+     */
+    long getLeasedRequestCount();
+
+    long getLeaseCount();
+
+    /**
+     * Leases handed out when there was no quota left, whose splits wait for the next window.
+     */
+    long getEmptyLeaseCount();
+
+    /**
+     * Requests that waited for the rate limit window to reset, because the lease of their split was spent.
+     */
+    long getLeaseWaitCount();
+
+    /**
+     * Requests that failed because the lease of their split was spent, and the window resets too late to wait for it.
+     */
+    long getExhaustedLeaseCount();
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Limits the number of requests of a catalog in flight at the same time, and decides which query goes next
+ * when the limit is reached. The next request is the one of the query that sent the fewest requests so far,
+ * so short, selective queries get ahead of long crawls of whole tables instead of queueing behind them,
+ * and queries with the same number of requests take turns. Requests of the same query keep their order.
+ */
+public class RequestScheduler
+        implements RequestSchedulerMBean
+{
+    private final int maxConcurrentRequests;
+    // queries that did not send any request for a while start from scratch
+    private final Cache<String, Query> queries = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, MINUTES)
+            .build();
+    private final List<Waiter> waiting = new ArrayList<>();
+    private final AtomicLong queuedRequests = new AtomicLong();
+    private final AtomicLong queuedNanos = new AtomicLong();
+    private int running;
+
+    public RequestScheduler(int maxConcurrentRequests)
+    {
+        checkArgument(maxConcurrentRequests > 0, "maxConcurrentRequests must be positive");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Blocks until a request of the query may be sent. Must be followed by {@link #release()} once it is done.
+     */
+    public void acquire(String queryId)
+            throws InterruptedIOException
+    {
+        Waiter waiter;
+        synchronized (this) {
+            Query query = getQuery(queryId);
+            if (running < maxConcurrentRequests && waiting.isEmpty()) {
+                running++;
+                query.sent++;
+                return;
+            }
+            waiter = new Waiter(query);
+            waiting.add(waiter);
+        }
+        queuedRequests.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            waiter.granted.get();
+        }
+        catch (InterruptedException e) {
+            synchronized (this) {
+                if (!waiting.remove(waiter)) {
+                    // granted in the meantime, pass it on
+                    releaseLocked();
+                }
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request");
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            queuedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    public synchronized void release()
+    {
+        releaseLocked();
+    }
+
+    private void releaseLocked()
+    {
+        running--;
+        if (waiting.isEmpty()) {
+            return;
+        }
+        Waiter next = waiting.get(0);
+        for (Waiter waiter : waiting) {
+            if (waiter.query.sent < next.query.sent) {
+                next = waiter;
+            }
+        }
+        waiting.remove(next);
+        running++;
+        next.query.sent++;
+        next.granted.complete(null);
+    }
+
+    private Query getQuery(String queryId)
+    {
+        Query query = queries.getIfPresent(queryId);
+        if (query == null) {
+            query = new Query();
+            queries.put(queryId, query);
+        }
+        return query;
+    }
+
+    @Override
+    public int getMaxConcurrentRequests()
+    {
+        return maxConcurrentRequests;
+    }
+
+    @Override
+    public synchronized int getRunningRequestCount()
+    {
+        return running;
+    }
+
+    @Override
+    public synchronized int getWaitingRequestCount()
+    {
+        return waiting.size();
+    }
+
+    @Override
+    public long getQueuedRequestCount()
+    {
+        return queuedRequests.get();
+    }
+
+    @Override
+    public double getAverageQueuedMillis()
+    {
+        long count = queuedRequests.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) NANOSECONDS.toMicros(queuedNanos.get() / count) / 1000;
+    }
+
+    private static class Query
+    {
+        private long sent;
+    }
+
+    private static class Waiter
+    {
+        private final Query query;
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        Waiter(Query query)
+        {
+            this.query = query;
+        }
+    }
+}
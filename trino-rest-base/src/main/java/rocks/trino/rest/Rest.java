@@ -14,13 +14,20 @@
 
 package rocks.trino.rest;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.trino.spi.connector.ColumnMetadata;
 import io.trino.spi.connector.ConnectorTableMetadata;
 import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.type.Type;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
@@ -42,12 +49,169 @@ public interface Rest
 
     Collection<? extends List<?>> getRows(SchemaTableName schemaTableName);
 
+    /**
+     * Partitions of the table that are fetched as separate splits, so they can be read concurrently.
+     */
+    default List<RestPartition> getPartitions(SchemaTableName schemaTableName)
+    {
+        return ImmutableList.of(RestPartition.ALL);
+    }
+
+    /**
+     * Columns whose predicates can narrow down what is fetched, e.g. a time range passed as request parameters.
+     * Such predicates are still evaluated on the rows read, so partitions may return rows that do not match them.
+     */
+    default Set<String> getFilterColumns(SchemaTableName schemaTableName)
+    {
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Partitions of the table that can have rows matching {@code constraint}, which only has domains
+     * of the {@link #getFilterColumns filter columns}.
+     */
+    default List<RestPartition> getPartitions(SchemaTableName schemaTableName, TupleDomain<RestColumnHandle> constraint)
+    {
+        return getPartitions(schemaTableName);
+    }
+
+    /**
+     * Rows of a single partition. Rows still have a value for every column of the table, but values
+     * of the columns that are not in {@code columns} may be left {@code null}.
+     */
+    default Collection<? extends List<?>> getRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns)
+    {
+        return getRows(schemaTableName);
+    }
+
+    /**
+     * Writes rows of a single partition into {@code rows}, one at a time, calling {@link RowBuffer#endRow()}
+     * after every row. As in {@link #getRows(SchemaTableName, RestPartition, List)}, fields of the columns
+     * that are not in {@code columns} may be left unset. Implementations that write values straight from
+     * the API response avoid allocating a list per row.
+     */
+    default void scanRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns, RowBuffer rows)
+    {
+        for (List<?> row : getRows(schemaTableName, partition, columns)) {
+            rows.setValues(row);
+            rows.endRow();
+        }
+    }
+
+    /**
+     * Whether the rows of the table arrive over a long-lived connection, e.g. a stream of events, instead of
+     * being listed. Such scans return pages as soon as they are {@link RowBuffer#flush() flushed}, are never
+     * cached or shared, and end when the page source is closed or a bound of the catalog is reached.
+     */
+    default boolean isStreaming(SchemaTableName schemaTableName)
+    {
+        return false;
+    }
+
+    /**
+     * Whether the rows of the table are held in the memory of every node, e.g. events pushed to it, instead of
+     * being fetched from the API. Such tables are read with one split pinned to every worker, which only returns
+     * the rows held by that worker, and scans of them are never cached or shared.
+     */
+    default boolean isNodeLocal(SchemaTableName schemaTableName)
+    {
+        return false;
+    }
+
+    /**
+     * Registers a callback for the tables whose rows are known to have changed, e.g. from a notification
+     * pushed by the API, so that the connector drops its cached scans of them before they expire.
+     */
+    default void addChangeListener(Consumer<SchemaTableName> listener) {}
+
+    /**
+     * Whether {@link #getRowCount(SchemaTableName)} can count the rows of the table without reading them,
+     * so {@code count(*)} queries are answered by the connector.
+     */
+    default boolean supportsRowCount(SchemaTableName schemaTableName)
+    {
+        return false;
+    }
+
+    /**
+     * Number of rows a scan of the whole table would return, taken from what the API reports
+     * alongside a response (e.g. a total count or the last page of the pagination links).
+     */
+    default long getRowCount(SchemaTableName schemaTableName)
+    {
+        throw new UnsupportedOperationException("Counting rows is not supported for " + schemaTableName);
+    }
+
+    /**
+     * Whether the API can return the first {@code limit} rows of the table in {@code sortOrder},
+     * e.g. with sort parameters or because it always lists the newest rows first.
+     */
+    default boolean supportsTopN(SchemaTableName schemaTableName, List<RestSortItem> sortOrder, long limit)
+    {
+        return false;
+    }
+
+    /**
+     * Writes at most {@code limit} rows of the whole table into {@code rows}, in {@code sortOrder}.
+     * Only called when {@link #supportsTopN} accepted the same order and limit.
+     */
+    default void scanTopN(SchemaTableName schemaTableName, List<RestColumnHandle> columns, List<RestSortItem> sortOrder, long limit, RowBuffer rows)
+    {
+        throw new UnsupportedOperationException("Top-N scans are not supported for " + schemaTableName);
+    }
+
+    /**
+     * Columns the API can look rows up by, e.g. an id accepted by a lookup endpoint.
+     * Joins on such a column fetch only the rows matching the keys of the other side of the join.
+     */
+    default Set<String> getIndexColumns(SchemaTableName schemaTableName)
+    {
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Writes the rows of the table with one of {@code keys} in {@code keyColumn} into {@code rows}. Keys are
+     * {@link Long}s for bigint columns and {@link String}s for varchar columns, and there are no duplicates.
+     * Keys without a row are skipped.
+     */
+    default void lookupRows(SchemaTableName schemaTableName, String keyColumn, List<Object> keys, List<RestColumnHandle> columns, RowBuffer rows)
+    {
+        throw new UnsupportedOperationException("Lookups are not supported for " + schemaTableName);
+    }
+
+    /**
+     * Requests left in the current window of a rate limit that all the workers share, e.g. the limit of an API token.
+     * When known, the coordinator leases parts of it to the splits, so that the workers together stay within it.
+     */
+    default Optional<QuotaLease> getRemainingQuota()
+    {
+        return Optional.empty();
+    }
+
     Consumer<List> createRowSink(SchemaTableName schemaTableName);
 
+    /**
+     * Names of the columns with few distinct values, which are always read as dictionaries.
+     */
+    default Set<String> getLowCardinalityColumns(SchemaTableName schemaTableName)
+    {
+        return ImmutableSet.of();
+    }
+
     default List<Type> getTypes(SchemaTableName schemaTableName)
     {
         return getTableMetadata(schemaTableName).getColumns().stream()
                 .map(ColumnMetadata::getType)
                 .collect(toList());
     }
+
+    /**
+     * Metrics of the implementation, e.g. of a {@link SnapshotRefresher}, exported as MBeans by their type name.
+     */
+    default Map<String, Object> getMBeans()
+    {
+        return ImmutableMap.of();
+    }
+
+    default void shutdown() {}
 }
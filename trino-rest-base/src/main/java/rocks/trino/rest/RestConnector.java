@@ -14,24 +14,72 @@
 
 package rocks.trino.rest;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.trino.spi.NodeManager;
+import io.trino.spi.Page;
 import io.trino.spi.connector.Connector;
+import io.trino.spi.connector.ConnectorIndexProvider;
 import io.trino.spi.connector.ConnectorMetadata;
-import io.trino.spi.connector.ConnectorRecordSetProvider;
+import io.trino.spi.connector.ConnectorPageSourceProvider;
 import io.trino.spi.connector.ConnectorSplitManager;
 import io.trino.spi.connector.ConnectorTransactionHandle;
 import io.trino.spi.transaction.IsolationLevel;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
 public class RestConnector
         implements Connector
 {
     private final NodeManager nodeManager;
     private final Rest rest;
+    private final Optional<SingleFlight<ScanRequest, List<Page>>> scans;
+    private final Optional<ScanResultCache> cache;
+    private final ExecutorService scanExecutor;
+    private final CancellationStats cancellationStats = new CancellationStats();
+    private final QuotaLedger quotaLedger;
+    private final Duration maxLeaseWait;
+    private final Optional<RequestScheduler> requestScheduler;
+    private final long streamMaxRows;
+    private final Duration streamMaxDuration;
+    private final JmxExporter jmxExporter;
 
-    public RestConnector(NodeManager nodeManager, Rest rest)
+    public RestConnector(
+            String catalogName,
+            NodeManager nodeManager,
+            Rest rest,
+            boolean coalesceRequests,
+            Optional<ScanResultCache> cache,
+            QuotaLedger quotaLedger,
+            Duration maxLeaseWait,
+            Optional<RequestScheduler> requestScheduler,
+            long streamMaxRows,
+            Duration streamMaxDuration)
     {
         this.nodeManager = nodeManager;
         this.rest = rest;
+        this.scans = coalesceRequests ? Optional.of(new SingleFlight<>()) : Optional.empty();
+        this.cache = cache;
+        this.quotaLedger = quotaLedger;
+        this.maxLeaseWait = maxLeaseWait;
+        this.requestScheduler = requestScheduler;
+        this.streamMaxRows = streamMaxRows;
+        this.streamMaxDuration = streamMaxDuration;
+        this.scanExecutor = newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat(catalogName + "-scan-%s")
+                .setDaemon(true)
+                .build());
+        this.jmxExporter = new JmxExporter(catalogName);
+        cache.ifPresent(value -> jmxExporter.export("ScanResultCache", value));
+        cache.ifPresent(value -> rest.addChangeListener(value::invalidate));
+        jmxExporter.export("ScanCancellation", cancellationStats);
+        jmxExporter.export("QuotaLedger", quotaLedger);
+        requestScheduler.ifPresent(value -> jmxExporter.export("RequestScheduler", value));
+        rest.getMBeans().forEach(jmxExporter::export);
     }
 
     @Override
@@ -43,18 +91,32 @@ public class RestConnector
     @Override
     public ConnectorMetadata getMetadata(ConnectorTransactionHandle transaction)
     {
-        return new RestMetadata(rest);
+        return new RestMetadata(rest, quotaLedger);
     }
 
     @Override
     public ConnectorSplitManager getSplitManager()
     {
-        return new RestSplitManager(nodeManager);
+        return new RestSplitManager(nodeManager, rest, quotaLedger);
+    }
+
+    @Override
+    public ConnectorPageSourceProvider getPageSourceProvider()
+    {
+        return new RestPageSourceProvider(rest, scans, cache, scanExecutor, cancellationStats, quotaLedger, maxLeaseWait, requestScheduler, streamMaxRows, streamMaxDuration);
+    }
+
+    @Override
+    public ConnectorIndexProvider getIndexProvider()
+    {
+        return new RestIndexProvider(rest);
     }
 
     @Override
-    public ConnectorRecordSetProvider getRecordSetProvider()
+    public void shutdown()
     {
-        return new RestRecordSetProvider(rest);
+        jmxExporter.unexportAll();
+        scanExecutor.shutdownNow();
+        rest.shutdown();
     }
 }
@@ -20,13 +20,21 @@ import io.trino.spi.connector.Connector;
 import io.trino.spi.connector.ConnectorContext;
 import io.trino.spi.connector.ConnectorFactory;
 import io.trino.spi.connector.ConnectorHandleResolver;
+import io.trino.spi.connector.ConnectorIndexHandle;
 import io.trino.spi.connector.ConnectorInsertTableHandle;
 import io.trino.spi.connector.ConnectorSplit;
 import io.trino.spi.connector.ConnectorTableHandle;
-import io.trino.spi.connector.ConnectorTableLayoutHandle;
 import io.trino.spi.connector.ConnectorTransactionHandle;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.Math.toIntExact;
+import static rocks.trino.rest.Configs.getBoolean;
+import static rocks.trino.rest.Configs.getDataSize;
+import static rocks.trino.rest.Configs.getDuration;
+import static rocks.trino.rest.Configs.getLong;
 
 public class RestConnectorFactory
         implements ConnectorFactory
@@ -47,11 +55,33 @@ public class RestConnectorFactory
     }
 
     @Override
-    public Connector create(String s, Map<String, String> config, ConnectorContext context)
+    public Connector create(String catalogName, Map<String, String> config, ConnectorContext context)
     {
         NodeManager nodeManager = context.getNodeManager();
 
-        return new RestConnector(nodeManager, restFactory.create(config));
+        Duration cacheTtl = getDuration(config, "cache_ttl", Duration.ZERO);
+        Optional<ScanResultCache> cache = cacheTtl.isZero()
+                ? Optional.empty()
+                : Optional.of(new ScanResultCache(cacheTtl, getDataSize(config, "cache_max_memory", 64L << 20)));
+
+        // the dispatcher of the HTTP clients sends up to 64 requests at a time, only their order changes by default
+        long maxConcurrentRequests = getLong(config, "max_concurrent_requests", 64);
+        Optional<RequestScheduler> requestScheduler = maxConcurrentRequests == 0
+                ? Optional.empty()
+                : Optional.of(new RequestScheduler(toIntExact(maxConcurrentRequests)));
+
+        return new RestConnector(
+                catalogName,
+                nodeManager,
+                restFactory.create(config, nodeManager),
+                getBoolean(config, "coalesce_requests", true),
+                cache,
+                new QuotaLedger(getLong(config, "quota_max_lease", 100)),
+                getDuration(config, "quota_max_wait", Duration.ofMinutes(1)),
+                requestScheduler,
+                // streams are unbounded, so scans of streaming tables end after that many rows or that long, unless 0
+                getLong(config, "stream_max_rows", 100_000),
+                getDuration(config, "stream_max_duration", Duration.ofMinutes(1)));
     }
 
     @Override
@@ -74,9 +104,10 @@ public class RestConnectorFactory
                 return RestConnectorSplit.class;
             }
 
-            public Class<? extends ConnectorTableLayoutHandle> getTableLayoutHandleClass()
+            @Override
+            public Class<? extends ConnectorIndexHandle> getIndexHandleClass()
             {
-                return RestConnectorTableLayoutHandle.class;
+                return RestIndexHandle.class;
             }
 
             @Override
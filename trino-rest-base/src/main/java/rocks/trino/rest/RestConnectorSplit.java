@@ -16,30 +16,62 @@ package rocks.trino.rest;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import io.trino.spi.HostAddress;
 import io.trino.spi.connector.ConnectorSplit;
 
 import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
 
 public class RestConnectorSplit
         implements ConnectorSplit
 {
     private final RestTableHandle tableHandle;
+    private final RestPartition partition;
     private final List<HostAddress> addresses;
+    private final Optional<QuotaLease> lease;
+    private final boolean remotelyAccessible;
+
+    public RestConnectorSplit(RestTableHandle tableHandle, RestPartition partition, List<HostAddress> addresses)
+    {
+        this(tableHandle, partition, addresses, Optional.empty());
+    }
+
+    public RestConnectorSplit(RestTableHandle tableHandle, RestPartition partition, List<HostAddress> addresses, Optional<QuotaLease> lease)
+    {
+        this(tableHandle, partition, addresses, lease, true);
+    }
 
     @JsonCreator
     public RestConnectorSplit(
             @JsonProperty("tableHandle") RestTableHandle tableHandle,
-            @JsonProperty("addresses") List<HostAddress> addresses)
+            @JsonProperty("partition") RestPartition partition,
+            @JsonProperty("addresses") List<HostAddress> addresses,
+            @JsonProperty("lease") Optional<QuotaLease> lease,
+            @JsonProperty("remotelyAccessible") boolean remotelyAccessible)
     {
         this.tableHandle = tableHandle;
+        this.partition = partition;
         this.addresses = addresses;
+        this.lease = requireNonNull(lease, "lease is null");
+        this.remotelyAccessible = remotelyAccessible;
+    }
+
+    /**
+     * Split that only the node at {@code address} can read, e.g. because the rows are held in its memory.
+     */
+    public static RestConnectorSplit pinned(RestTableHandle tableHandle, RestPartition partition, HostAddress address)
+    {
+        return new RestConnectorSplit(tableHandle, partition, ImmutableList.of(address), Optional.empty(), false);
     }
 
     @Override
+    @JsonProperty("remotelyAccessible")
     public boolean isRemotelyAccessible()
     {
-        return true;
+        return remotelyAccessible;
     }
 
     @Override
@@ -52,7 +84,7 @@ public class RestConnectorSplit
     @Override
     public Object getInfo()
     {
-        return "Slack split";
+        return tableHandle.getSchemaTableName() + ":" + partition;
     }
 
     @JsonProperty("tableHandle")
@@ -60,4 +92,19 @@ public class RestConnectorSplit
     {
         return tableHandle;
     }
+
+    @JsonProperty("partition")
+    public RestPartition getPartition()
+    {
+        return partition;
+    }
+
+    /**
+     * Part of the shared quota the split may spend, when the API reports one.
+     */
+    @JsonProperty("lease")
+    public Optional<QuotaLease> getLease()
+    {
+        return lease;
+    }
 }
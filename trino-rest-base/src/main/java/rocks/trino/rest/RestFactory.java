@@ -14,9 +14,15 @@
 
 package rocks.trino.rest;
 
+import io.trino.spi.NodeManager;
+
 import java.util.Map;
 
 public interface RestFactory
 {
-    Rest create(Map<String, String> config);
+    /**
+     * Creates the {@link Rest} of a catalog on the node of {@code nodeManager}, which tells e.g. whether the node
+     * gets the splits of {@link Rest#isNodeLocal node-local} tables.
+     */
+    Rest create(Map<String, String> config, NodeManager nodeManager);
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorIndex;
+import io.trino.spi.connector.ConnectorPageSource;
+import io.trino.spi.connector.RecordCursor;
+import io.trino.spi.connector.RecordSet;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.type.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Looks rows up by the keys of an index join, a batch of keys at a time. An index is created for every
+ * query, so rows found for a key are kept for the rest of the query, as probe sides tend to repeat keys
+ * across batches.
+ */
+public class RestIndex
+        implements ConnectorIndex
+{
+    private static final int MAX_CACHED_KEYS = 100_000;
+
+    private final Rest rest;
+    private final SchemaTableName schemaTableName;
+    private final String keyColumn;
+    private final List<RestColumnHandle> outputColumns;
+    private final List<Type> tableTypes;
+    private final int keyField;
+    private final List<Type> outputTypes;
+    private final int[] projection;
+    private final boolean[] lowCardinality;
+    private final Cache<Object, List<List<Object>>> rowsByKey = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_KEYS)
+            .build();
+
+    public RestIndex(Rest rest, SchemaTableName schemaTableName, String keyColumn, List<RestColumnHandle> outputColumns)
+    {
+        this.rest = requireNonNull(rest, "rest is null");
+        this.schemaTableName = requireNonNull(schemaTableName, "schemaTableName is null");
+        this.keyColumn = requireNonNull(keyColumn, "keyColumn is null");
+        this.outputColumns = ImmutableList.copyOf(requireNonNull(outputColumns, "outputColumns is null"));
+
+        List<ColumnMetadata> tableColumns = rest.getTableMetadata(schemaTableName).getColumns();
+        this.tableTypes = tableColumns.stream()
+                .map(ColumnMetadata::getType)
+                .collect(toList());
+        this.keyField = RestPageSourceProvider.getFieldIndex(tableColumns, keyColumn);
+        Set<String> lowCardinalityColumns = rest.getLowCardinalityColumns(schemaTableName);
+        this.outputTypes = new ArrayList<>(outputColumns.size());
+        this.projection = new int[outputColumns.size()];
+        this.lowCardinality = new boolean[outputColumns.size()];
+        for (int channel = 0; channel < outputColumns.size(); channel++) {
+            RestColumnHandle column = outputColumns.get(channel);
+            outputTypes.add(column.getType());
+            projection[channel] = RestPageSourceProvider.getFieldIndex(tableColumns, column.getName());
+            lowCardinality[channel] = lowCardinalityColumns.contains(column.getName());
+        }
+    }
+
+    @Override
+    public ConnectorPageSource lookup(RecordSet keys)
+    {
+        checkArgument(keys.getColumnTypes().size() == 1, "Expected a single key column, but got %s", keys.getColumnTypes());
+        Type keyType = keys.getColumnTypes().get(0);
+        Set<Object> requested = new LinkedHashSet<>();
+        try (RecordCursor cursor = keys.cursor()) {
+            while (cursor.advanceNextPosition()) {
+                // null keys never match
+                if (!cursor.isNull(0)) {
+                    requested.add(readKey(cursor, keyType));
+                }
+            }
+        }
+
+        Map<Object, List<List<Object>>> rows = new HashMap<>();
+        List<Object> missing = new ArrayList<>();
+        for (Object key : requested) {
+            List<List<Object>> cached = rowsByKey.getIfPresent(key);
+            if (cached == null) {
+                missing.add(key);
+            }
+            else {
+                rows.put(key, cached);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Object, List<List<Object>>> found = new HashMap<>();
+            rest.lookupRows(schemaTableName, keyColumn, missing, outputColumns, new RowBuffer(tableTypes, row -> {
+                List<Object> values = row.getValues();
+                Object key = normalizeKey(values.get(keyField));
+                if (key != null) {
+                    found.computeIfAbsent(key, ignored -> new ArrayList<>()).add(values);
+                }
+            }));
+            for (Object key : missing) {
+                List<List<Object>> keyRows = found.getOrDefault(key, ImmutableList.of());
+                rowsByKey.put(key, keyRows);
+                rows.put(key, keyRows);
+            }
+        }
+
+        RowPageBuilder pageBuilder = new RowPageBuilder(outputTypes, projection, lowCardinality);
+        RowBuffer output = new RowBuffer(tableTypes, pageBuilder);
+        for (Object key : requested) {
+            for (List<Object> row : rows.get(key)) {
+                output.setValues(row);
+                output.endRow();
+            }
+        }
+        return new RestPageSource(pageBuilder.build().iterator());
+    }
+
+    private static Object readKey(RecordCursor cursor, Type type)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            return cursor.getLong(0);
+        }
+        if (javaType == double.class) {
+            return cursor.getDouble(0);
+        }
+        if (javaType == boolean.class) {
+            return cursor.getBoolean(0);
+        }
+        if (javaType == Slice.class) {
+            return cursor.getSlice(0).toStringUtf8();
+        }
+        return cursor.getObject(0);
+    }
+
+    private static Object normalizeKey(Object value)
+    {
+        if (value instanceof Slice) {
+            return ((Slice) value).toStringUtf8();
+        }
+        return value;
+    }
+}
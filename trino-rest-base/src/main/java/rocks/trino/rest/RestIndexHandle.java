@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.trino.spi.connector.ConnectorIndexHandle;
+import io.trino.spi.connector.SchemaTableName;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+public class RestIndexHandle
+        implements ConnectorIndexHandle
+{
+    private final SchemaTableName schemaTableName;
+    private final String keyColumn;
+
+    @JsonCreator
+    public RestIndexHandle(
+            @JsonProperty("schemaTableName") SchemaTableName schemaTableName,
+            @JsonProperty("keyColumn") String keyColumn)
+    {
+        this.schemaTableName = requireNonNull(schemaTableName, "schemaTableName is null");
+        this.keyColumn = requireNonNull(keyColumn, "keyColumn is null");
+    }
+
+    @JsonProperty("schemaTableName")
+    public SchemaTableName getSchemaTableName()
+    {
+        return schemaTableName;
+    }
+
+    @JsonProperty("keyColumn")
+    public String getKeyColumn()
+    {
+        return keyColumn;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RestIndexHandle that = (RestIndexHandle) o;
+        return Objects.equals(schemaTableName, that.schemaTableName) &&
+                Objects.equals(keyColumn, that.keyColumn);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(schemaTableName, keyColumn);
+    }
+
+    @Override
+    public String toString()
+    {
+        return schemaTableName + " by " + keyColumn;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ConnectorIndex;
+import io.trino.spi.connector.ConnectorIndexHandle;
+import io.trino.spi.connector.ConnectorIndexProvider;
+import io.trino.spi.connector.ConnectorSession;
+import io.trino.spi.connector.ConnectorTransactionHandle;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+public class RestIndexProvider
+        implements ConnectorIndexProvider
+{
+    private final Rest rest;
+
+    public RestIndexProvider(Rest rest)
+    {
+        this.rest = rest;
+    }
+
+    @Override
+    public ConnectorIndex getIndex(
+            ConnectorTransactionHandle transaction,
+            ConnectorSession session,
+            ConnectorIndexHandle indexHandle,
+            List<ColumnHandle> lookupSchema,
+            List<ColumnHandle> outputSchema)
+    {
+        RestIndexHandle handle = Types.checkType(indexHandle, RestIndexHandle.class, "indexHandle");
+        checkArgument(
+                lookupSchema.size() == 1 && Types.checkType(lookupSchema.get(0), RestColumnHandle.class, "lookupSchema").getName().equals(handle.getKeyColumn()),
+                "Lookups are supported only by %s",
+                handle);
+        List<RestColumnHandle> outputColumns = outputSchema.stream()
+                .map(column -> Types.checkType(column, RestColumnHandle.class, "outputSchema"))
+                .collect(toImmutableList());
+        return new RestIndex(rest, handle.getSchemaTableName(), handle.getKeyColumn(), outputColumns);
+    }
+}
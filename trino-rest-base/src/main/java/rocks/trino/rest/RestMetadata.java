@@ -15,21 +15,28 @@
 package rocks.trino.rest;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.slice.Slice;
+import io.trino.spi.connector.AggregateFunction;
+import io.trino.spi.connector.AggregationApplicationResult;
+import io.trino.spi.connector.Assignment;
 import io.trino.spi.connector.ColumnHandle;
 import io.trino.spi.connector.ColumnMetadata;
 import io.trino.spi.connector.ConnectorInsertTableHandle;
 import io.trino.spi.connector.ConnectorMetadata;
 import io.trino.spi.connector.ConnectorOutputMetadata;
+import io.trino.spi.connector.ConnectorResolvedIndex;
 import io.trino.spi.connector.ConnectorSession;
 import io.trino.spi.connector.ConnectorTableHandle;
-import io.trino.spi.connector.ConnectorTableLayout;
-import io.trino.spi.connector.ConnectorTableLayoutHandle;
-import io.trino.spi.connector.ConnectorTableLayoutResult;
 import io.trino.spi.connector.ConnectorTableMetadata;
+import io.trino.spi.connector.ConnectorTableProperties;
 import io.trino.spi.connector.Constraint;
+import io.trino.spi.connector.ConstraintApplicationResult;
 import io.trino.spi.connector.SchemaTableName;
 import io.trino.spi.connector.SchemaTablePrefix;
+import io.trino.spi.connector.SortItem;
+import io.trino.spi.connector.TopNApplicationResult;
+import io.trino.spi.expression.Variable;
 import io.trino.spi.predicate.TupleDomain;
 import io.trino.spi.statistics.ComputedStatistics;
 
@@ -37,18 +44,37 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.trino.spi.type.BigintType.BIGINT;
 import static java.util.stream.Collectors.toMap;
 
 public class RestMetadata
         implements ConnectorMetadata
 {
+    private static final String COUNT_COLUMN = "$count";
+
     private final Rest rest;
+    private final QuotaLedger quotaLedger;
 
     public RestMetadata(Rest rest)
+    {
+        this(rest, new QuotaLedger(1));
+    }
+
+    public RestMetadata(Rest rest, QuotaLedger quotaLedger)
     {
         this.rest = rest;
+        this.quotaLedger = quotaLedger;
+    }
+
+    @Override
+    public void cleanupQuery(ConnectorSession session)
+    {
+        quotaLedger.release(session.getQueryId());
     }
 
     @Override
@@ -67,20 +93,121 @@ public class RestMetadata
     }
 
     @Override
-    public List<ConnectorTableLayoutResult> getTableLayouts(ConnectorSession session, ConnectorTableHandle table, Constraint constraint, Optional<Set<ColumnHandle>> desiredColumns)
+    public boolean usesLegacyTableLayouts()
+    {
+        return false;
+    }
+
+    @Override
+    public ConnectorTableProperties getTableProperties(ConnectorSession session, ConnectorTableHandle table)
+    {
+        return new ConnectorTableProperties();
+    }
+
+    @Override
+    public Optional<AggregationApplicationResult<ConnectorTableHandle>> applyAggregation(
+            ConnectorSession session,
+            ConnectorTableHandle table,
+            List<AggregateFunction> aggregates,
+            Map<String, ColumnHandle> assignments,
+            List<List<ColumnHandle>> groupingSets)
     {
         RestTableHandle tableHandle = Types.checkType(table, RestTableHandle.class, "tableHandle");
-        return ImmutableList.of(
-                new ConnectorTableLayoutResult(
-                        getTableLayout(session, new RestConnectorTableLayoutHandle(tableHandle)),
-                        TupleDomain.all()));
+        // only a global count(*) is answered from the count reported by the API
+        if (tableHandle.isCountOnly()
+                || tableHandle.getLimit().isPresent()
+                || !tableHandle.getConstraint().isAll()
+                || aggregates.size() != 1
+                || !groupingSets.stream().allMatch(List::isEmpty)
+                || !isCountAll(aggregates.get(0))
+                || !rest.supportsRowCount(tableHandle.getSchemaTableName())) {
+            return Optional.empty();
+        }
+        AggregateFunction count = aggregates.get(0);
+        RestColumnHandle countColumn = new RestColumnHandle(COUNT_COLUMN, count.getOutputType());
+        return Optional.of(new AggregationApplicationResult<>(
+                new RestTableHandle(tableHandle.getSchemaTableName(), true, ImmutableList.of(), OptionalLong.empty()),
+                ImmutableList.of(new Variable(COUNT_COLUMN, count.getOutputType())),
+                ImmutableList.of(new Assignment(COUNT_COLUMN, countColumn, count.getOutputType())),
+                ImmutableMap.of()));
     }
 
     @Override
-    public ConnectorTableLayout getTableLayout(ConnectorSession connectorSession, ConnectorTableLayoutHandle connectorTableLayoutHandle)
+    public Optional<TopNApplicationResult<ConnectorTableHandle>> applyTopN(
+            ConnectorSession session,
+            ConnectorTableHandle table,
+            long topNCount,
+            List<SortItem> sortItems,
+            Map<String, ColumnHandle> assignments)
+    {
+        RestTableHandle tableHandle = Types.checkType(table, RestTableHandle.class, "tableHandle");
+        // a top-N scan reads the whole table, so the rows it returns may not match a pushed predicate
+        if (tableHandle.isCountOnly() || tableHandle.getLimit().isPresent() || !tableHandle.getConstraint().isAll()) {
+            return Optional.empty();
+        }
+        List<RestSortItem> sortOrder = sortItems.stream()
+                .map(item -> new RestSortItem(
+                        Types.checkType(assignments.get(item.getName()), RestColumnHandle.class, "column").getName(),
+                        item.getSortOrder()))
+                .collect(toImmutableList());
+        if (!rest.supportsTopN(tableHandle.getSchemaTableName(), sortOrder, topNCount)) {
+            return Optional.empty();
+        }
+        // top-N scans are read by a single split, in the requested order
+        return Optional.of(new TopNApplicationResult<>(
+                new RestTableHandle(tableHandle.getSchemaTableName(), false, sortOrder, OptionalLong.of(topNCount)),
+                true));
+    }
+
+    @Override
+    public Optional<ConstraintApplicationResult<ConnectorTableHandle>> applyFilter(ConnectorSession session, ConnectorTableHandle table, Constraint constraint)
+    {
+        RestTableHandle tableHandle = Types.checkType(table, RestTableHandle.class, "tableHandle");
+        if (tableHandle.isCountOnly() || tableHandle.getLimit().isPresent()) {
+            return Optional.empty();
+        }
+        Set<String> filterColumns = rest.getFilterColumns(tableHandle.getSchemaTableName());
+        TupleDomain<RestColumnHandle> pushed = constraint.getSummary()
+                .filter((column, domain) -> filterColumns.contains(Types.checkType(column, RestColumnHandle.class, "column").getName()))
+                .transform(column -> (RestColumnHandle) column);
+        TupleDomain<RestColumnHandle> newConstraint = tableHandle.getConstraint().intersect(pushed);
+        if (newConstraint.equals(tableHandle.getConstraint())) {
+            return Optional.empty();
+        }
+        // partitions only skip what cannot match, so the engine still evaluates the whole predicate
+        return Optional.of(new ConstraintApplicationResult<>(
+                new RestTableHandle(tableHandle.getSchemaTableName(), false, ImmutableList.of(), OptionalLong.empty(), newConstraint),
+                constraint.getSummary()));
+    }
+
+    @Override
+    public Optional<ConnectorResolvedIndex> resolveIndex(
+            ConnectorSession session,
+            ConnectorTableHandle table,
+            Set<ColumnHandle> indexableColumns,
+            Set<ColumnHandle> outputColumns,
+            TupleDomain<ColumnHandle> tupleDomain)
+    {
+        RestTableHandle tableHandle = Types.checkType(table, RestTableHandle.class, "tableHandle");
+        if (tableHandle.isCountOnly() || tableHandle.getLimit().isPresent() || indexableColumns.size() != 1) {
+            return Optional.empty();
+        }
+        // lookups are by a single column, as lookup endpoints take a single kind of key
+        String keyColumn = Types.checkType(getOnlyElement(indexableColumns), RestColumnHandle.class, "indexableColumns").getName();
+        if (!rest.getIndexColumns(tableHandle.getSchemaTableName()).contains(keyColumn)) {
+            return Optional.empty();
+        }
+        return Optional.of(new ConnectorResolvedIndex(new RestIndexHandle(tableHandle.getSchemaTableName(), keyColumn), tupleDomain));
+    }
+
+    private static boolean isCountAll(AggregateFunction aggregate)
     {
-        RestConnectorTableLayoutHandle tableLayoutHandle = Types.checkType(connectorTableLayoutHandle, RestConnectorTableLayoutHandle.class, "tableLayoutHandle");
-        return new ConnectorTableLayout(tableLayoutHandle);
+        return aggregate.getFunctionName().equals("count")
+                && aggregate.getInputs().isEmpty()
+                && aggregate.getOutputType().equals(BIGINT)
+                && !aggregate.isDistinct()
+                && aggregate.getFilter().isEmpty()
+                && aggregate.getSortItems().isEmpty();
     }
 
     @Override
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import io.trino.spi.Page;
+import io.trino.spi.connector.ConnectorPageSource;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Returns pages that are loaded in the background. Until they are loaded, the page source is blocked
+ * and does not hold a driver thread. Closing it before then cancels the load, e.g. when the query was
+ * cancelled or a {@code LIMIT} above the scan is satisfied.
+ */
+public class RestPageSource
+        implements ConnectorPageSource
+{
+    private final CompletableFuture<? extends Iterator<Page>> pages;
+    private final Runnable cancel;
+    private long completedBytes;
+    private long readTimeNanos;
+    private boolean closed;
+
+    public RestPageSource(Iterator<Page> pages)
+    {
+        this(CompletableFuture.completedFuture(pages), () -> {});
+    }
+
+    public RestPageSource(CompletableFuture<? extends Iterator<Page>> pages, Runnable cancel)
+    {
+        this.pages = requireNonNull(pages, "pages is null");
+        this.cancel = requireNonNull(cancel, "cancel is null");
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return completedBytes;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return readTimeNanos;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return closed || (pages.isDone() && !getPages().hasNext());
+    }
+
+    @Override
+    public CompletableFuture<?> isBlocked()
+    {
+        return pages.isDone() ? NOT_BLOCKED : pages;
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        if (!pages.isDone() || isFinished()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Page page = getPages().next();
+        readTimeNanos += System.nanoTime() - start;
+        completedBytes += page.getSizeInBytes();
+        return page;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return 0;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        if (!pages.isDone()) {
+            cancel.run();
+        }
+    }
+
+    private Iterator<Page> getPages()
+    {
+        try {
+            return pages.join();
+        }
+        catch (CompletionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
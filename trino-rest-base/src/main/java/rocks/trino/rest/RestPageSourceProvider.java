@@ -0,0 +1,296 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorPageSource;
+import io.trino.spi.connector.ConnectorPageSourceProvider;
+import io.trino.spi.connector.ConnectorSession;
+import io.trino.spi.connector.ConnectorSplit;
+import io.trino.spi.connector.ConnectorTableHandle;
+import io.trino.spi.connector.ConnectorTransactionHandle;
+import io.trino.spi.connector.DynamicFilter;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.type.Type;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+public class RestPageSourceProvider
+        implements ConnectorPageSourceProvider
+{
+    // pages of a stream waiting to be read, before the stream stops reading
+    private static final int MAX_BUFFERED_STREAM_PAGES = 16;
+
+    private final Rest rest;
+    private final Optional<SingleFlight<ScanRequest, List<Page>>> scans;
+    private final Optional<ScanResultCache> cache;
+    private final ExecutorService executor;
+    private final CancellationStats cancellationStats;
+    private final QuotaLedger quotaLedger;
+    private final Duration maxLeaseWait;
+    private final Optional<RequestScheduler> scheduler;
+    private final long streamMaxRows;
+    private final Duration streamMaxDuration;
+
+    public RestPageSourceProvider(
+            Rest rest,
+            Optional<SingleFlight<ScanRequest, List<Page>>> scans,
+            Optional<ScanResultCache> cache,
+            ExecutorService executor,
+            CancellationStats cancellationStats,
+            QuotaLedger quotaLedger,
+            Duration maxLeaseWait,
+            Optional<RequestScheduler> scheduler,
+            long streamMaxRows,
+            Duration streamMaxDuration)
+    {
+        this.rest = rest;
+        this.scans = scans;
+        this.cache = cache;
+        this.executor = executor;
+        this.cancellationStats = cancellationStats;
+        this.quotaLedger = quotaLedger;
+        this.maxLeaseWait = maxLeaseWait;
+        this.scheduler = scheduler;
+        this.streamMaxRows = streamMaxRows;
+        this.streamMaxDuration = streamMaxDuration;
+    }
+
+    @Override
+    public ConnectorPageSource createPageSource(
+            ConnectorTransactionHandle connectorTransactionHandle,
+            ConnectorSession connectorSession,
+            ConnectorSplit connectorSplit,
+            ConnectorTableHandle table,
+            List<ColumnHandle> list,
+            DynamicFilter dynamicFilter)
+    {
+        RestConnectorSplit split = Types.checkType(connectorSplit, RestConnectorSplit.class, "split");
+        // TODO fix below cast
+        List<RestColumnHandle> restColumnHandles = (List<RestColumnHandle>) (List<?>) list;
+
+        SchemaTableName schemaTableName = split.getTableHandle().getSchemaTableName();
+        if (split.getTableHandle().isCountOnly()) {
+            return new RestPageSource(ImmutableList.of(countPage(schemaTableName, restColumnHandles.size())).iterator());
+        }
+        ScanRequest request = new ScanRequest(split.getTableHandle(), split.getPartition(), restColumnHandles);
+        QuotaBudget budget = new QuotaBudget(split.getLease(), maxLeaseWait, quotaLedger);
+        if (rest.isStreaming(schemaTableName)) {
+            return startStream(request, new ScanScope(cancellationStats, budget, scheduler, connectorSession.getQueryId()));
+        }
+        if (rest.isNodeLocal(schemaTableName)) {
+            // the rows are already in the memory of this node, so they are read right away and never cached
+            return new RestPageSource(scan(request).build().iterator());
+        }
+        if (cache.isPresent()) {
+            ColumnarRows cached = cache.get().getIfPresent(request);
+            if (cached != null) {
+                return new RestPageSource(cached.getPages(RowPageBuilder.MAX_ROWS_PER_PAGE));
+            }
+        }
+        return startScan(request, new ScanScope(cancellationStats, budget, scheduler, connectorSession.getQueryId()));
+    }
+
+    private RestPageSource startScan(ScanRequest request, ScanScope scope)
+    {
+        // the scan runs off the driver thread, so closing the page source can cancel its calls while they are in flight
+        CompletableFuture<Iterator<Page>> pages = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                pages.complete(scope.run(() -> getPages(request, scope)).iterator());
+            }
+            catch (RuntimeException | Error e) {
+                pages.completeExceptionally(e);
+            }
+        });
+        return new RestPageSource(pages, () -> {
+            scope.cancel();
+            // also interrupts backoffs between retries
+            task.cancel(true);
+        });
+    }
+
+    private StreamingPageSource startStream(ScanRequest request, ScanScope scope)
+    {
+        AtomicReference<Future<?>> task = new AtomicReference<>();
+        StreamingPageSource source = new StreamingPageSource(MAX_BUFFERED_STREAM_PAGES, () -> {
+            scope.stop();
+            task.get().cancel(true);
+        });
+        task.set(executor.submit(() -> {
+            try {
+                scope.run(() -> {
+                    streamPages(request, scope, source::add);
+                    return null;
+                });
+                source.finish(null);
+            }
+            catch (RuntimeException | Error e) {
+                source.finish(e);
+            }
+        }));
+        if (!streamMaxDuration.isZero()) {
+            delayedExecutor(streamMaxDuration.toMillis(), MILLISECONDS).execute(scope::stop);
+        }
+        return source;
+    }
+
+    private void streamPages(ScanRequest request, ScanScope scope, Consumer<Page> pages)
+    {
+        SchemaTableName schemaTableName = request.getSchemaTableName();
+        List<ColumnMetadata> tableColumns = rest.getTableMetadata(schemaTableName).getColumns();
+        RowPageBuilder pageBuilder = createPageBuilder(schemaTableName, tableColumns, request.getColumns(), pages);
+        RowBuffer rows = new RowBuffer(
+                getTypes(tableColumns),
+                row -> {
+                    // rows read after the stream was stopped are dropped
+                    if (scope.isCancelled()) {
+                        return;
+                    }
+                    pageBuilder.accept(row);
+                    if (streamMaxRows > 0 && row.getRowCount() >= streamMaxRows) {
+                        scope.stop();
+                    }
+                },
+                pageBuilder::flush);
+        try {
+            rest.scanRows(schemaTableName, request.getPartition(), request.getColumns(), rows);
+        }
+        catch (RuntimeException e) {
+            // stopping the stream fails the call that reads it
+            if (!scope.isCancelled()) {
+                throw e;
+            }
+        }
+        pageBuilder.flush();
+    }
+
+    private Page countPage(SchemaTableName schemaTableName, int channels)
+    {
+        BlockBuilder count = BIGINT.createBlockBuilder(null, 1);
+        BIGINT.writeLong(count, rest.getRowCount(schemaTableName));
+        Block block = count.build();
+        Block[] blocks = new Block[channels];
+        Arrays.fill(blocks, block);
+        return new Page(1, blocks);
+    }
+
+    private List<Page> getPages(ScanRequest request, ScanScope scope)
+    {
+        Supplier<List<Page>> loader = () -> {
+            try {
+                return loadPages(request);
+            }
+            catch (RuntimeException e) {
+                if (scope.isCancelled()) {
+                    // tells the other callers waiting for this load that it was not the request that failed
+                    CancellationException cancellation = new CancellationException("Scan of " + request.getSchemaTableName() + " was cancelled");
+                    cancellation.initCause(e);
+                    throw cancellation;
+                }
+                throw e;
+            }
+        };
+        // concurrent scans of the same rows, e.g. a dashboard firing the same query a few times, share a single fetch
+        if (scans.isEmpty()) {
+            return loader.get();
+        }
+        return scans.get().execute(request, loader);
+    }
+
+    private List<Page> loadPages(ScanRequest request)
+    {
+        RowPageBuilder pageBuilder = scan(request);
+        List<Page> pages = pageBuilder.build();
+
+        List<Type> types = pageBuilder.getTypes();
+        if (cache.isPresent() && types.stream().allMatch(ColumnarRows::isSupported)) {
+            cache.get().put(request, ColumnarRows.encode(types, pages));
+        }
+        return pages;
+    }
+
+    private RowPageBuilder scan(ScanRequest request)
+    {
+        SchemaTableName schemaTableName = request.getSchemaTableName();
+        List<RestColumnHandle> columns = request.getColumns();
+        List<ColumnMetadata> tableColumns = rest.getTableMetadata(schemaTableName).getColumns();
+        RowPageBuilder pageBuilder = createPageBuilder(schemaTableName, tableColumns, columns, null);
+        RowBuffer rows = new RowBuffer(getTypes(tableColumns), pageBuilder);
+        RestTableHandle table = request.getTable();
+        if (table.getLimit().isPresent()) {
+            rest.scanTopN(schemaTableName, columns, table.getSortOrder(), table.getLimit().getAsLong(), rows);
+        }
+        else {
+            rest.scanRows(schemaTableName, request.getPartition(), columns, rows);
+        }
+        return pageBuilder;
+    }
+
+    private RowPageBuilder createPageBuilder(SchemaTableName schemaTableName, List<ColumnMetadata> tableColumns, List<RestColumnHandle> columns, Consumer<Page> pageConsumer)
+    {
+        Set<String> lowCardinalityColumns = rest.getLowCardinalityColumns(schemaTableName);
+        List<Type> types = new ArrayList<>(columns.size());
+        int[] projection = new int[columns.size()];
+        boolean[] lowCardinality = new boolean[columns.size()];
+        for (int channel = 0; channel < columns.size(); channel++) {
+            RestColumnHandle column = columns.get(channel);
+            types.add(column.getType());
+            projection[channel] = getFieldIndex(tableColumns, column.getName());
+            lowCardinality[channel] = lowCardinalityColumns.contains(column.getName());
+        }
+        return new RowPageBuilder(types, projection, lowCardinality, pageConsumer);
+    }
+
+    private static List<Type> getTypes(List<ColumnMetadata> tableColumns)
+    {
+        return tableColumns.stream()
+                .map(ColumnMetadata::getType)
+                .collect(toList());
+    }
+
+    static int getFieldIndex(List<ColumnMetadata> tableColumns, String name)
+    {
+        for (int field = 0; field < tableColumns.size(); field++) {
+            if (tableColumns.get(field).getName().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalStateException("Unknown column: " + name);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Part of a table that can be fetched independently of the other parts, e.g. a single repository
+ * of an organization-wide table or a range of ids. Every partition becomes a separate split.
+ * The range, when present, is {@code [start, end)}; its meaning is up to the {@link Rest} implementation.
+ */
+public class RestPartition
+{
+    public static final RestPartition ALL = new RestPartition(Optional.empty(), OptionalLong.empty(), OptionalLong.empty());
+
+    private final Optional<String> key;
+    private final OptionalLong start;
+    private final OptionalLong end;
+
+    @JsonCreator
+    public RestPartition(
+            @JsonProperty("key") Optional<String> key,
+            @JsonProperty("start") OptionalLong start,
+            @JsonProperty("end") OptionalLong end)
+    {
+        this.key = requireNonNull(key, "key is null");
+        this.start = requireNonNull(start, "start is null");
+        this.end = requireNonNull(end, "end is null");
+        checkArgument(start.isEmpty() || end.isEmpty() || start.getAsLong() <= end.getAsLong(), "start is after end");
+    }
+
+    public static RestPartition of(String key)
+    {
+        return new RestPartition(Optional.of(key), OptionalLong.empty(), OptionalLong.empty());
+    }
+
+    public static RestPartition range(long start, long end)
+    {
+        return new RestPartition(Optional.empty(), OptionalLong.of(start), OptionalLong.of(end));
+    }
+
+    @JsonProperty("key")
+    public Optional<String> getKey()
+    {
+        return key;
+    }
+
+    @JsonProperty("start")
+    public OptionalLong getStart()
+    {
+        return start;
+    }
+
+    @JsonProperty("end")
+    public OptionalLong getEnd()
+    {
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RestPartition that = (RestPartition) o;
+        return Objects.equals(key, that.key) &&
+                Objects.equals(start, that.start) &&
+                Objects.equals(end, that.end);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(key, start, end);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder(key.orElse("<all>"));
+        if (start.isPresent() || end.isPresent()) {
+            result.append('[')
+                    .append(start.isPresent() ? String.valueOf(start.getAsLong()) : "")
+                    .append(", ")
+                    .append(end.isPresent() ? String.valueOf(end.getAsLong()) : "")
+                    .append(')');
+        }
+        return result.toString();
+    }
+}
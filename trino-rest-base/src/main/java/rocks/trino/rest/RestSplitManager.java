@@ -21,11 +21,13 @@ import io.trino.spi.NodeManager;
 import io.trino.spi.connector.ConnectorSession;
 import io.trino.spi.connector.ConnectorSplitManager;
 import io.trino.spi.connector.ConnectorSplitSource;
-import io.trino.spi.connector.ConnectorTableLayoutHandle;
+import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.connector.ConnectorTransactionHandle;
+import io.trino.spi.connector.DynamicFilter;
 import io.trino.spi.connector.FixedSplitSource;
 
 import java.util.List;
+import java.util.Optional;
 
 import static java.util.stream.Collectors.toList;
 
@@ -33,22 +35,54 @@ public class RestSplitManager
         implements ConnectorSplitManager
 {
     private final NodeManager nodeManager;
+    private final Rest rest;
+    private final QuotaLedger ledger;
 
-    public RestSplitManager(NodeManager nodeManager)
+    public RestSplitManager(NodeManager nodeManager, Rest rest, QuotaLedger ledger)
     {
         this.nodeManager = nodeManager;
+        this.rest = rest;
+        this.ledger = ledger;
     }
 
     @Override
-    public ConnectorSplitSource getSplits(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorTableLayoutHandle layout, SplitSchedulingStrategy splitSchedulingStrategy)
+    public ConnectorSplitSource getSplits(
+            ConnectorTransactionHandle transactionHandle,
+            ConnectorSession session,
+            ConnectorTableHandle table,
+            SplitSchedulingStrategy splitSchedulingStrategy,
+            DynamicFilter dynamicFilter)
     {
-        RestConnectorTableLayoutHandle layoutHandle = Types.checkType(layout, RestConnectorTableLayoutHandle.class, "layout");
+        RestTableHandle tableHandle = Types.checkType(table, RestTableHandle.class, "table");
 
         List<HostAddress> addresses = nodeManager.getRequiredWorkerNodes().stream()
                 .map(Node::getHostAndPort)
                 .collect(toList());
 
-        return new FixedSplitSource(ImmutableList.of(
-                new RestConnectorSplit(layoutHandle.getTableHandle(), addresses)));
+        if (rest.isNodeLocal(tableHandle.getSchemaTableName())) {
+            // every worker holds different rows and reads them without calling the API, so no quota is leased
+            return new FixedSplitSource(addresses.stream()
+                    .map(address -> RestConnectorSplit.pinned(tableHandle, RestPartition.ALL, address))
+                    .collect(toList()));
+        }
+
+        if (tableHandle.isCountOnly() || tableHandle.getLimit().isPresent()) {
+            // neither the count nor the ordered top rows of the whole table can be split
+            return new FixedSplitSource(ImmutableList.of(new RestConnectorSplit(tableHandle, RestPartition.ALL, addresses)));
+        }
+        List<RestPartition> partitions = rest.getPartitions(tableHandle.getSchemaTableName(), tableHandle.getConstraint());
+        Optional<QuotaLease> quota = rest.getRemainingQuota();
+        if (quota.isEmpty()) {
+            return new FixedSplitSource(partitions.stream()
+                    .map(partition -> new RestConnectorSplit(tableHandle, partition, addresses))
+                    .collect(toList()));
+        }
+        // every worker only sees its own responses, so the coordinator shares the quota out among the splits
+        List<QuotaLease> leases = ledger.lease(session.getQueryId(), quota.get(), partitions.size());
+        ImmutableList.Builder<RestConnectorSplit> splits = ImmutableList.builder();
+        for (int i = 0; i < partitions.size(); i++) {
+            splits.add(new RestConnectorSplit(tableHandle, partitions.get(i), addresses, Optional.of(leases.get(i))));
+        }
+        return new FixedSplitSource(splits.build());
     }
 }
@@ -11,24 +11,63 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package rocks.trino.rest;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import io.trino.spi.connector.ConnectorTableHandle;
 import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.predicate.TupleDomain;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
 
 public class RestTableHandle
         implements ConnectorTableHandle
 {
     private final SchemaTableName schemaTableName;
+    private final boolean countOnly;
+    private final List<RestSortItem> sortOrder;
+    private final OptionalLong limit;
+    private final TupleDomain<RestColumnHandle> constraint;
+
+    public RestTableHandle(SchemaTableName schemaTableName)
+    {
+        this(schemaTableName, false, ImmutableList.of(), OptionalLong.empty());
+    }
 
+    public RestTableHandle(SchemaTableName schemaTableName, boolean countOnly, List<RestSortItem> sortOrder, OptionalLong limit)
+    {
+        this(schemaTableName, countOnly, sortOrder, limit, TupleDomain.all());
+    }
+
+    /**
+     * @param countOnly when set, the table is read as a single row with the number of its rows,
+     * as reported by {@link Rest#getRowCount(SchemaTableName)}
+     * @param sortOrder order the rows are read in, along with the {@code limit} of a top-N query
+     * answered by {@link Rest#scanTopN}
+     * @param constraint predicate on the {@link Rest#getFilterColumns filter columns} of the table,
+     * which narrows down the {@link Rest#getPartitions(SchemaTableName, TupleDomain) partitions} to fetch
+     */
     @JsonCreator
     public RestTableHandle(
-            @JsonProperty("schemaTableName") SchemaTableName schemaTableName)
+            @JsonProperty("schemaTableName") SchemaTableName schemaTableName,
+            @JsonProperty("countOnly") boolean countOnly,
+            @JsonProperty("sortOrder") List<RestSortItem> sortOrder,
+            @JsonProperty("limit") OptionalLong limit,
+            @JsonProperty("constraint") TupleDomain<RestColumnHandle> constraint)
     {
         this.schemaTableName = schemaTableName;
+        this.countOnly = countOnly;
+        this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
+        this.limit = requireNonNull(limit, "limit is null");
+        this.constraint = requireNonNull(constraint, "constraint is null");
+        checkArgument(sortOrder.isEmpty() || limit.isPresent(), "sortOrder requires a limit");
     }
 
     @JsonProperty("schemaTableName")
@@ -36,4 +75,68 @@ public class RestTableHandle
     {
         return schemaTableName;
     }
+
+    @JsonProperty("countOnly")
+    public boolean isCountOnly()
+    {
+        return countOnly;
+    }
+
+    @JsonProperty("sortOrder")
+    public List<RestSortItem> getSortOrder()
+    {
+        return sortOrder;
+    }
+
+    @JsonProperty("limit")
+    public OptionalLong getLimit()
+    {
+        return limit;
+    }
+
+    @JsonProperty("constraint")
+    public TupleDomain<RestColumnHandle> getConstraint()
+    {
+        return constraint;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RestTableHandle that = (RestTableHandle) o;
+        return countOnly == that.countOnly &&
+                Objects.equals(schemaTableName, that.schemaTableName) &&
+                Objects.equals(sortOrder, that.sortOrder) &&
+                Objects.equals(limit, that.limit) &&
+                Objects.equals(constraint, that.constraint);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(schemaTableName, countOnly, sortOrder, limit, constraint);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder(schemaTableName.toString());
+        if (countOnly) {
+            result.append(" count");
+        }
+        if (!sortOrder.isEmpty()) {
+            result.append(" order by ").append(sortOrder);
+        }
+        if (!constraint.isAll()) {
+            result.append(" where ").append(constraint);
+        }
+        limit.ifPresent(value -> result.append(" limit ").append(value));
+        return result.toString();
+    }
 }
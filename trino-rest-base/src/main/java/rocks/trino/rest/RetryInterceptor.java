@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Retries failed requests with exponential backoff and full jitter, and fails fast while an endpoint
+ * is down, as decided by a {@link CircuitBreaker} per endpoint. An endpoint is the method and host of
+ * a request, and either the service method it was made by, for Retrofit services, or its path with
+ * the segments that contain digits (e.g. ids) left out. Breakers of endpoints that are no longer
+ * used are evicted, so that paths made of names, e.g. of repositories, do not pile up.
+ * <p>
+ * Only idempotent requests are retried, on an {@link IOException} or a response with a status that is
+ * worth retrying, e.g. 503 or 429. Retries are limited by a budget that is refilled by a fraction of
+ * every request, so that a broken upstream does not get several times the usual traffic.
+ */
+public class RetryInterceptor
+        implements Interceptor
+{
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+    private static final Set<Integer> RETRYABLE_STATUSES = ImmutableSet.of(408, 429, 500, 502, 503, 504);
+    private static final long BUDGET_UNIT = 1000;
+    private static final long MAX_BUDGET = 100 * BUDGET_UNIT;
+    private static final int MAX_BREAKERS = 1000;
+    private static final Duration BREAKER_IDLE_TIME = Duration.ofHours(1);
+
+    private final HttpClientConfig config;
+    private final Ticker ticker;
+    private final Cache<String, CircuitBreaker> breakers;
+    // in thousandths of a retry
+    private final AtomicLong retryBudget = new AtomicLong(10 * BUDGET_UNIT);
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public RetryInterceptor(HttpClientConfig config)
+    {
+        this(config, Ticker.systemTicker());
+    }
+
+    public RetryInterceptor(HttpClientConfig config, Ticker ticker)
+    {
+        this.config = config;
+        this.ticker = ticker;
+        this.breakers = CacheBuilder.newBuilder()
+                .maximumSize(MAX_BREAKERS)
+                .expireAfterAccess(BREAKER_IDLE_TIME.toMillis(), MILLISECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public Response intercept(Chain chain)
+            throws IOException
+    {
+        Request request = chain.request();
+        String endpoint = getEndpoint(request);
+        CircuitBreaker breaker = breakers.asMap().computeIfAbsent(endpoint, ignored -> new CircuitBreaker(config.getBreakerFailureThreshold(), config.getBreakerOpenDuration(), ticker));
+        boolean idempotent = IDEMPOTENT_METHODS.contains(request.method());
+        depositBudget();
+
+        for (int attempt = 0; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                rejections.incrementAndGet();
+                throw new IOException(format("Circuit breaker for %s is open after repeated failures", endpoint));
+            }
+            Response response;
+            try {
+                response = chain.proceed(request);
+            }
+            catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    // e.g. the slower attempt of a hedged request, which says nothing about the endpoint
+                    breaker.release();
+                    throw e;
+                }
+                breaker.recordFailure();
+                if (!canRetry(chain, idempotent, attempt)) {
+                    throw e;
+                }
+                backoff(attempt, null);
+                continue;
+            }
+
+            int code = response.code();
+            if (code >= 500) {
+                breaker.recordFailure();
+            }
+            else {
+                breaker.recordSuccess();
+            }
+            if (!RETRYABLE_STATUSES.contains(code) || !canRetry(chain, idempotent, attempt)) {
+                return response;
+            }
+            String retryAfter = response.header("Retry-After");
+            response.close();
+            backoff(attempt, retryAfter);
+        }
+    }
+
+    static String getEndpoint(Request request)
+    {
+        String prefix = request.method() + " " + request.url().host();
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            Method method = invocation.method();
+            return prefix + " " + method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        return prefix + request.url().pathSegments().stream()
+                .map(segment -> segment.chars().anyMatch(Character::isDigit) ? "*" : segment)
+                .collect(joining("/", "/", ""));
+    }
+
+    long getBreakerCount()
+    {
+        breakers.cleanUp();
+        return breakers.size();
+    }
+
+    public long getRetryCount()
+    {
+        return retries.get();
+    }
+
+    /**
+     * Number of requests that failed fast because the circuit breaker of their endpoint was open.
+     */
+    public long getRejectionCount()
+    {
+        return rejections.get();
+    }
+
+    private boolean canRetry(Chain chain, boolean idempotent, int attempt)
+    {
+        if (!idempotent || attempt >= config.getMaxRetries() || chain.call().isCanceled()) {
+            return false;
+        }
+        while (true) {
+            long budget = retryBudget.get();
+            if (budget < BUDGET_UNIT) {
+                return false;
+            }
+            if (retryBudget.compareAndSet(budget, budget - BUDGET_UNIT)) {
+                retries.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private void depositBudget()
+    {
+        long deposit = (long) (config.getRetryBudgetRatio() * BUDGET_UNIT);
+        retryBudget.accumulateAndGet(deposit, (budget, value) -> min(MAX_BUDGET, budget + value));
+    }
+
+    private void backoff(int attempt, String retryAfter)
+            throws InterruptedIOException
+    {
+        long maxDelayNanos = config.getRetryMaxDelay().toNanos();
+        long delayNanos = min(maxDelayNanos, config.getRetryInitialDelay().toNanos() << min(attempt, 30));
+        delayNanos = ThreadLocalRandom.current().nextLong(delayNanos + 1);
+        if (retryAfter != null && retryAfter.matches("\\d{1,9}")) {
+            // honour the delay asked by the server, unless it is longer than we are willing to wait anyway
+            delayNanos = min(maxDelayNanos, max(delayNanos, SECONDS.toNanos(Long.parseLong(retryAfter))));
+        }
+        try {
+            NANOSECONDS.sleep(delayNanos);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
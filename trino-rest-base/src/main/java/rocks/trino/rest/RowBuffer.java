@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.type.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single row of a table, reused for every row of a scan. {@link Rest} implementations write
+ * the values of a row into typed slots, indexed like the columns of the table, and then call
+ * {@link #endRow()}, which hands the row over and resets all slots to {@code null}.
+ * Primitive values are kept unboxed, so a scan does not need to allocate anything per row.
+ */
+public final class RowBuffer
+{
+    private final List<Type> types;
+    private final Consumer<RowBuffer> consumer;
+    private final Runnable flusher;
+    private final long[] longs;
+    private final double[] doubles;
+    private final boolean[] booleans;
+    private final Object[] objects;
+    private final boolean[] nulls;
+    private long rowCount;
+
+    public RowBuffer(List<Type> types, Consumer<RowBuffer> consumer)
+    {
+        this(types, consumer, () -> {});
+    }
+
+    public RowBuffer(List<Type> types, Consumer<RowBuffer> consumer, Runnable flusher)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.consumer = requireNonNull(consumer, "consumer is null");
+        this.flusher = requireNonNull(flusher, "flusher is null");
+        this.longs = new long[types.size()];
+        this.doubles = new double[types.size()];
+        this.booleans = new boolean[types.size()];
+        this.objects = new Object[types.size()];
+        this.nulls = new boolean[types.size()];
+        Arrays.fill(nulls, true);
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public void setLong(int field, long value)
+    {
+        longs[field] = value;
+        nulls[field] = false;
+    }
+
+    public void setDouble(int field, double value)
+    {
+        doubles[field] = value;
+        nulls[field] = false;
+    }
+
+    public void setBoolean(int field, boolean value)
+    {
+        booleans[field] = value;
+        nulls[field] = false;
+    }
+
+    /**
+     * Sets a value that has no primitive representation, e.g. a {@link String} or a
+     * {@link io.airlift.slice.Slice} of a varchar column.
+     */
+    public void setObject(int field, Object value)
+    {
+        objects[field] = value;
+        nulls[field] = value == null;
+    }
+
+    public void setNull(int field)
+    {
+        objects[field] = null;
+        nulls[field] = true;
+    }
+
+    /**
+     * Sets all the values of a row, for implementations that already have the row as a list.
+     */
+    public void setValues(List<?> values)
+    {
+        checkArgument(values.size() == types.size(), "Expected %s values, but got %s", types.size(), values.size());
+        for (int field = 0; field < types.size(); field++) {
+            Object value = values.get(field);
+            Class<?> javaType = types.get(field).getJavaType();
+            if (value == null) {
+                setNull(field);
+            }
+            else if (javaType == long.class) {
+                setLong(field, ((Number) value).longValue());
+            }
+            else if (javaType == double.class) {
+                setDouble(field, ((Number) value).doubleValue());
+            }
+            else if (javaType == boolean.class) {
+                setBoolean(field, (Boolean) value);
+            }
+            else {
+                setObject(field, value);
+            }
+        }
+    }
+
+    /**
+     * Values of the current row, boxed, as accepted by {@link #setValues(List)}.
+     */
+    public List<Object> getValues()
+    {
+        List<Object> values = new ArrayList<>(types.size());
+        for (int field = 0; field < types.size(); field++) {
+            Class<?> javaType = types.get(field).getJavaType();
+            if (nulls[field]) {
+                values.add(null);
+            }
+            else if (javaType == long.class) {
+                values.add(longs[field]);
+            }
+            else if (javaType == double.class) {
+                values.add(doubles[field]);
+            }
+            else if (javaType == boolean.class) {
+                values.add(booleans[field]);
+            }
+            else {
+                values.add(objects[field]);
+            }
+        }
+        return values;
+    }
+
+    public void endRow()
+    {
+        rowCount++;
+        consumer.accept(this);
+        for (int field = 0; field < nulls.length; field++) {
+            objects[field] = null;
+            nulls[field] = true;
+        }
+    }
+
+    /**
+     * Hands the rows written so far over without waiting for a full page, e.g. before blocking on a stream
+     * that has nothing more to read. Only streaming tables return pages before the scan completes.
+     */
+    public void flush()
+    {
+        flusher.run();
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isNull(int field)
+    {
+        return nulls[field];
+    }
+
+    public long getLong(int field)
+    {
+        return longs[field];
+    }
+
+    public double getDouble(int field)
+    {
+        return doubles[field];
+    }
+
+    public boolean getBoolean(int field)
+    {
+        return booleans[field];
+    }
+
+    public Object getObject(int field)
+    {
+        return objects[field];
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import io.trino.spi.block.DictionaryBlock;
+import io.trino.spi.type.Type;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Builds pages out of the rows written into a {@link RowBuffer}. Only the fields in {@code projection}
+ * are read, in that order, straight into block builders sized for a full page, so no objects are created
+ * per row. Variable width columns are produced as {@link DictionaryBlock}s when they are declared as
+ * low cardinality, or when values repeat within a page often enough for a dictionary to pay off. Other columns
+ * stop looking values up in the dictionary once it is clear it will not pay off, and write them as they come.
+ */
+public class RowPageBuilder
+        implements Consumer<RowBuffer>
+{
+    public static final int MAX_ROWS_PER_PAGE = 1024;
+
+    private final List<Type> types;
+    private final int[] projection;
+    private final ChannelBuilder[] channels;
+    private final ImmutableList.Builder<Page> pages = ImmutableList.builder();
+    private final Consumer<Page> pageConsumer;
+    private int positionCount;
+
+    /**
+     * @param types types of the produced channels
+     * @param projection for every produced channel, the field of the row it is read from
+     * @param lowCardinality for every produced channel, whether it is always dictionary encoded
+     */
+    public RowPageBuilder(List<Type> types, int[] projection, boolean[] lowCardinality)
+    {
+        this(types, projection, lowCardinality, null);
+    }
+
+    /**
+     * @param pageConsumer takes every page as soon as it is built, instead of {@link #build()}
+     */
+    public RowPageBuilder(List<Type> types, int[] projection, boolean[] lowCardinality, Consumer<Page> pageConsumer)
+    {
+        checkArgument(types.size() == projection.length, "types and projection sizes differ");
+        checkArgument(types.size() == lowCardinality.length, "types and lowCardinality sizes differ");
+        this.types = ImmutableList.copyOf(types);
+        this.projection = projection.clone();
+        this.channels = new ChannelBuilder[types.size()];
+        this.pageConsumer = pageConsumer == null ? pages::add : pageConsumer;
+        for (int channel = 0; channel < channels.length; channel++) {
+            Type type = types.get(channel);
+            if (type.getJavaType() == Slice.class) {
+                channels[channel] = new DictionaryChannelBuilder(type, lowCardinality[channel]);
+            }
+            else {
+                channels[channel] = new FixedWidthChannelBuilder(type);
+            }
+        }
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void accept(RowBuffer row)
+    {
+        for (int channel = 0; channel < channels.length; channel++) {
+            channels[channel].append(row, projection[channel]);
+        }
+        positionCount++;
+        if (positionCount == MAX_ROWS_PER_PAGE) {
+            buildPage();
+        }
+    }
+
+    /**
+     * Pages of all the rows accepted so far, unless they were handed to the page consumer.
+     */
+    public List<Page> build()
+    {
+        flush();
+        return pages.build();
+    }
+
+    /**
+     * Builds a page out of the rows accepted since the last page, if any.
+     */
+    public void flush()
+    {
+        if (positionCount > 0) {
+            buildPage();
+        }
+    }
+
+    private void buildPage()
+    {
+        Block[] blocks = new Block[channels.length];
+        for (int channel = 0; channel < channels.length; channel++) {
+            blocks[channel] = channels[channel].build(positionCount);
+        }
+        // reset before handing the page over, in case the consumer fails
+        int rows = positionCount;
+        positionCount = 0;
+        pageConsumer.accept(new Page(rows, blocks));
+    }
+
+    private interface ChannelBuilder
+    {
+        void append(RowBuffer row, int field);
+
+        /**
+         * Builds the block and resets the builder for the next page.
+         */
+        Block build(int positionCount);
+    }
+
+    private static final class FixedWidthChannelBuilder
+            implements ChannelBuilder
+    {
+        private final Type type;
+        private BlockBuilder builder;
+
+        FixedWidthChannelBuilder(Type type)
+        {
+            this.type = type;
+            this.builder = type.createBlockBuilder(null, MAX_ROWS_PER_PAGE);
+        }
+
+        @Override
+        public void append(RowBuffer row, int field)
+        {
+            Class<?> javaType = type.getJavaType();
+            if (row.isNull(field)) {
+                builder.appendNull();
+            }
+            else if (javaType == long.class) {
+                type.writeLong(builder, row.getLong(field));
+            }
+            else if (javaType == double.class) {
+                type.writeDouble(builder, row.getDouble(field));
+            }
+            else if (javaType == boolean.class) {
+                type.writeBoolean(builder, row.getBoolean(field));
+            }
+            else {
+                type.writeObject(builder, row.getObject(field));
+            }
+        }
+
+        @Override
+        public Block build(int positionCount)
+        {
+            Block block = builder.build();
+            builder = type.createBlockBuilder(null, MAX_ROWS_PER_PAGE);
+            return block;
+        }
+    }
+
+    private static final class DictionaryChannelBuilder
+            implements ChannelBuilder
+    {
+        private static final int NO_ID = -1;
+        // dictionaries are expected to be small, and grow when they are not
+        private static final int EXPECTED_DICTIONARY_SIZE = 16;
+        // rows of a page after which a dictionary with more than half as many values is given up
+        private static final int SAMPLE_ROWS = 64;
+
+        private final Type type;
+        private final boolean lowCardinality;
+        private final Map<Object, Integer> dictionaryIds = new HashMap<>();
+        private BlockBuilder dictionary;
+        private int[] ids = new int[MAX_ROWS_PER_PAGE];
+        private int nullId = NO_ID;
+        private int position;
+        // values of the page written as they come, once the dictionary is given up
+        private BlockBuilder values;
+        // average size of the values written as they come on the last page, to size the next one
+        private int expectedBytesPerValue = EXPECTED_DICTIONARY_SIZE;
+
+        DictionaryChannelBuilder(Type type, boolean lowCardinality)
+        {
+            this.type = type;
+            this.lowCardinality = lowCardinality;
+            this.dictionary = type.createBlockBuilder(null, EXPECTED_DICTIONARY_SIZE);
+        }
+
+        @Override
+        public void append(RowBuffer row, int field)
+        {
+            if (values != null) {
+                if (row.isNull(field)) {
+                    values.appendNull();
+                }
+                else {
+                    type.writeSlice(values, toSlice(row.getObject(field)));
+                }
+                return;
+            }
+            if (row.isNull(field)) {
+                if (nullId == NO_ID) {
+                    nullId = dictionary.getPositionCount();
+                    dictionary.appendNull();
+                }
+                ids[position++] = nullId;
+                return;
+            }
+            Object value = row.getObject(field);
+            Integer id = dictionaryIds.get(value);
+            if (id == null) {
+                id = dictionary.getPositionCount();
+                dictionaryIds.put(value, id);
+                type.writeSlice(dictionary, toSlice(value));
+            }
+            ids[position++] = id;
+            if (!lowCardinality && position >= SAMPLE_ROWS && dictionary.getPositionCount() * 2 > position) {
+                giveUpDictionary();
+            }
+        }
+
+        /**
+         * Copies the values so far out of the dictionary, e.g. of a free text column, so that the rest of the page
+         * is neither hashed nor copied again when the page is built.
+         */
+        private void giveUpDictionary()
+        {
+            values = type.createBlockBuilder(null, MAX_ROWS_PER_PAGE, expectedBytesPerValue);
+            for (int i = 0; i < position; i++) {
+                type.appendTo(dictionary, ids[i], values);
+            }
+            dictionaryIds.clear();
+        }
+
+        private static Slice toSlice(Object value)
+        {
+            return value instanceof Slice ? (Slice) value : utf8Slice(value.toString());
+        }
+
+        @Override
+        public Block build(int positionCount)
+        {
+            Block block;
+            if (values != null) {
+                block = values.build();
+                values = null;
+                expectedBytesPerValue = toIntExact(max(1, block.getSizeInBytes() / positionCount));
+            }
+            else {
+                Block dictionaryBlock = dictionary.build();
+                if (lowCardinality || dictionaryBlock.getPositionCount() * 2 <= positionCount) {
+                    block = new DictionaryBlock(positionCount, dictionaryBlock, ids);
+                    // the block keeps the ids array
+                    ids = new int[MAX_ROWS_PER_PAGE];
+                }
+                else {
+                    block = dictionaryBlock.copyPositions(ids, 0, positionCount);
+                }
+            }
+            dictionary = type.createBlockBuilder(null, EXPECTED_DICTIONARY_SIZE);
+            dictionaryIds.clear();
+            nullId = NO_ID;
+            position = 0;
+            return block;
+        }
+    }
+}
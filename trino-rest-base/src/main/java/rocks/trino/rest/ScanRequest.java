@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.connector.SchemaTableName;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Identifies the rows fetched for a split, so that identical fetches can be shared.
+ */
+public class ScanRequest
+{
+    private final RestTableHandle table;
+    private final RestPartition partition;
+    private final List<RestColumnHandle> columns;
+
+    public ScanRequest(RestTableHandle table, RestPartition partition, List<RestColumnHandle> columns)
+    {
+        this.table = requireNonNull(table, "table is null");
+        this.partition = requireNonNull(partition, "partition is null");
+        this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+    }
+
+    public RestTableHandle getTable()
+    {
+        return table;
+    }
+
+    public SchemaTableName getSchemaTableName()
+    {
+        return table.getSchemaTableName();
+    }
+
+    public RestPartition getPartition()
+    {
+        return partition;
+    }
+
+    public List<RestColumnHandle> getColumns()
+    {
+        return columns;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ScanRequest that = (ScanRequest) o;
+        return Objects.equals(table, that.table) &&
+                Objects.equals(partition, that.partition) &&
+                Objects.equals(columns, that.columns);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(table, partition, columns);
+    }
+
+    @Override
+    public String toString()
+    {
+        return table + ":" + partition + columns.stream()
+                .map(RestColumnHandle::getName)
+                .collect(toImmutableList());
+    }
+}
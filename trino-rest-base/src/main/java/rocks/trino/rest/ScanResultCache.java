@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.trino.spi.connector.SchemaTableName;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps decoded rows of recent scans, so that scans repeated within the TTL (e.g. dashboard
+ * refreshes) skip both the HTTP calls and the decoding. Rows are kept off-heap as {@link ColumnarRows}.
+ * Entries are weighted by their retained size, and the least recently used ones are evicted once the cache is full.
+ */
+public class ScanResultCache
+        implements ScanResultCacheMBean
+{
+    private final Cache<ScanRequest, ColumnarRows> cache;
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    public ScanResultCache(Duration ttl, long maxRetainedBytes)
+    {
+        checkArgument(!ttl.isNegative() && !ttl.isZero(), "ttl must be positive");
+        checkArgument(maxRetainedBytes > 0, "maxRetainedBytes must be positive");
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl.toMillis(), MILLISECONDS)
+                .maximumWeight(maxRetainedBytes)
+                .<ScanRequest, ColumnarRows>weigher((request, rows) -> toIntExact(Math.min(rows.getRetainedSizeInBytes(), Integer.MAX_VALUE)))
+                .removalListener(notification -> retainedBytes.addAndGet(-notification.getValue().getRetainedSizeInBytes()))
+                .recordStats()
+                .build();
+    }
+
+    public ColumnarRows getIfPresent(ScanRequest request)
+    {
+        return cache.getIfPresent(request);
+    }
+
+    public void put(ScanRequest request, ColumnarRows rows)
+    {
+        if (rows.getRetainedSizeInBytes() > maxRetainedBytes) {
+            return;
+        }
+        retainedBytes.addAndGet(rows.getRetainedSizeInBytes());
+        cache.put(request, rows);
+    }
+
+    public void invalidate(SchemaTableName schemaTableName)
+    {
+        cache.asMap().keySet().removeIf(request -> request.getSchemaTableName().equals(schemaTableName));
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long getHitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getEvictionCount()
+    {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getEntryCount()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return retainedBytes.get();
+    }
+
+    @Override
+    public long getMaxRetainedBytes()
+    {
+        return maxRetainedBytes;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks the HTTP calls of a single scan, so they can be cancelled once nobody needs the rows,
+ * e.g. when the query is cancelled, fails elsewhere or a {@code LIMIT} above the scan is satisfied.
+ * Calls are created by {@link HedgingCallFactory} on the thread that runs the scan, which finds its scope
+ * through a thread local, so {@link Rest} implementations do not have to pass it around.
+ * Cancelling the scope cancels the calls in flight, including the ones whose response body is still being read,
+ * and calls executed afterwards fail before they are sent.
+ * Every request the calls send, including hedges and retries, spends the {@link QuotaBudget} of the scan,
+ * and the calls take turns with the calls of other queries in the {@link RequestScheduler} of the catalog.
+ */
+public class ScanScope
+{
+    private static final ThreadLocal<ScanScope> CURRENT = new ThreadLocal<>();
+
+    private final CancellationStats stats;
+    private final QuotaBudget budget;
+    private final Optional<RequestScheduler> scheduler;
+    private final String queryId;
+    private final Set<Call> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile boolean stopped;
+    private volatile long cancelledAtNanos;
+
+    public ScanScope(CancellationStats stats)
+    {
+        this(stats, QuotaBudget.UNLIMITED, Optional.empty(), "");
+    }
+
+    public ScanScope(CancellationStats stats, QuotaBudget budget, Optional<RequestScheduler> scheduler, String queryId)
+    {
+        this.stats = requireNonNull(stats, "stats is null");
+        this.budget = requireNonNull(budget, "budget is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.queryId = requireNonNull(queryId, "queryId is null");
+    }
+
+    /**
+     * Runs {@code action} on the current thread, tracking the calls it makes.
+     */
+    public <T> T run(Supplier<T> action)
+    {
+        ScanScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        }
+        finally {
+            if (previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+            if (cancelled && !stopped) {
+                stats.recordCancellationLatency(System.nanoTime() - cancelledAtNanos);
+            }
+        }
+    }
+
+    public void cancel()
+    {
+        cancel(true);
+    }
+
+    /**
+     * Ends a scan that has read all it needs, e.g. a stream that reached its bound. The calls are cancelled
+     * the same way, but the scan is not counted as cancelled and its calls are not counted as wasted.
+     */
+    public void stop()
+    {
+        cancel(false);
+    }
+
+    private synchronized void cancel(boolean record)
+    {
+        if (cancelled) {
+            return;
+        }
+        cancelledAtNanos = System.nanoTime();
+        stopped = !record;
+        cancelled = true;
+        if (record) {
+            stats.recordCancelledScan();
+        }
+        budget.wakeUp();
+        for (Call call : inFlight) {
+            call.cancel();
+            if (record) {
+                stats.recordWastedRequest();
+            }
+        }
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns {@code request} tagged with the budget of the scope of the current thread, which is charged
+     * by {@link QuotaBudget#intercept} on whichever thread sends it, or {@code request} itself when there is none.
+     */
+    static Request tag(Request request)
+    {
+        ScanScope scope = CURRENT.get();
+        if (scope == null) {
+            return request;
+        }
+        return request.newBuilder()
+                .tag(QuotaBudget.class, scope.budget)
+                .build();
+    }
+
+    /**
+     * Returns a call tracked by the scope of the current thread, or {@code call} itself when there is none.
+     */
+    static Call track(Call call)
+    {
+        ScanScope scope = CURRENT.get();
+        if (scope == null) {
+            return call;
+        }
+        return scope.new TrackedCall(call);
+    }
+
+    private class TrackedCall
+            implements Call
+    {
+        private final Call delegate;
+
+        TrackedCall(Call delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Request request()
+        {
+            return delegate.request();
+        }
+
+        @Override
+        public Response execute()
+                throws IOException
+        {
+            // the lease is waited for before taking a turn in the scheduler, so that a spent lease does not hold up other queries
+            if (!cancelled) {
+                budget.acquire(() -> cancelled);
+            }
+            if (cancelled) {
+                stats.recordSkippedRequest();
+                throw new IOException("Canceled");
+            }
+            if (scheduler.isPresent()) {
+                scheduler.get().acquire(queryId);
+            }
+            inFlight.add(delegate);
+            boolean reading = false;
+            try {
+                // the scope may have been cancelled before this call was added
+                if (cancelled) {
+                    delegate.cancel();
+                }
+                Response response = delegate.execute();
+                ResponseBody body = response.body();
+                if (body == null) {
+                    return response;
+                }
+                // the body is read after the call returns, e.g. a stream, so the call stays cancellable until the body is closed
+                reading = true;
+                return response.newBuilder()
+                        .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(new ForwardingSource(body.source())
+                        {
+                            @Override
+                            public void close()
+                                    throws IOException
+                            {
+                                try {
+                                    super.close();
+                                }
+                                finally {
+                                    inFlight.remove(delegate);
+                                }
+                            }
+                        })))
+                        .build();
+            }
+            finally {
+                if (!reading) {
+                    inFlight.remove(delegate);
+                }
+                scheduler.ifPresent(RequestScheduler::release);
+            }
+        }
+
+        @Override
+        public void enqueue(Callback callback)
+        {
+            delegate.enqueue(callback);
+        }
+
+        @Override
+        public void cancel()
+        {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isExecuted()
+        {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public boolean isCanceled()
+        {
+            return delegate.isCanceled();
+        }
+
+        @Override
+        public Timeout timeout()
+        {
+            return delegate.timeout();
+        }
+
+        @Override
+        public Call clone()
+        {
+            return new TrackedCall(delegate.clone());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+/**
+ * Runs at most one load per key at a time. Callers that ask for a key while a load of it is
+ * in flight wait for that load and share its result (or its failure) instead of starting their own.
+ * Results are not retained once the load finishes. A load that fails with a {@link CancellationException}
+ * was abandoned by its own caller, which says nothing about the key, so the waiters start a new load.
+ */
+public class SingleFlight<K, V>
+{
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Supplier<V> loader)
+    {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                break;
+            }
+            coalesced.incrementAndGet();
+            try {
+                return await(existing);
+            }
+            catch (CancellationException e) {
+                // the caller that started the load gave up on it, start a new one unless another waiter already did
+                inFlight.remove(key, existing);
+            }
+        }
+
+        loads.incrementAndGet();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public long getLoadCount()
+    {
+        return loads.get();
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    private static <V> V await(CompletableFuture<V> future)
+    {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
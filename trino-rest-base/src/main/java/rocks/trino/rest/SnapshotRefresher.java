@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps an immutable snapshot of remote metadata (e.g. listings of channels or users) and reloads it
+ * in the background. Readers only do a volatile read, so they never block on a refresh.
+ * A reloaded snapshot replaces the current one only when it differs from it, and the differences are
+ * logged. A failed reload is logged and keeps serving the previous snapshot.
+ */
+public class SnapshotRefresher<T>
+        implements SnapshotRefresherMBean
+{
+    private static final Logger log = Logger.getLogger(SnapshotRefresher.class.getName());
+
+    private final String name;
+    private final Supplier<T> loader;
+    private final BiFunction<T, T, String> describeChanges;
+    private final long intervalMillis;
+    private final double jitter;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile T snapshot;
+    private volatile String lastChange = "";
+
+    /**
+     * {@code describeChanges} tells what differs between the previous and the reloaded snapshot, e.g. the keys
+     * added to and removed from a listing (see {@link #describeChanges(String, Collection, Collection)}).
+     */
+    public SnapshotRefresher(String name, Supplier<T> loader, BiFunction<T, T, String> describeChanges, Duration interval, double jitter)
+    {
+        checkArgument(!interval.isNegative() && !interval.isZero(), "interval must be positive");
+        checkArgument(jitter >= 0 && jitter < 1, "jitter must be in [0, 1)");
+        this.name = requireNonNull(name, "name is null");
+        this.loader = requireNonNull(loader, "loader is null");
+        this.describeChanges = requireNonNull(describeChanges, "describeChanges is null");
+        this.intervalMillis = interval.toMillis();
+        this.jitter = jitter;
+        // initial load is synchronous, so a misconfigured catalog fails at creation time
+        this.snapshot = requireNonNull(loader.get(), "loaded snapshot is null");
+        this.executor = newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(name + "-refresher-%s")
+                .setDaemon(true)
+                .build());
+        scheduleNext();
+    }
+
+    public T get()
+    {
+        return snapshot;
+    }
+
+    @Override
+    public long getRefreshCount()
+    {
+        return refreshes.get();
+    }
+
+    @Override
+    public long getChangeCount()
+    {
+        return changes.get();
+    }
+
+    @Override
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    @Override
+    public String getLastChange()
+    {
+        return lastChange;
+    }
+
+    /**
+     * Describes the elements added to and removed from a listing, e.g. {@code channels +[random] -[old]},
+     * or returns an empty string when there are none.
+     */
+    public static String describeChanges(String label, Collection<?> previous, Collection<?> current)
+    {
+        Set<?> previousSet = ImmutableSet.copyOf(previous);
+        Set<?> currentSet = ImmutableSet.copyOf(current);
+        Set<?> added = Sets.difference(currentSet, previousSet);
+        Set<?> removed = Sets.difference(previousSet, currentSet);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(label);
+        if (!added.isEmpty()) {
+            result.append(" +").append(added);
+        }
+        if (!removed.isEmpty()) {
+            result.append(" -").append(removed);
+        }
+        return result.toString();
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    private void scheduleNext()
+    {
+        executor.schedule(this::refresh, getDelayMillis(intervalMillis, jitter, ThreadLocalRandom.current().nextDouble()), MILLISECONDS);
+    }
+
+    /**
+     * Delay of the next refresh for a {@code random} value in [0, 1), within {@code intervalMillis * (1 ± jitter)},
+     * which spreads the refreshes of catalogs created at the same time.
+     */
+    static long getDelayMillis(long intervalMillis, double jitter, double random)
+    {
+        return (long) (intervalMillis * (1 + jitter * (random * 2 - 1)));
+    }
+
+    private void refresh()
+    {
+        try {
+            T loaded = requireNonNull(loader.get(), "loaded snapshot is null");
+            refreshes.incrementAndGet();
+            T previous = snapshot;
+            if (!loaded.equals(previous)) {
+                lastChange = describeChanges.apply(previous, loaded);
+                snapshot = loaded;
+                changes.incrementAndGet();
+                log.info(format("Refreshed %s: %s", name, lastChange));
+            }
+        }
+        catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.log(Level.WARNING, format("Failed to refresh %s, keeping the previous snapshot", name), e);
+        }
+        finally {
+            if (!executor.isShutdown()) {
+                scheduleNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+public interface SnapshotRefresherMBean
+{
+    /**
+     * Background reloads that succeeded, whether or not the snapshot changed.
+     */
+    long getRefreshCount();
+
+    /**
+     * Reloads that replaced the snapshot, because it differed from the previous one.
+     */
+    long getChangeCount();
+
+    /**
+     * Reloads that failed, so the previous snapshot was kept.
+     */
+    long getFailureCount();
+
+    /**
+     * What differed between the last two snapshots, e.g. the channels that were added or removed.
+     */
+    String getLastChange();
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import io.trino.spi.Page;
+import io.trino.spi.connector.ConnectorPageSource;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Returns the pages of a stream as they arrive. The thread reading the stream {@link #add adds} pages, and
+ * blocks once {@code maxBufferedPages} are waiting to be read, so a slow query does not buffer an unbounded
+ * stream. Until a page arrives, the page source is blocked and does not hold a driver thread. Closing it
+ * before the stream ends stops the stream, e.g. once a {@code LIMIT} above the scan is satisfied.
+ */
+public class StreamingPageSource
+        implements ConnectorPageSource
+{
+    private final int maxBufferedPages;
+    private final Runnable stop;
+    private final Queue<Page> pages = new ArrayDeque<>();
+    private CompletableFuture<?> pageAdded = new CompletableFuture<>();
+    private long bufferedBytes;
+    private boolean finished;
+    private Throwable failure;
+    private boolean closed;
+    private long completedBytes;
+    private long readTimeNanos;
+
+    public StreamingPageSource(int maxBufferedPages, Runnable stop)
+    {
+        checkArgument(maxBufferedPages > 0, "maxBufferedPages must be positive");
+        this.maxBufferedPages = maxBufferedPages;
+        this.stop = requireNonNull(stop, "stop is null");
+    }
+
+    /**
+     * Called by the thread reading the stream. Pages added after the page source was closed are dropped.
+     */
+    public void add(Page page)
+    {
+        CompletableFuture<?> added;
+        synchronized (this) {
+            while (pages.size() >= maxBufferedPages && !closed) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    // the stream is interrupted only once nobody reads it anymore
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (closed) {
+                return;
+            }
+            pages.add(page);
+            bufferedBytes += page.getSizeInBytes();
+            added = pageAdded;
+        }
+        added.complete(null);
+    }
+
+    /**
+     * Called by the thread reading the stream once it ended, with the {@code failure} it ended with, if any.
+     */
+    public void finish(Throwable failure)
+    {
+        CompletableFuture<?> added;
+        synchronized (this) {
+            this.finished = true;
+            this.failure = failure;
+            added = pageAdded;
+        }
+        added.complete(null);
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return completedBytes;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return readTimeNanos;
+    }
+
+    @Override
+    public synchronized boolean isFinished()
+    {
+        // a failure is thrown by the next call to getNextPage
+        return closed || (finished && pages.isEmpty() && failure == null);
+    }
+
+    @Override
+    public synchronized CompletableFuture<?> isBlocked()
+    {
+        if (!pages.isEmpty() || finished || closed) {
+            return NOT_BLOCKED;
+        }
+        if (pageAdded.isDone()) {
+            pageAdded = new CompletableFuture<>();
+        }
+        return pageAdded;
+    }
+
+    @Override
+    public synchronized Page getNextPage()
+    {
+        long start = System.nanoTime();
+        Page page = pages.poll();
+        if (page == null) {
+            if (failure != null) {
+                throwIfUnchecked(failure);
+                throw new RuntimeException(failure);
+            }
+            return null;
+        }
+        bufferedBytes -= page.getSizeInBytes();
+        // there is room for another page
+        notifyAll();
+        readTimeNanos += System.nanoTime() - start;
+        completedBytes += page.getSizeInBytes();
+        return page;
+    }
+
+    @Override
+    public synchronized long getSystemMemoryUsage()
+    {
+        return bufferedBytes;
+    }
+
+    @Override
+    public void close()
+    {
+        CompletableFuture<?> added;
+        boolean running;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = !finished;
+            pages.clear();
+            bufferedBytes = 0;
+            notifyAll();
+            added = pageAdded;
+        }
+        added.complete(null);
+        if (running) {
+            stop.run();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static rocks.trino.rest.CircuitBreaker.State.CLOSED;
+import static rocks.trino.rest.CircuitBreaker.State.HALF_OPEN;
+import static rocks.trino.rest.CircuitBreaker.State.OPEN;
+
+public class TestCircuitBreaker
+{
+    @Test
+    public void testStates()
+    {
+        AtomicLong nanos = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        });
+
+        assertTrue(breaker.tryAcquire());
+        breaker.recordFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals(breaker.getState(), CLOSED);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(breaker.getState(), OPEN);
+        assertFalse(breaker.tryAcquire());
+
+        // a single trial request after the open duration
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(breaker.getState(), HALF_OPEN);
+        assertFalse(breaker.tryAcquire());
+
+        // a failed trial opens the breaker right away
+        breaker.recordFailure();
+        assertEquals(breaker.getState(), OPEN);
+        assertFalse(breaker.tryAcquire());
+
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals(breaker.getState(), CLOSED);
+        assertTrue(breaker.tryAcquire());
+    }
+}
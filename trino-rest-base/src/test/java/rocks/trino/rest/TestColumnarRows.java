@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.DictionaryBlock;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestColumnarRows
+{
+    private static final List<Type> TYPES = ImmutableList.of(createUnboundedVarcharType(), BIGINT, DOUBLE, BOOLEAN);
+    private static final List<List<?>> ROWS = ImmutableList.of(
+            Arrays.asList("open", 1L, 1.5, true),
+            Arrays.asList("closed", null, 2.5, false),
+            Arrays.asList(null, 3L, null, null),
+            Arrays.asList("open", 4L, -1.0, true),
+            Arrays.asList("open", 5L, 0.0, false));
+
+    @Test
+    public void testRoundTrip()
+    {
+        ColumnarRows columnarRows = ColumnarRows.encode(TYPES, TestRowPageBuilder.buildPages(TYPES, ROWS));
+        assertEquals(columnarRows.getPositionCount(), ROWS.size());
+
+        Iterator<Page> pages = columnarRows.getPages(2);
+        int row = 0;
+        while (pages.hasNext()) {
+            Page page = pages.next();
+            assertTrue(page.getPositionCount() <= 2);
+            assertTrue(page.getBlock(0) instanceof DictionaryBlock);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(getValues(TYPES, page, position), ROWS.get(row));
+                row++;
+            }
+        }
+        assertEquals(row, ROWS.size());
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        ColumnarRows columnarRows = ColumnarRows.encode(TYPES, ImmutableList.of());
+        assertFalse(columnarRows.getPages(10).hasNext());
+    }
+
+    static List<?> getValues(List<Type> types, Page page, int position)
+    {
+        Object[] values = new Object[types.size()];
+        for (int field = 0; field < values.length; field++) {
+            Block block = page.getBlock(field);
+            if (!block.isNull(position)) {
+                values[field] = types.get(field).getObjectValue(null, block, position);
+            }
+        }
+        return Arrays.asList(values);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import retrofit2.Call;
+import retrofit2.http.GET;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+
+public class TestCompressionInterceptor
+{
+    private static final String BODY = "{\"messages\": [" + "\"hello\", ".repeat(1000) + "\"bye\"]}";
+
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (OutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(BODY.getBytes(UTF_8));
+            }
+            respond(exchange, "gzip", out.toByteArray());
+        });
+        server.createContext("/deflate", exchange -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (OutputStream deflate = new DeflaterOutputStream(out)) {
+                deflate.write(BODY.getBytes(UTF_8));
+            }
+            respond(exchange, "deflate", out.toByteArray());
+        });
+        server.createContext("/identity", exchange -> respond(exchange, null, BODY.getBytes(UTF_8)));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDecompression()
+            throws IOException
+    {
+        OkHttpClient client = HttpClients.newClientBuilder(HttpClientConfig.DEFAULT).build();
+        for (String path : new String[] {"/gzip", "/deflate", "/identity"}) {
+            try (Response response = client.newCall(new Request.Builder().url(baseUrl + path).build()).execute()) {
+                assertNull(response.header("Content-Encoding"));
+                assertEquals(response.body().string(), BODY, path);
+            }
+        }
+        assertEquals(acceptEncoding.get(), "gzip, deflate");
+    }
+
+    @Test
+    public void testMaxBodySize()
+    {
+        // compressed bodies are smaller than the limit, but not once decompressed
+        OkHttpClient client = HttpClients.newClientBuilder(HttpClientConfig.fromConfig(ImmutableMap.of("max_response_size", (BODY.length() - 1) + "B"))).build();
+        for (String path : new String[] {"/gzip", "/deflate", "/identity"}) {
+            assertThrows(IOException.class, () -> {
+                try (Response response = client.newCall(new Request.Builder().url(baseUrl + path).build()).execute()) {
+                    response.body().string();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testJsonDecoding()
+            throws IOException
+    {
+        TestService service = HttpClients.createService(TestService.class, baseUrl, HttpClients.newClientBuilder(HttpClientConfig.DEFAULT).build(), HttpClientConfig.DEFAULT);
+        Map<String, List<String>> result = service.get().execute().body();
+        assertEquals(result.get("messages").size(), 1001);
+        assertEquals(result.get("messages").get(1000), "bye");
+    }
+
+    public interface TestService
+    {
+        @GET("/gzip")
+        Call<Map<String, List<String>>> get();
+    }
+
+    private static void respond(HttpExchange exchange, String encoding, byte[] body)
+            throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
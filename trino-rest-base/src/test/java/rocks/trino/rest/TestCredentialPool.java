@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestCredentialPool
+{
+    private static final List<String> TOKENS = ImmutableList.of("a", "b", "c");
+    private static final long QUOTA = 100;
+
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final Set<String> exhausted = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nanos = new AtomicLong();
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String token = exchange.getRequestHeaders().getFirst("X-Token");
+            long count = requests.computeIfAbsent(token, ignored -> new AtomicLong()).incrementAndGet();
+            byte[] body = token.getBytes(UTF_8);
+            if (exhausted.contains(token)) {
+                exchange.getResponseHeaders().add("Retry-After", "60");
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", String.valueOf(QUOTA - count));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void reset()
+    {
+        requests.clear();
+        exhausted.clear();
+    }
+
+    @Test
+    public void testRequestsAreSpread()
+            throws IOException
+    {
+        OkHttpClient client = createClient(createPool());
+        for (int i = 0; i < 30; i++) {
+            get(client);
+        }
+        for (String token : TOKENS) {
+            assertEquals(requests.get(token).get(), 10, token);
+        }
+    }
+
+    @Test
+    public void testExhaustedCredentialIsSkipped()
+            throws IOException
+    {
+        CredentialPool pool = createPool();
+        OkHttpClient client = createClient(pool);
+        exhausted.add("a");
+        for (int i = 0; i < 10; i++) {
+            try (Response response = get(client)) {
+                assertEquals(response.code(), 200);
+            }
+        }
+        // the exhausted credential is tried once, and skipped until its quota resets
+        assertEquals(requests.get("a").get(), 1);
+        assertEquals(requests.get("b").get() + requests.get("c").get(), 10);
+        assertEquals(pool.getRotationCount(), 1);
+        assertEquals(pool.getAvailableCount(), 2);
+
+        nanos.addAndGet(SECONDS.toNanos(60));
+        assertEquals(pool.getAvailableCount(), 3);
+    }
+
+    @Test
+    public void testAllCredentialsExhausted()
+            throws IOException
+    {
+        CredentialPool pool = createPool();
+        OkHttpClient client = createClient(pool);
+        exhausted.addAll(TOKENS);
+        try (Response response = get(client)) {
+            assertEquals(response.code(), 429);
+        }
+        assertEquals(pool.getAvailableCount(), 0);
+        assertEquals(pool.getRotationCount(), 2);
+    }
+
+    @Test
+    public void testWritesUseFirstCredential()
+            throws IOException
+    {
+        OkHttpClient client = createClient(createPool());
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(MediaType.get("text/plain"), "text"))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals(response.body().string(), "a");
+            }
+        }
+        assertEquals(requests.keySet(), Set.of("a"));
+    }
+
+    private CredentialPool createPool()
+    {
+        Ticker ticker = new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        };
+        return new CredentialPool(
+                TOKENS.stream()
+                        .map(token -> (Interceptor) chain -> chain.proceed(chain.request().newBuilder()
+                                .header("X-Token", token)
+                                .build()))
+                        .collect(toImmutableList()),
+                ticker);
+    }
+
+    private static OkHttpClient createClient(CredentialPool pool)
+    {
+        return new OkHttpClient.Builder()
+                .addInterceptor(pool)
+                .build();
+    }
+
+    private Response get(OkHttpClient client)
+            throws IOException
+    {
+        Response response = client.newCall(new Request.Builder().url(url).build()).execute();
+        response.body().close();
+        return response;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestHedgingCallFactory
+{
+    private static final long SLOW_MILLIS = 1000;
+
+    private final AtomicBoolean slowNext = new AtomicBoolean();
+    private ExecutorService executor;
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        executor = newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            if (slowNext.compareAndSet(true, false)) {
+                sleepUninterruptibly(SLOW_MILLIS, MILLISECONDS);
+            }
+            byte[] body = "ok".getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSlowResponseIsHedged()
+            throws IOException
+    {
+        HedgingCallFactory factory = createFactory(0.5);
+        warmUp(factory);
+
+        slowNext.set(true);
+        long start = System.nanoTime();
+        assertEquals(get(factory), "ok");
+        assertTrue(System.nanoTime() - start < MILLISECONDS.toNanos(SLOW_MILLIS));
+        assertEquals(factory.getHedgeCount(), 1);
+        assertEquals(factory.getHedgeWinCount(), 1);
+    }
+
+    @Test
+    public void testHedgesAreCapped()
+            throws IOException
+    {
+        // 20 requests to learn the latency allow a single hedge with a 5% cap
+        HedgingCallFactory factory = createFactory(0.05);
+        warmUp(factory);
+
+        slowNext.set(true);
+        assertEquals(get(factory), "ok");
+        slowNext.set(true);
+        assertEquals(get(factory), "ok");
+        assertEquals(factory.getRequestCount(), 22);
+        assertEquals(factory.getHedgeCount(), 1);
+    }
+
+    private static HedgingCallFactory createFactory(double maxRatio)
+    {
+        HttpClientConfig config = HttpClientConfig.fromConfig(ImmutableMap.of(
+                "hedge_quantile", "0.9",
+                "hedge_max_ratio", String.valueOf(maxRatio),
+                "hedge_min_delay", "50ms"));
+        OkHttpClient client = HttpClients.newClientBuilder(config).build();
+        return new HedgingCallFactory(client, config);
+    }
+
+    private void warmUp(HedgingCallFactory factory)
+            throws IOException
+    {
+        for (int i = 0; i < 20; i++) {
+            get(factory);
+        }
+        assertEquals(factory.getHedgeCount(), 0);
+    }
+
+    private String get(HedgingCallFactory factory)
+            throws IOException
+    {
+        try (Response response = factory.newCall(new Request.Builder().url(url).build()).execute()) {
+            return response.body().string();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestQuotaLedger
+{
+    private static final long RESET = 1_000_000;
+
+    @Test
+    public void testQuotaIsSharedOut()
+    {
+        QuotaLedger ledger = new QuotaLedger(100);
+        assertEquals(sizes(ledger.lease("query", new QuotaLease(10, RESET), 4)), ImmutableList.of(3L, 3L, 2L, 2L));
+        // the first leases count as spent, even though the API still reports the same remaining quota
+        assertEquals(sizes(ledger.lease("query", new QuotaLease(10, RESET), 2)), ImmutableList.of(0L, 0L));
+        assertEquals(ledger.getLeasedRequestCount(), 10);
+        assertEquals(ledger.getEmptyLeaseCount(), 2);
+
+        // a new window
+        assertEquals(sizes(ledger.lease("query", new QuotaLease(10, RESET + 1), 2)), ImmutableList.of(5L, 5L));
+        assertEquals(ledger.getLeaseCount(), 8);
+    }
+
+    @Test
+    public void testSpentLeasesAreNotCountedTwice()
+    {
+        QuotaLedger ledger = new QuotaLedger(3);
+        assertEquals(sizes(ledger.lease("a", new QuotaLease(10, RESET), 1)), ImmutableList.of(3L));
+        // the lease of the first query is partly spent, which the remaining quota already accounts for
+        assertEquals(sizes(ledger.lease("b", new QuotaLease(8, RESET), 3)), ImmutableList.of(3L, 2L, 2L));
+    }
+
+    @Test
+    public void testManySmallQueries()
+    {
+        QuotaLedger ledger = new QuotaLedger(100);
+        long remaining = 5000;
+        // each query has a single split, which sends a single request of its lease
+        for (int query = 0; query < 500; query++) {
+            assertEquals(sizes(ledger.lease("query" + query, new QuotaLease(remaining, RESET), 1)), ImmutableList.of(100L));
+            remaining--;
+            ledger.release("query" + query);
+        }
+        assertEquals(ledger.getEmptyLeaseCount(), 0);
+
+        // the unspent leases of running queries stay outstanding
+        assertEquals(remaining, 4500);
+        assertEquals(sizes(ledger.lease("running", new QuotaLease(remaining, RESET), 45)), nCopies(45, 100L));
+        assertEquals(sizes(ledger.lease("other", new QuotaLease(remaining, RESET), 1)), ImmutableList.of(0L));
+        ledger.release("running");
+        assertEquals(sizes(ledger.lease("other", new QuotaLease(remaining, RESET), 1)), ImmutableList.of(100L));
+    }
+
+    @Test
+    public void testLeasesAreCapped()
+    {
+        QuotaLedger ledger = new QuotaLedger(5);
+        assertEquals(sizes(ledger.lease("query", new QuotaLease(1000, RESET), 3)), ImmutableList.of(5L, 5L, 5L));
+        assertEquals(sizes(ledger.lease("query", new QuotaLease(1000, RESET), 1)), ImmutableList.of(5L));
+        assertEquals(ledger.getLeasedRequestCount(), 20);
+    }
+
+    @Test
+    public void testBudget()
+            throws IOException
+    {
+        QuotaLedger ledger = new QuotaLedger(100);
+        long resetEpochMillis = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        QuotaBudget budget = new QuotaBudget(Optional.of(new QuotaLease(2, resetEpochMillis)), Duration.ofMinutes(1), ledger);
+        budget.acquire();
+        budget.charge();
+        budget.acquire();
+        budget.charge();
+        // the window resets too late to wait for it
+        expectThrows(IOException.class, budget::acquire);
+        assertEquals(ledger.getExhaustedLeaseCount(), 1);
+
+        // spent leases wait for the window to reset
+        budget = new QuotaBudget(Optional.of(new QuotaLease(0, System.currentTimeMillis() + 50)), Duration.ofMinutes(1), ledger);
+        long start = System.nanoTime();
+        budget.acquire();
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(40).toNanos());
+        assertEquals(ledger.getLeaseWaitCount(), 1);
+
+        // requests of splits without a lease are not limited
+        QuotaBudget.UNLIMITED.acquire();
+    }
+
+    private static List<Long> sizes(List<QuotaLease> leases)
+    {
+        return leases.stream()
+                .map(QuotaLease::getRequests)
+                .collect(toList());
+    }
+}
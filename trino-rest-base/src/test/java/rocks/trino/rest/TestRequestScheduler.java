@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import org.testng.annotations.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class TestRequestScheduler
+{
+    @Test
+    public void testConcurrencyIsLimited()
+            throws Exception
+    {
+        RequestScheduler scheduler = new RequestScheduler(2);
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            scheduler.acquire("a");
+            scheduler.acquire("b");
+            Future<?> third = executor.submit(() -> acquire(scheduler, "c"));
+            waitForWaiting(scheduler, 1);
+            assertFalse(third.isDone());
+            assertEquals(scheduler.getRunningRequestCount(), 2);
+
+            scheduler.release();
+            third.get();
+            assertEquals(scheduler.getRunningRequestCount(), 2);
+            assertEquals(scheduler.getQueuedRequestCount(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueryWithFewestRequestsGoesFirst()
+            throws Exception
+    {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        LinkedBlockingQueue<String> order = new LinkedBlockingQueue<>();
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            scheduler.acquire("crawl");
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                requests.add(executor.submit(() -> send(scheduler, "crawl", order)));
+            }
+            waitForWaiting(scheduler, 3);
+            requests.add(executor.submit(() -> send(scheduler, "interactive", order)));
+            waitForWaiting(scheduler, 4);
+
+            // the interactive query did not send anything yet, so it does not wait behind the crawl
+            scheduler.release();
+            for (Future<?> request : requests) {
+                request.get();
+            }
+            assertEquals(order.take(), "interactive");
+            assertEquals(order.size(), 3);
+            assertEquals(scheduler.getRunningRequestCount(), 0);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptedWaiterIsRemoved()
+            throws Exception
+    {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            scheduler.acquire("a");
+            Future<?> waiter = executor.submit(() -> acquire(scheduler, "b"));
+            waitForWaiting(scheduler, 1);
+            waiter.cancel(true);
+            while (scheduler.getWaitingRequestCount() > 0) {
+                Thread.sleep(1);
+            }
+            scheduler.release();
+            assertEquals(scheduler.getRunningRequestCount(), 0);
+            scheduler.acquire("c");
+            assertEquals(scheduler.getRunningRequestCount(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void send(RequestScheduler scheduler, String queryId, LinkedBlockingQueue<String> order)
+    {
+        acquire(scheduler, queryId);
+        order.add(queryId);
+        scheduler.release();
+    }
+
+    private static void acquire(RequestScheduler scheduler, String queryId)
+    {
+        try {
+            scheduler.acquire(queryId);
+        }
+        catch (InterruptedIOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitForWaiting(RequestScheduler scheduler, int count)
+            throws InterruptedException
+    {
+        while (scheduler.getWaitingRequestCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+}
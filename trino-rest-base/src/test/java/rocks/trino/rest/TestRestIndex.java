@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.trino.spi.Page;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorPageSource;
+import io.trino.spi.connector.ConnectorTableMetadata;
+import io.trino.spi.connector.InMemoryRecordSet;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestRestIndex
+{
+    private static final SchemaTableName USERS = new SchemaTableName("default", "users");
+    private static final RestColumnHandle ID = new RestColumnHandle("id", BIGINT);
+    private static final RestColumnHandle NAME = new RestColumnHandle("name", createUnboundedVarcharType());
+    private static final RestColumnHandle FOLLOWERS = new RestColumnHandle("followers", BIGINT);
+
+    @Test
+    public void testResolveIndex()
+    {
+        RestMetadata metadata = new RestMetadata(new UsersRest());
+        RestTableHandle table = new RestTableHandle(USERS);
+        assertEquals(
+                metadata.resolveIndex(null, table, ImmutableSet.of(ID), ImmutableSet.of(ID, NAME), TupleDomain.all()).get().getIndexHandle(),
+                new RestIndexHandle(USERS, "id"));
+        assertFalse(metadata.resolveIndex(null, table, ImmutableSet.of(FOLLOWERS), ImmutableSet.of(ID), TupleDomain.all()).isPresent());
+        assertFalse(metadata.resolveIndex(null, table, ImmutableSet.of(ID, NAME), ImmutableSet.of(ID), TupleDomain.all()).isPresent());
+    }
+
+    @Test
+    public void testLookup()
+    {
+        UsersRest rest = new UsersRest();
+        RestIndex index = (RestIndex) new RestIndexProvider(rest).getIndex(null, null, new RestIndexHandle(USERS, "id"), ImmutableList.of(ID), ImmutableList.of(NAME, ID));
+
+        // duplicates and nulls are looked up once, and unknown keys are skipped
+        assertEquals(lookup(index, BIGINT, 2L, 1L, 2L, null, 7L), ImmutableList.of(
+                Arrays.asList("bob", 2L),
+                Arrays.asList("alice", 1L)));
+        assertEquals(rest.lookups, ImmutableList.of(ImmutableList.of(2L, 1L, 7L)));
+
+        // keys seen before, including the unknown ones, are not looked up again
+        assertEquals(lookup(index, BIGINT, 7L, 3L, 1L), ImmutableList.of(
+                Arrays.asList("carol", 3L),
+                Arrays.asList("alice", 1L)));
+        assertEquals(rest.lookups, ImmutableList.of(ImmutableList.of(2L, 1L, 7L), ImmutableList.of(3L)));
+    }
+
+    @Test
+    public void testLookupByVarchar()
+    {
+        UsersRest rest = new UsersRest();
+        RestIndex index = (RestIndex) new RestIndexProvider(rest).getIndex(null, null, new RestIndexHandle(USERS, "name"), ImmutableList.of(NAME), ImmutableList.of(FOLLOWERS, NAME));
+
+        assertEquals(lookup(index, createUnboundedVarcharType(), "carol", "dave"), ImmutableList.of(Arrays.asList(30L, "carol")));
+        assertEquals(rest.lookups, ImmutableList.of(ImmutableList.of("carol", "dave")));
+    }
+
+    private static List<List<?>> lookup(RestIndex index, Type keyType, Object... keys)
+    {
+        List<List<?>> records = new ArrayList<>();
+        for (Object key : keys) {
+            records.add(Arrays.asList(key));
+        }
+        ConnectorPageSource pageSource = index.lookup(new InMemoryRecordSet(ImmutableList.of(keyType), records));
+        List<List<?>> rows = new ArrayList<>();
+        while (!pageSource.isFinished()) {
+            Page page = pageSource.getNextPage();
+            List<Type> types = ImmutableList.of(keyType.equals(BIGINT) ? createUnboundedVarcharType() : BIGINT, keyType);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                rows.add(TestColumnarRows.getValues(types, page, position));
+            }
+        }
+        assertTrue(pageSource.isFinished());
+        return rows;
+    }
+
+    private static class UsersRest
+            implements Rest
+    {
+        private static final Map<Long, List<?>> USERS_BY_ID = ImmutableMap.of(
+                1L, ImmutableList.of(1L, "alice", 10L),
+                2L, ImmutableList.of(2L, "bob", 20L),
+                3L, ImmutableList.of(3L, "carol", 30L));
+
+        private final List<List<Object>> lookups = new ArrayList<>();
+
+        @Override
+        public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
+        {
+            return new ConnectorTableMetadata(schemaTableName, ImmutableList.of(
+                    new ColumnMetadata("id", BIGINT),
+                    new ColumnMetadata("name", createUnboundedVarcharType()),
+                    new ColumnMetadata("followers", BIGINT)));
+        }
+
+        @Override
+        public List<String> listSchemas()
+        {
+            return ImmutableList.of("default");
+        }
+
+        @Override
+        public List<SchemaTableName> listTables(String schema)
+        {
+            return ImmutableList.of(USERS);
+        }
+
+        @Override
+        public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
+        {
+            throw new IllegalStateException("Users can only be looked up");
+        }
+
+        @Override
+        public Set<String> getIndexColumns(SchemaTableName schemaTableName)
+        {
+            return ImmutableSet.of("id", "name");
+        }
+
+        @Override
+        public void lookupRows(SchemaTableName schemaTableName, String keyColumn, List<Object> keys, List<RestColumnHandle> columns, RowBuffer rows)
+        {
+            lookups.add(ImmutableList.copyOf(keys));
+            for (List<?> user : USERS_BY_ID.values()) {
+                if (keys.contains(user.get(keyColumn.equals("id") ? 0 : 1))) {
+                    rows.setValues(user);
+                    rows.endRow();
+                }
+            }
+        }
+
+        @Override
+        public Consumer<List> createRowSink(SchemaTableName schemaTableName)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
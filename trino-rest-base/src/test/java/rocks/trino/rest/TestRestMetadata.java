@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.trino.spi.connector.AggregateFunction;
+import io.trino.spi.connector.AggregationApplicationResult;
+import io.trino.spi.connector.ColumnHandle;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorTableHandle;
+import io.trino.spi.connector.ConnectorTableMetadata;
+import io.trino.spi.connector.Constraint;
+import io.trino.spi.connector.ConstraintApplicationResult;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.connector.SortItem;
+import io.trino.spi.connector.SortOrder;
+import io.trino.spi.connector.TopNApplicationResult;
+import io.trino.spi.expression.Variable;
+import io.trino.spi.predicate.Domain;
+import io.trino.spi.predicate.TupleDomain;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestRestMetadata
+{
+    private static final SchemaTableName COUNTABLE = new SchemaTableName("default", "countable");
+    private static final SchemaTableName OTHER = new SchemaTableName("default", "other");
+    private static final AggregateFunction COUNT_ALL = new AggregateFunction("count", BIGINT, ImmutableList.of(), ImmutableList.of(), false, Optional.empty());
+    private static final RestColumnHandle ID = new RestColumnHandle("id", BIGINT);
+    private static final RestColumnHandle NAME = new RestColumnHandle("name", BIGINT);
+
+    private final RestMetadata metadata = new RestMetadata(new CountingRest());
+
+    @Test
+    public void testCountPushdown()
+    {
+        Optional<AggregationApplicationResult<ConnectorTableHandle>> result = applyAggregation(new RestTableHandle(COUNTABLE), COUNT_ALL, ImmutableList.of(ImmutableList.of()));
+        assertTrue(result.isPresent());
+        RestTableHandle handle = (RestTableHandle) result.get().getHandle();
+        assertEquals(handle.getSchemaTableName(), COUNTABLE);
+        assertTrue(handle.isCountOnly());
+        assertEquals(result.get().getProjections().size(), 1);
+        Variable projection = (Variable) result.get().getProjections().get(0);
+        assertEquals(result.get().getAssignments().get(0).getVariable(), projection.getName());
+        assertEquals(result.get().getAssignments().get(0).getType(), BIGINT);
+
+        // the count is already pushed down
+        assertFalse(applyAggregation(handle, COUNT_ALL, ImmutableList.of(ImmutableList.of())).isPresent());
+    }
+
+    @Test
+    public void testUnsupportedAggregations()
+    {
+        RestTableHandle table = new RestTableHandle(COUNTABLE);
+        assertFalse(applyAggregation(new RestTableHandle(OTHER), COUNT_ALL, ImmutableList.of(ImmutableList.of())).isPresent());
+        assertFalse(applyAggregation(table, COUNT_ALL, ImmutableList.of(ImmutableList.of(ID))).isPresent());
+        assertFalse(applyAggregation(
+                table,
+                new AggregateFunction("count", BIGINT, ImmutableList.of(new Variable("id", BIGINT)), ImmutableList.of(), false, Optional.empty()),
+                ImmutableList.of(ImmutableList.of())).isPresent());
+        assertFalse(applyAggregation(
+                table,
+                new AggregateFunction("count", BIGINT, ImmutableList.of(), ImmutableList.of(), false, Optional.of(new Variable("flag", BOOLEAN))),
+                ImmutableList.of(ImmutableList.of())).isPresent());
+        assertFalse(applyAggregation(
+                table,
+                new AggregateFunction("max", BIGINT, ImmutableList.of(new Variable("id", BIGINT)), ImmutableList.of(), false, Optional.empty()),
+                ImmutableList.of(ImmutableList.of())).isPresent());
+    }
+
+    @Test
+    public void testTopNPushdown()
+    {
+        Optional<TopNApplicationResult<ConnectorTableHandle>> result = metadata.applyTopN(
+                null,
+                new RestTableHandle(COUNTABLE),
+                10,
+                ImmutableList.of(new SortItem("id_0", SortOrder.DESC_NULLS_LAST)),
+                ImmutableMap.of("id_0", ID));
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isTopNGuaranteed());
+        RestTableHandle handle = (RestTableHandle) result.get().getHandle();
+        assertEquals(handle.getSortOrder(), ImmutableList.of(new RestSortItem("id", SortOrder.DESC_NULLS_LAST)));
+        assertEquals(handle.getLimit(), OptionalLong.of(10));
+
+        // neither another top-N nor a count can be applied on top of it
+        assertFalse(metadata.applyTopN(null, handle, 5, ImmutableList.of(new SortItem("id_0", SortOrder.DESC_NULLS_LAST)), ImmutableMap.of("id_0", ID)).isPresent());
+        assertFalse(applyAggregation(handle, COUNT_ALL, ImmutableList.of(ImmutableList.of())).isPresent());
+
+        assertFalse(metadata.applyTopN(null, new RestTableHandle(COUNTABLE), 10, ImmutableList.of(new SortItem("id_0", SortOrder.ASC_NULLS_LAST)), ImmutableMap.of("id_0", ID)).isPresent());
+        assertFalse(metadata.applyTopN(null, new RestTableHandle(COUNTABLE), 1000, ImmutableList.of(new SortItem("id_0", SortOrder.DESC_NULLS_LAST)), ImmutableMap.of("id_0", ID)).isPresent());
+    }
+
+    @Test
+    public void testFilterPushdown()
+    {
+        TupleDomain<ColumnHandle> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(
+                ID, Domain.singleValue(BIGINT, 1L),
+                NAME, Domain.singleValue(BIGINT, 2L)));
+        Optional<ConstraintApplicationResult<ConnectorTableHandle>> result = metadata.applyFilter(null, new RestTableHandle(COUNTABLE), new Constraint(predicate));
+        assertTrue(result.isPresent());
+        // only the predicate on a filter column is pushed down, and the engine still evaluates all of it
+        RestTableHandle handle = (RestTableHandle) result.get().getHandle();
+        assertEquals(handle.getConstraint(), TupleDomain.withColumnDomains(ImmutableMap.of(ID, Domain.singleValue(BIGINT, 1L))));
+        assertEquals(result.get().getRemainingFilter(), predicate);
+
+        // the predicate is already pushed down
+        assertFalse(metadata.applyFilter(null, handle, new Constraint(predicate)).isPresent());
+        assertFalse(metadata.applyFilter(null, new RestTableHandle(OTHER), new Constraint(predicate)).isPresent());
+        // the count reported by the API does not take the predicate into account
+        assertFalse(applyAggregation(handle, COUNT_ALL, ImmutableList.of(ImmutableList.of())).isPresent());
+        // nor does the top-N of the API, which would then not be the top-N of the matching rows
+        assertFalse(metadata.applyTopN(null, handle, 10, ImmutableList.of(new SortItem("id_0", SortOrder.DESC_NULLS_LAST)), ImmutableMap.of("id_0", ID)).isPresent());
+    }
+
+    private Optional<AggregationApplicationResult<ConnectorTableHandle>> applyAggregation(RestTableHandle table, AggregateFunction aggregate, List<List<ColumnHandle>> groupingSets)
+    {
+        return metadata.applyAggregation(null, table, ImmutableList.of(aggregate), ImmutableMap.of("id", ID), groupingSets);
+    }
+
+    private static class CountingRest
+            implements Rest
+    {
+        @Override
+        public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
+        {
+            return new ConnectorTableMetadata(schemaTableName, ImmutableList.of(new ColumnMetadata("id", BIGINT)));
+        }
+
+        @Override
+        public List<String> listSchemas()
+        {
+            return ImmutableList.of("default");
+        }
+
+        @Override
+        public List<SchemaTableName> listTables(String schema)
+        {
+            return ImmutableList.of(COUNTABLE, OTHER);
+        }
+
+        @Override
+        public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
+        {
+            return ImmutableList.of(ImmutableList.of(1L), ImmutableList.of(2L));
+        }
+
+        @Override
+        public boolean supportsRowCount(SchemaTableName schemaTableName)
+        {
+            return schemaTableName.equals(COUNTABLE);
+        }
+
+        @Override
+        public long getRowCount(SchemaTableName schemaTableName)
+        {
+            return 2;
+        }
+
+        @Override
+        public Set<String> getFilterColumns(SchemaTableName schemaTableName)
+        {
+            return schemaTableName.equals(COUNTABLE) ? ImmutableSet.of("id") : ImmutableSet.of();
+        }
+
+        @Override
+        public boolean supportsTopN(SchemaTableName schemaTableName, List<RestSortItem> sortOrder, long limit)
+        {
+            return sortOrder.equals(ImmutableList.of(new RestSortItem("id", SortOrder.DESC_NULLS_LAST))) && limit <= 100;
+        }
+
+        @Override
+        public Consumer<List> createRowSink(SchemaTableName schemaTableName)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.HostAddress;
+import io.trino.spi.Node;
+import io.trino.spi.NodeManager;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorSplit;
+import io.trino.spi.connector.ConnectorSplitSource;
+import io.trino.spi.connector.ConnectorTableMetadata;
+import io.trino.spi.connector.DynamicFilter;
+import io.trino.spi.connector.SchemaTableName;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static io.trino.spi.connector.ConnectorSplitManager.SplitSchedulingStrategy.UNGROUPED_SCHEDULING;
+import static io.trino.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestRestSplitManager
+{
+    private static final SchemaTableName LOCAL = new SchemaTableName("default", "local");
+    private static final SchemaTableName REMOTE = new SchemaTableName("default", "remote");
+    private static final List<HostAddress> WORKERS = ImmutableList.of(HostAddress.fromParts("worker-1", 8080), HostAddress.fromParts("worker-2", 8080));
+
+    @Test
+    public void testNodeLocalSplits()
+            throws Exception
+    {
+        RestSplitManager splitManager = new RestSplitManager(new WorkersNodeManager(), new LocalRest(), new QuotaLedger(100));
+
+        List<RestConnectorSplit> splits = getSplits(splitManager, LOCAL);
+        assertEquals(splits.size(), WORKERS.size());
+        for (int i = 0; i < splits.size(); i++) {
+            RestConnectorSplit split = splits.get(i);
+            assertEquals(split.getAddresses(), ImmutableList.of(WORKERS.get(i)));
+            assertFalse(split.isRemotelyAccessible());
+            assertEquals(split.getPartition(), RestPartition.ALL);
+            assertEquals(split.getLease(), Optional.empty());
+        }
+
+        splits = getSplits(splitManager, REMOTE);
+        assertEquals(splits.size(), 1);
+        assertEquals(splits.get(0).getAddresses(), WORKERS);
+        assertTrue(splits.get(0).isRemotelyAccessible());
+    }
+
+    private static List<RestConnectorSplit> getSplits(RestSplitManager splitManager, SchemaTableName table)
+            throws Exception
+    {
+        ConnectorSplitSource source = splitManager.getSplits(null, null, new RestTableHandle(table), UNGROUPED_SCHEDULING, DynamicFilter.EMPTY);
+        List<ConnectorSplit> splits = source.getNextBatch(NOT_PARTITIONED, 100).get().getSplits();
+        return splits.stream()
+                .map(RestConnectorSplit.class::cast)
+                .collect(toList());
+    }
+
+    private static class WorkersNodeManager
+            implements NodeManager
+    {
+        @Override
+        public Set<Node> getAllNodes()
+        {
+            return getWorkerNodes();
+        }
+
+        @Override
+        public Set<Node> getWorkerNodes()
+        {
+            return WORKERS.stream()
+                    .map(WorkerNode::new)
+                    .collect(toImmutableSet());
+        }
+
+        @Override
+        public Node getCurrentNode()
+        {
+            return new WorkerNode(WORKERS.get(0));
+        }
+
+        @Override
+        public String getEnvironment()
+        {
+            return "test";
+        }
+    }
+
+    private static class WorkerNode
+            implements Node
+    {
+        private final HostAddress address;
+
+        private WorkerNode(HostAddress address)
+        {
+            this.address = address;
+        }
+
+        @Override
+        public String getHost()
+        {
+            return address.getHostText();
+        }
+
+        @Override
+        public HostAddress getHostAndPort()
+        {
+            return address;
+        }
+
+        @Override
+        public URI getHttpUri()
+        {
+            return URI.create("http://" + address);
+        }
+
+        @Override
+        public String getNodeIdentifier()
+        {
+            return address.toString();
+        }
+
+        @Override
+        public String getVersion()
+        {
+            return "test";
+        }
+
+        @Override
+        public boolean isCoordinator()
+        {
+            return false;
+        }
+    }
+
+    private static class LocalRest
+            implements Rest
+    {
+        @Override
+        public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
+        {
+            return new ConnectorTableMetadata(schemaTableName, ImmutableList.of(new ColumnMetadata("id", BIGINT)));
+        }
+
+        @Override
+        public List<String> listSchemas()
+        {
+            return ImmutableList.of("default");
+        }
+
+        @Override
+        public List<SchemaTableName> listTables(String schema)
+        {
+            return ImmutableList.of(LOCAL, REMOTE);
+        }
+
+        @Override
+        public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
+        {
+            return ImmutableList.of(ImmutableList.of(1L));
+        }
+
+        @Override
+        public boolean isNodeLocal(SchemaTableName schemaTableName)
+        {
+            return schemaTableName.equals(LOCAL);
+        }
+
+        @Override
+        public Consumer<List> createRowSink(SchemaTableName schemaTableName)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import retrofit2.Call;
+import retrofit2.Invocation;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestRetryInterceptor
+{
+    private static final HttpClientConfig CONFIG = HttpClientConfig.fromConfig(ImmutableMap.of(
+            "max_retries", "2",
+            "retry_initial_delay", "1ms",
+            "retry_max_delay", "10ms",
+            "circuit_breaker_failure_threshold", "3",
+            "circuit_breaker_open_duration", "1m"));
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private String url;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            int status = failuresLeft.getAndDecrement() > 0 ? 503 : 200;
+            byte[] body = String.valueOf(status).getBytes(UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void reset()
+    {
+        failuresLeft.set(0);
+        requests.set(0);
+    }
+
+    @Test
+    public void testRetry()
+            throws IOException
+    {
+        RetryInterceptor interceptor = new RetryInterceptor(CONFIG);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+
+        failuresLeft.set(2);
+        assertEquals(execute(client, get()), 200);
+        assertEquals(requests.get(), 3);
+        assertEquals(interceptor.getRetryCount(), 2);
+
+        // out of retries, the last response is returned as is
+        failuresLeft.set(3);
+        assertEquals(execute(client, get()), 503);
+    }
+
+    @Test
+    public void testNonIdempotentRequestsAreNotRetried()
+            throws IOException
+    {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new RetryInterceptor(CONFIG)).build();
+        failuresLeft.set(1);
+        Request post = new Request.Builder().url(url).post(RequestBody.create(null, "{}")).build();
+        assertEquals(execute(client, post), 503);
+        assertEquals(requests.get(), 1);
+    }
+
+    @Test
+    public void testCircuitBreaker()
+            throws IOException
+    {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return nanos.get();
+            }
+        };
+        RetryInterceptor interceptor = new RetryInterceptor(CONFIG, ticker);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+
+        // 3 consecutive failures open the breaker
+        failuresLeft.set(100);
+        assertEquals(execute(client, get()), 503);
+        assertEquals(requests.get(), 3);
+        assertThrows(IOException.class, () -> execute(client, get()));
+        assertEquals(requests.get(), 3);
+        assertEquals(interceptor.getRejectionCount(), 1);
+
+        // a successful trial after the open duration closes it
+        failuresLeft.set(0);
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertEquals(execute(client, get()), 200);
+        assertEquals(execute(client, get()), 200);
+    }
+
+    @Test
+    public void testEndpoints()
+            throws Exception
+    {
+        // requests of a Retrofit service method share a breaker, whatever their path
+        Method listIssues = IssuesService.class.getMethod("listIssues", String.class, String.class);
+        assertEquals(
+                RetryInterceptor.getEndpoint(new Request.Builder()
+                        .url("https://api.github.com/repos/trinodb/trino/issues")
+                        .tag(Invocation.class, Invocation.of(listIssues, ImmutableList.of("trinodb", "trino")))
+                        .build()),
+                "GET api.github.com IssuesService.listIssues");
+        assertEquals(
+                RetryInterceptor.getEndpoint(new Request.Builder()
+                        .url("https://api.github.com/repos/prestodb/presto/issues")
+                        .tag(Invocation.class, Invocation.of(listIssues, ImmutableList.of("prestodb", "presto")))
+                        .build()),
+                "GET api.github.com IssuesService.listIssues");
+
+        // other requests leave out the ids of their path
+        assertEquals(
+                RetryInterceptor.getEndpoint(new Request.Builder().url("https://example.com/users/42/posts?page=2").build()),
+                "GET example.com/users/*/posts");
+        assertEquals(
+                RetryInterceptor.getEndpoint(new Request.Builder().url("https://example.com/").build()),
+                "GET example.com/");
+    }
+
+    @Test
+    public void testBreakersAreBounded()
+            throws IOException
+    {
+        RetryInterceptor interceptor = new RetryInterceptor(CONFIG);
+        // answers without sending the requests
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(null, ""))
+                        .build())
+                .build();
+        // paths made of names, e.g. of repositories, have a breaker each
+        for (int i = 0; i < 2000; i++) {
+            String name = Integer.toString(i).chars()
+                    .mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+                    .collect(joining());
+            assertEquals(execute(client, new Request.Builder().url(url + "repos/" + name).build()), 200);
+        }
+        assertTrue(interceptor.getBreakerCount() <= 1000, "breakers are not bounded");
+    }
+
+    private interface IssuesService
+    {
+        @GET("repos/{owner}/{name}/issues")
+        Call<ResponseBody> listIssues(@Path("owner") String owner, @Path("name") String name);
+    }
+
+    private Request get()
+    {
+        return new Request.Builder().url(url).build();
+    }
+
+    private static int execute(OkHttpClient client, Request request)
+            throws IOException
+    {
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.trino.spi.Page;
+import io.trino.spi.block.DictionaryBlock;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestRowPageBuilder
+{
+    private static final List<Type> TYPES = ImmutableList.of(createUnboundedVarcharType(), BIGINT, DOUBLE, BOOLEAN);
+    private static final List<List<?>> ROWS = ImmutableList.of(
+            Arrays.asList("open", 1L, 1.5, true),
+            Arrays.asList("closed", null, 2.5, false),
+            Arrays.asList(null, 3L, null, null),
+            Arrays.asList("open", 4L, -1.0, true),
+            Arrays.asList("open", 5L, 0.0, false));
+
+    static List<Page> buildPages(List<Type> types, Collection<? extends List<?>> rows)
+    {
+        int[] projection = new int[types.size()];
+        Arrays.setAll(projection, field -> field);
+        RowPageBuilder pageBuilder = new RowPageBuilder(types, projection, new boolean[types.size()]);
+        RowBuffer buffer = new RowBuffer(types, pageBuilder);
+        for (List<?> row : rows) {
+            buffer.setValues(row);
+            buffer.endRow();
+        }
+        return pageBuilder.build();
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        List<Page> pages = buildPages(TYPES, ROWS);
+        assertEquals(pages.size(), 1);
+        for (int position = 0; position < ROWS.size(); position++) {
+            assertEquals(TestColumnarRows.getValues(TYPES, pages.get(0), position), ROWS.get(position));
+        }
+    }
+
+    @Test
+    public void testProjection()
+    {
+        List<Type> types = ImmutableList.of(BOOLEAN, createUnboundedVarcharType());
+        RowPageBuilder pageBuilder = new RowPageBuilder(types, new int[] {3, 0}, new boolean[2]);
+        RowBuffer buffer = new RowBuffer(TYPES, pageBuilder);
+        for (List<?> row : ROWS) {
+            buffer.setValues(row);
+            buffer.endRow();
+        }
+        Page page = pageBuilder.build().get(0);
+        assertEquals(page.getChannelCount(), 2);
+        for (int position = 0; position < ROWS.size(); position++) {
+            List<?> row = ROWS.get(position);
+            assertEquals(TestColumnarRows.getValues(types, page, position), Arrays.asList(row.get(3), row.get(0)));
+        }
+    }
+
+    @Test
+    public void testUnsetFieldsAreNull()
+    {
+        RowPageBuilder pageBuilder = new RowPageBuilder(TYPES, new int[] {0, 1, 2, 3}, new boolean[4]);
+        RowBuffer buffer = new RowBuffer(TYPES, pageBuilder);
+        buffer.setValues(ROWS.get(0));
+        buffer.endRow();
+        buffer.setLong(1, 7);
+        buffer.endRow();
+        Page page = pageBuilder.build().get(0);
+        assertEquals(TestColumnarRows.getValues(TYPES, page, 1), Arrays.asList(null, 7L, null, null));
+        assertEquals(buffer.getRowCount(), 2);
+    }
+
+    @Test
+    public void testPageBoundaries()
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        RowPageBuilder pageBuilder = new RowPageBuilder(types, new int[] {0}, new boolean[1]);
+        RowBuffer buffer = new RowBuffer(types, pageBuilder);
+        int rowCount = RowPageBuilder.MAX_ROWS_PER_PAGE * 2 + 10;
+        for (int i = 0; i < rowCount; i++) {
+            buffer.setLong(0, i);
+            buffer.endRow();
+        }
+        List<Page> pages = pageBuilder.build();
+        assertEquals(pages.size(), 3);
+        assertEquals(pages.get(2).getPositionCount(), 10);
+        assertEquals(BIGINT.getLong(pages.get(2).getBlock(0), 9), rowCount - 1);
+    }
+
+    @Test
+    public void testDictionaries()
+    {
+        List<Page> pages = buildPages(TYPES, ROWS);
+        // 3 distinct values in 5 rows are not worth a dictionary, unless declared as low cardinality
+        assertFalse(pages.get(0).getBlock(0) instanceof DictionaryBlock);
+
+        RowPageBuilder pageBuilder = new RowPageBuilder(TYPES, new int[] {0, 1, 2, 3}, new boolean[] {true, false, false, false});
+        RowBuffer buffer = new RowBuffer(TYPES, pageBuilder);
+        for (List<?> row : ROWS) {
+            buffer.setValues(row);
+            buffer.endRow();
+        }
+        Page page = pageBuilder.build().get(0);
+        assertTrue(page.getBlock(0) instanceof DictionaryBlock);
+        for (int position = 0; position < ROWS.size(); position++) {
+            assertEquals(TestColumnarRows.getValues(TYPES, page, position), ROWS.get(position));
+        }
+
+        List<Type> types = ImmutableList.of(createUnboundedVarcharType());
+        List<List<?>> repeated = ImmutableList.of(ImmutableList.of("a"), ImmutableList.of("b"), ImmutableList.of("a"), ImmutableList.of("b"));
+        assertTrue(buildPages(types, repeated).get(0).getBlock(0) instanceof DictionaryBlock);
+    }
+
+    @Test
+    public void testAllocationPerRow()
+    {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        String[] states = {"open", "closed"};
+        int rowCount = 200_000;
+
+        RowPageBuilder pageBuilder = new RowPageBuilder(TYPES, new int[] {0, 1, 2, 3}, new boolean[] {true, false, false, false});
+        RowBuffer buffer = new RowBuffer(TYPES, pageBuilder);
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < rowCount; i++) {
+            buffer.setObject(0, states[i % states.length]);
+            buffer.setLong(1, i);
+            buffer.setDouble(2, i * 0.5);
+            buffer.setBoolean(3, i % 3 == 0);
+            buffer.endRow();
+        }
+        List<Page> pages = pageBuilder.build();
+        long allocatedPerRow = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / rowCount;
+
+        assertEquals(pages.size(), (rowCount + RowPageBuilder.MAX_ROWS_PER_PAGE - 1) / RowPageBuilder.MAX_ROWS_PER_PAGE);
+        // values take 21 bytes per row (dictionary id, long, double and byte) and null flags another 3,
+        // while a list of boxed values per row would take well over 100
+        assertTrue(allocatedPerRow <= 32, "allocated per row: " + allocatedPerRow + " bytes");
+    }
+
+    @Test
+    public void testAllocationPerRowOfUniqueValues()
+    {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // e.g. a free text column, with values that never repeat within a page
+        Slice[] texts = new Slice[RowPageBuilder.MAX_ROWS_PER_PAGE];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = utf8Slice(format("text %04d", i));
+        }
+        int rowCount = 200_000;
+
+        RowPageBuilder pageBuilder = new RowPageBuilder(TYPES, new int[] {0, 1, 2, 3}, new boolean[4]);
+        RowBuffer buffer = new RowBuffer(TYPES, pageBuilder);
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < rowCount; i++) {
+            buffer.setObject(0, texts[i % texts.length]);
+            buffer.setLong(1, i);
+            buffer.setDouble(2, i * 0.5);
+            buffer.setBoolean(3, i % 3 == 0);
+            buffer.endRow();
+        }
+        List<Page> pages = pageBuilder.build();
+        long allocatedPerRow = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / rowCount;
+
+        assertFalse(pages.get(0).getBlock(0) instanceof DictionaryBlock);
+        assertEquals(TestColumnarRows.getValues(TYPES, pages.get(1), 5).get(0), "text 0005");
+        // values take 34 bytes per row (9 bytes of text, its offset, long, double and byte) and null flags another 4,
+        // while hashing every text would take a map entry and a boxed id per row, and copying the texts again well over 100
+        assertTrue(allocatedPerRow <= 56, "allocated per row: " + allocatedPerRow + " bytes");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestScanResultCache
+{
+    private static final List<Type> TYPES = ImmutableList.of(createUnboundedVarcharType(), BIGINT);
+    private static final ColumnarRows ROWS = ColumnarRows.encode(
+            TYPES,
+            TestRowPageBuilder.buildPages(TYPES, ImmutableList.of(ImmutableList.of("a", 1L), ImmutableList.of("b", 2L))));
+
+    @Test
+    public void testHitAndMiss()
+    {
+        ScanResultCache cache = new ScanResultCache(Duration.ofMinutes(1), 1 << 20);
+        ScanRequest request = request("t", "text");
+
+        assertNull(cache.getIfPresent(request));
+        cache.put(request, ROWS);
+        assertSame(cache.getIfPresent(request), ROWS);
+        assertNull(cache.getIfPresent(request("t", "user")));
+
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getEntryCount(), 1);
+        assertEquals(cache.getRetainedBytes(), ROWS.getRetainedSizeInBytes());
+    }
+
+    @Test
+    public void testEvictionByRetainedSize()
+    {
+        long entrySize = ROWS.getRetainedSizeInBytes();
+        ScanResultCache cache = new ScanResultCache(Duration.ofMinutes(1), entrySize * 2);
+        for (int i = 0; i < 10; i++) {
+            cache.put(request("t" + i, "text"), ROWS);
+        }
+        assertTrue(cache.getEntryCount() <= 2);
+        assertTrue(cache.getEvictionCount() >= 8);
+        assertEquals(cache.getRetainedBytes(), cache.getEntryCount() * entrySize);
+    }
+
+    @Test
+    public void testInvalidateTable()
+    {
+        ScanResultCache cache = new ScanResultCache(Duration.ofMinutes(1), 1 << 20);
+        cache.put(request("t1", "text"), ROWS);
+        cache.put(request("t2", "text"), ROWS);
+        cache.invalidate(new SchemaTableName("s", "t1"));
+        assertNull(cache.getIfPresent(request("t1", "text")));
+        assertSame(cache.getIfPresent(request("t2", "text")), ROWS);
+        assertEquals(cache.getRetainedBytes(), ROWS.getRetainedSizeInBytes());
+    }
+
+    private static ScanRequest request(String table, String column)
+    {
+        return new ScanRequest(
+                new RestTableHandle(new SchemaTableName("s", table)),
+                RestPartition.ALL,
+                ImmutableList.of(new RestColumnHandle(column, createUnboundedVarcharType())));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpServer;
+import io.trino.spi.Page;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestScanScope
+{
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch slowReceived = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+    private HttpServer server;
+    private HedgingCallFactory factory;
+    private String url;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        executor = newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            if (exchange.getRequestURI().getPath().equals("/stream")) {
+                // sends the first line, and then nothing until the test ends
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.write("first\n".getBytes(UTF_8));
+                out.flush();
+                awaitUninterruptibly(release);
+                out.close();
+                return;
+            }
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                slowReceived.countDown();
+                awaitUninterruptibly(release);
+            }
+            byte[] body = "ok".getBytes(UTF_8);
+            exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals("/unavailable") ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+        HttpClientConfig config = HttpClientConfig.fromConfig(ImmutableMap.of("hedge_max_ratio", "0", "max_retries", "0"));
+        factory = new HedgingCallFactory(HttpClients.newClientBuilder(config).build(), config);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCancelScan()
+            throws Exception
+    {
+        CancellationStats stats = new CancellationStats();
+        ScanScope scope = new ScanScope(stats);
+        CompletableFuture<Iterator<Page>> pages = CompletableFuture.supplyAsync(() -> scope.run(() -> {
+            get("fast");
+            get("slow");
+            return null;
+        }), executor);
+        RestPageSource pageSource = new RestPageSource(pages, scope::cancel);
+        assertFalse(pageSource.isBlocked().isDone());
+        assertFalse(pageSource.isFinished());
+        slowReceived.await();
+
+        // the slow response is never sent, so the scan only finishes when its call is cancelled
+        pageSource.close();
+        assertTrue(pageSource.isFinished());
+        Throwable failure = pages.handle((value, e) -> e).get(10, SECONDS);
+        assertTrue(failure.getCause() instanceof UncheckedIOException);
+        assertTrue(scope.isCancelled());
+        assertEquals(stats.getCancelledScanCount(), 1);
+        assertEquals(stats.getWastedRequestCount(), 1);
+        assertTrue(stats.getMaxCancellationLatencyMillis() > 0);
+
+        // calls of a cancelled scan are never sent
+        int sent = requests.get();
+        expectThrows(UncheckedIOException.class, () -> scope.run(() -> get("fast")));
+        assertEquals(requests.get(), sent);
+        assertEquals(stats.getSkippedRequestCount(), 1);
+    }
+
+    @Test
+    public void testStopWhileReadingBody()
+            throws Exception
+    {
+        CancellationStats stats = new CancellationStats();
+        ScanScope scope = new ScanScope(stats);
+        CountDownLatch firstLineRead = new CountDownLatch(1);
+        CompletableFuture<String> lines = CompletableFuture.supplyAsync(() -> scope.run(() -> {
+            try (Response response = factory.newCall(new Request.Builder().url(url + "stream").build()).execute()) {
+                String first = response.body().source().readUtf8Line();
+                firstLineRead.countDown();
+                return first + response.body().source().readUtf8Line();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), executor);
+        firstLineRead.await();
+
+        // the call already returned, but reading the rest of its body is cancelled
+        scope.stop();
+        Throwable failure = lines.handle((value, e) -> e).get(10, SECONDS);
+        assertTrue(failure.getCause() instanceof UncheckedIOException);
+        assertTrue(scope.isCancelled());
+        // the scan read all it needed, so nothing was wasted
+        assertEquals(stats.getCancelledScanCount(), 0);
+        assertEquals(stats.getWastedRequestCount(), 0);
+    }
+
+    @Test
+    public void testCallsOutsideOfScope()
+            throws IOException
+    {
+        Call call = factory.newCall(new Request.Builder().url(url + "other").build());
+        try (Response response = call.execute()) {
+            assertEquals(response.body().string(), "ok");
+        }
+    }
+
+    @Test
+    public void testRetriesSpendBudget()
+    {
+        HttpClientConfig config = HttpClientConfig.fromConfig(ImmutableMap.of("hedge_max_ratio", "0", "max_retries", "2", "retry_initial_delay", "1ms"));
+        HedgingCallFactory retrying = new HedgingCallFactory(HttpClients.newClientBuilder(config).build(), config);
+        QuotaLedger ledger = new QuotaLedger(100);
+        long resetEpochMillis = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        QuotaBudget budget = new QuotaBudget(Optional.of(new QuotaLease(2, resetEpochMillis)), Duration.ofMinutes(1), ledger);
+        ScanScope scope = new ScanScope(new CancellationStats(), budget, Optional.empty(), "query");
+
+        // a single call, whose retries are sent without waiting for the lease
+        int sent = requests.get();
+        assertEquals(scope.run(() -> get(retrying, "unavailable")), "ok");
+        assertEquals(requests.get() - sent, 3);
+
+        // but they spent the lease, so the next call is never sent
+        expectThrows(UncheckedIOException.class, () -> scope.run(() -> get(retrying, "fast")));
+        assertEquals(requests.get() - sent, 3);
+        assertEquals(ledger.getExhaustedLeaseCount(), 1);
+    }
+
+    @Test
+    public void testCancelWhileWaitingForLease()
+            throws Exception
+    {
+        QuotaLedger ledger = new QuotaLedger(100);
+        long resetEpochMillis = System.currentTimeMillis() + Duration.ofSeconds(50).toMillis();
+        QuotaBudget budget = new QuotaBudget(Optional.of(new QuotaLease(0, resetEpochMillis)), Duration.ofMinutes(1), ledger);
+        CancellationStats stats = new CancellationStats();
+        ScanScope scope = new ScanScope(stats, budget, Optional.empty(), "query");
+        int sent = requests.get();
+        CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> scope.run(() -> get("fast")), executor);
+        while (ledger.getLeaseWaitCount() == 0) {
+            MILLISECONDS.sleep(10);
+        }
+
+        scope.cancel();
+        Throwable failure = response.handle((value, e) -> e).get(10, SECONDS);
+        assertTrue(failure.getCause() instanceof UncheckedIOException);
+        assertEquals(requests.get(), sent);
+        assertEquals(stats.getSkippedRequestCount(), 1);
+    }
+
+    private String get(String path)
+    {
+        return get(factory, path);
+    }
+
+    private String get(HedgingCallFactory factory, String path)
+    {
+        try (Response response = factory.newCall(new Request.Builder().url(url + path).build()).execute()) {
+            return response.body().string();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
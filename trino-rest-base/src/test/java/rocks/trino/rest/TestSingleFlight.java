@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestSingleFlight
+{
+    @Test
+    public void testConcurrentCallsShareLoad()
+            throws Exception
+    {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                loading.countDown();
+                awaitUninterruptibly(release);
+                return loads.incrementAndGet();
+            }));
+            loading.await();
+
+            List<Future<Integer>> waiters = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiters.add(executor.submit(() -> singleFlight.execute("key", loads::incrementAndGet)));
+            }
+            while (singleFlight.getCoalescedCount() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals(first.get().intValue(), 1);
+            for (Future<Integer> waiter : waiters) {
+                assertEquals(waiter.get().intValue(), 1);
+            }
+            assertEquals(loads.get(), 1);
+            assertEquals(singleFlight.getLoadCount(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResultIsNotRetained()
+    {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(singleFlight.execute("key", loads::incrementAndGet).intValue(), 1);
+        assertEquals(singleFlight.execute("key", loads::incrementAndGet).intValue(), 2);
+        assertEquals(singleFlight.getCoalescedCount(), 0);
+    }
+
+    @Test
+    public void testCancelledLoadIsRetried()
+            throws Exception
+    {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                loading.countDown();
+                awaitUninterruptibly(release);
+                throw new CancellationException("cancelled");
+            }));
+            loading.await();
+            Future<Integer> waiter = executor.submit(() -> singleFlight.execute("key", () -> 42));
+            while (singleFlight.getCoalescedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // the caller that cancelled its load gets the cancellation, the waiter loads the key itself
+            ExecutionException failure = expectThrows(ExecutionException.class, first::get);
+            assertTrue(failure.getCause() instanceof CancellationException);
+            assertEquals(waiter.get().intValue(), 42);
+            assertEquals(singleFlight.getLoadCount(), 2);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsPropagated()
+    {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        expectThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(singleFlight.execute("key", () -> 42).intValue(), 42);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestSnapshotRefresher
+{
+    private static final Duration INTERVAL = Duration.ofMillis(10);
+
+    @Test
+    public void testSwapOnChange()
+    {
+        AtomicReference<List<String>> listing = new AtomicReference<>(ImmutableList.of("general", "random"));
+        SnapshotRefresher<List<String>> refresher = createRefresher(listing::get);
+        try {
+            List<String> initial = refresher.get();
+            assertEquals(initial, ImmutableList.of("general", "random"));
+
+            // an equal listing keeps the current snapshot
+            listing.set(ImmutableList.of("general", "random"));
+            waitFor(() -> refresher.getRefreshCount() >= 2);
+            assertSame(refresher.get(), initial);
+            assertEquals(refresher.getChangeCount(), 0);
+
+            listing.set(ImmutableList.of("general", "dev"));
+            waitFor(() -> refresher.getChangeCount() == 1);
+            assertEquals(refresher.get(), ImmutableList.of("general", "dev"));
+            assertEquals(refresher.getLastChange(), "channels +[dev] -[random]");
+        }
+        finally {
+            refresher.shutdown();
+        }
+    }
+
+    @Test
+    public void testKeepSnapshotOnFailure()
+    {
+        AtomicReference<List<String>> listing = new AtomicReference<>(ImmutableList.of("general"));
+        SnapshotRefresher<List<String>> refresher = createRefresher(() -> {
+            List<String> channels = listing.get();
+            if (channels == null) {
+                throw new IllegalStateException("Unable to list channels");
+            }
+            return channels;
+        });
+        try {
+            listing.set(null);
+            waitFor(() -> refresher.getFailureCount() >= 2);
+            assertEquals(refresher.get(), ImmutableList.of("general"));
+
+            // refreshes go on after a failure
+            listing.set(ImmutableList.of("dev"));
+            waitFor(() -> refresher.getChangeCount() == 1);
+            assertEquals(refresher.get(), ImmutableList.of("dev"));
+        }
+        finally {
+            refresher.shutdown();
+        }
+    }
+
+    @Test
+    public void testInitialLoadFails()
+    {
+        expectThrows(IllegalStateException.class, () -> createRefresher(() -> {
+            throw new IllegalStateException("Unable to list channels");
+        }));
+    }
+
+    @Test
+    public void testJitterBounds()
+    {
+        assertEquals(SnapshotRefresher.getDelayMillis(1000, 0, 0.7), 1000);
+        assertEquals(SnapshotRefresher.getDelayMillis(1000, 0.1, 0), 900);
+        assertEquals(SnapshotRefresher.getDelayMillis(1000, 0.1, 0.5), 1000);
+        assertTrue(SnapshotRefresher.getDelayMillis(1000, 0.1, Math.nextDown(1.0)) <= 1100);
+        assertTrue(SnapshotRefresher.getDelayMillis(1000, 0.1, Math.nextDown(1.0)) >= 1099);
+
+        expectThrows(IllegalArgumentException.class, () -> new SnapshotRefresher<>("test", () -> "", (a, b) -> "", INTERVAL, 1));
+        expectThrows(IllegalArgumentException.class, () -> new SnapshotRefresher<>("test", () -> "", (a, b) -> "", INTERVAL, -0.1));
+        expectThrows(IllegalArgumentException.class, () -> new SnapshotRefresher<>("test", () -> "", (a, b) -> "", Duration.ZERO, 0));
+    }
+
+    @Test
+    public void testShutdown()
+            throws InterruptedException
+    {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotRefresher<Integer> refresher = new SnapshotRefresher<>("test", loads::incrementAndGet, (a, b) -> "", INTERVAL, 0);
+        waitFor(() -> loads.get() >= 3);
+        refresher.shutdown();
+
+        int loadsAtShutdown = loads.get();
+        Thread.sleep(INTERVAL.toMillis() * 10);
+        assertTrue(loads.get() <= loadsAtShutdown + 1, "refreshes go on after shutdown");
+        assertEquals(refresher.get().intValue(), loads.get());
+    }
+
+    private static SnapshotRefresher<List<String>> createRefresher(Supplier<List<String>> loader)
+    {
+        return new SnapshotRefresher<>(
+                "test",
+                loader,
+                (previous, current) -> SnapshotRefresher.describeChanges("channels", previous, current),
+                INTERVAL,
+                0.5);
+    }
+
+    private static void waitFor(BooleanSupplier condition)
+    {
+        long deadline = nanoTime() + SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(nanoTime() < deadline, "condition not met in time");
+            sleepUninterruptibly(1, MILLISECONDS);
+        }
+    }
+}
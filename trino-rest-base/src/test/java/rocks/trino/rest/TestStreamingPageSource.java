@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest;
+
+import io.trino.spi.Page;
+import io.trino.spi.block.Block;
+import io.trino.spi.block.BlockBuilder;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestStreamingPageSource
+{
+    @Test
+    public void testPagesAsTheyArrive()
+    {
+        AtomicInteger stops = new AtomicInteger();
+        StreamingPageSource source = new StreamingPageSource(2, stops::incrementAndGet);
+        CompletableFuture<?> blocked = source.isBlocked();
+        assertFalse(blocked.isDone());
+        assertNull(source.getNextPage());
+        assertFalse(source.isFinished());
+
+        Page page = page(1);
+        source.add(page);
+        assertTrue(blocked.isDone());
+        assertTrue(source.getSystemMemoryUsage() > 0);
+        assertSame(source.getNextPage(), page);
+        assertEquals(source.getSystemMemoryUsage(), 0);
+        assertEquals(source.getCompletedBytes(), page.getSizeInBytes());
+        assertFalse(source.isBlocked().isDone());
+
+        source.add(page(2));
+        source.finish(null);
+        assertFalse(source.isFinished());
+        assertEquals(source.getNextPage().getPositionCount(), 2);
+        assertTrue(source.isFinished());
+
+        // the stream already ended
+        source.close();
+        assertEquals(stops.get(), 0);
+    }
+
+    @Test
+    public void testBackpressure()
+            throws Exception
+    {
+        StreamingPageSource source = new StreamingPageSource(1, () -> {});
+        source.add(page(1));
+        CompletableFuture<?> added = CompletableFuture.runAsync(() -> source.add(page(2)));
+        // the buffer is full until a page is read
+        Thread.sleep(100);
+        assertFalse(added.isDone());
+        assertEquals(source.getNextPage().getPositionCount(), 1);
+        added.get(10, SECONDS);
+        assertEquals(source.getNextPage().getPositionCount(), 2);
+    }
+
+    @Test
+    public void testFailure()
+    {
+        StreamingPageSource source = new StreamingPageSource(2, () -> {});
+        source.add(page(1));
+        source.finish(new IllegalStateException("stream failed"));
+        // pages that arrived before the failure are still read
+        assertEquals(source.getNextPage().getPositionCount(), 1);
+        assertFalse(source.isFinished());
+        expectThrows(IllegalStateException.class, source::getNextPage);
+    }
+
+    @Test
+    public void testCloseStopsStream()
+            throws Exception
+    {
+        AtomicInteger stops = new AtomicInteger();
+        StreamingPageSource source = new StreamingPageSource(1, stops::incrementAndGet);
+        source.add(page(1));
+        CompletableFuture<?> added = CompletableFuture.runAsync(() -> source.add(page(2)));
+        CompletableFuture<?> blocked = source.isBlocked();
+
+        source.close();
+        assertEquals(stops.get(), 1);
+        assertTrue(source.isFinished());
+        assertTrue(blocked.isDone());
+        assertEquals(source.getSystemMemoryUsage(), 0);
+        // the stream blocked on a full buffer is released, and its pages are dropped
+        added.get(10, SECONDS);
+        source.add(page(3));
+        assertNull(source.getNextPage());
+
+        source.close();
+        assertEquals(stops.get(), 1);
+    }
+
+    private static Page page(int positions)
+    {
+        BlockBuilder builder = BIGINT.createBlockBuilder(null, positions);
+        for (int position = 0; position < positions; position++) {
+            BIGINT.writeLong(builder, position);
+        }
+        Block block = builder.build();
+        return new Page(positions, block);
+    }
+}
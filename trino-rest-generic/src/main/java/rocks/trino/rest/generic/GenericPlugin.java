@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.Plugin;
+import io.trino.spi.connector.ConnectorFactory;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.RestConnectorFactory;
+import rocks.trino.rest.generic.spec.ApiSpec;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class GenericPlugin
+        implements Plugin
+{
+    @Override
+    public Iterable<ConnectorFactory> getConnectorFactories()
+    {
+        return ImmutableList.of(new RestConnectorFactory(
+                "rest",
+                (config, nodeManager) -> {
+                    String specFile = config.get("spec_file");
+                    checkArgument(specFile != null, "spec_file is required");
+                    return new GenericRest(readSpec(new File(specFile)), HttpClientConfig.fromConfig(config));
+                }));
+    }
+
+    static ApiSpec readSpec(File file)
+    {
+        ObjectMapper mapper = new ObjectMapper()
+                .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS);
+        try {
+            return mapper.readValue(file, ApiSpec.class);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.trino.spi.connector.ColumnMetadata;
+import io.trino.spi.connector.ConnectorTableMetadata;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.type.Type;
+import okhttp3.Call;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import rocks.trino.rest.HedgingCallFactory;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.Rest;
+import rocks.trino.rest.RestColumnHandle;
+import rocks.trino.rest.RestPartition;
+import rocks.trino.rest.RowBuffer;
+import rocks.trino.rest.generic.spec.ApiSpec;
+import rocks.trino.rest.generic.spec.AuthSpec;
+import rocks.trino.rest.generic.spec.ColumnSpec;
+import rocks.trino.rest.generic.spec.PaginationSpec;
+import rocks.trino.rest.generic.spec.TableSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static rocks.trino.rest.HttpClients.newClientBuilder;
+
+/**
+ * Tables of any JSON API, as described by an {@link ApiSpec}. The spec is compiled when the
+ * catalog is created, so reading rows does not look at the spec anymore.
+ */
+public class GenericRest
+        implements Rest
+{
+    private final String schema;
+    private final HttpUrl baseUrl;
+    private final Call.Factory client;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Map<String, CompiledTable> tables;
+
+    public GenericRest(ApiSpec spec, HttpClientConfig httpClientConfig)
+    {
+        requireNonNull(spec, "spec is null");
+        this.schema = spec.getSchema().toLowerCase(ENGLISH);
+        this.baseUrl = HttpUrl.get(spec.getBaseUrl());
+        OkHttpClient.Builder client = newClientBuilder(httpClientConfig);
+        authenticator(spec.getAuth()).ifPresent(header -> client.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                .header(header.getKey(), header.getValue())
+                .build())));
+        this.client = new HedgingCallFactory(client.build(), httpClientConfig);
+
+        ImmutableMap.Builder<String, CompiledTable> tables = ImmutableMap.builder();
+        for (TableSpec table : spec.getTables()) {
+            tables.put(table.getName().toLowerCase(ENGLISH), new CompiledTable(table));
+        }
+        this.tables = tables.build();
+    }
+
+    private static Optional<Map.Entry<String, String>> authenticator(AuthSpec auth)
+    {
+        switch (auth.getType()) {
+            case NONE:
+                return Optional.empty();
+            case BEARER:
+                return Optional.of(Map.entry("Authorization", "Bearer " + auth.getToken()));
+            case BASIC:
+                return Optional.of(Map.entry("Authorization", Credentials.basic(auth.getUser(), auth.getPassword())));
+            case HEADER:
+                return Optional.of(Map.entry(auth.getHeader(), auth.getValue()));
+            default:
+                throw new IllegalArgumentException("Unsupported authentication: " + auth.getType());
+        }
+    }
+
+    @Override
+    public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
+    {
+        return new ConnectorTableMetadata(schemaTableName, getTable(schemaTableName).columns);
+    }
+
+    @Override
+    public List<String> listSchemas()
+    {
+        return ImmutableList.of(schema);
+    }
+
+    @Override
+    public List<SchemaTableName> listTables(String schema)
+    {
+        if (!this.schema.equalsIgnoreCase(schema)) {
+            return ImmutableList.of();
+        }
+        return tables.keySet().stream()
+                .map(table -> new SchemaTableName(this.schema, table))
+                .collect(toImmutableList());
+    }
+
+    @Override
+    public Set<String> getLowCardinalityColumns(SchemaTableName schemaTableName)
+    {
+        return getTable(schemaTableName).lowCardinalityColumns;
+    }
+
+    @Override
+    public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
+    {
+        CompiledTable table = getTable(schemaTableName);
+        ImmutableList.Builder<List<?>> result = ImmutableList.builder();
+        scanRows(schemaTableName, RestPartition.ALL, ImmutableList.of(), new RowBuffer(table.types, row -> result.add(row.getValues())));
+        return result.build();
+    }
+
+    @Override
+    public void scanRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns, RowBuffer rows)
+    {
+        CompiledTable table = getTable(schemaTableName);
+        PaginationSpec pagination = table.spec.getPagination();
+        HttpUrl url = table.url;
+        long offset = 0;
+        for (int page = 0; page < pagination.getMaxPages(); page++) {
+            HttpUrl.Builder pageUrl = url.newBuilder();
+            if (pagination.getSizeParam() != null) {
+                pageUrl.setQueryParameter(pagination.getSizeParam(), String.valueOf(pagination.getPageSize()));
+            }
+            if (pagination.getType() == PaginationSpec.Type.PAGE) {
+                pageUrl.setQueryParameter(pagination.getPageParam(), String.valueOf(pagination.getFirstPage() + page));
+            }
+            else if (pagination.getType() == PaginationSpec.Type.OFFSET) {
+                pageUrl.setQueryParameter(pagination.getOffsetParam(), String.valueOf(offset));
+            }
+
+            try (Response response = client.newCall(new Request.Builder().url(pageUrl.build()).build()).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IllegalStateException("Unable to read from '" + schemaTableName + "' dues: " + response.message());
+                }
+                JsonRowExtractor.Result result;
+                try (JsonParser parser = jsonFactory.createParser(response.body().byteStream())) {
+                    result = table.extractor.extract(parser, rows);
+                }
+                offset += result.getRowCount();
+
+                Optional<HttpUrl> next = Optional.empty();
+                switch (pagination.getType()) {
+                    case PAGE:
+                    case OFFSET:
+                        if (result.getRowCount() > 0 && (pagination.getSizeParam() == null || result.getRowCount() >= pagination.getPageSize())) {
+                            next = Optional.of(url);
+                        }
+                        break;
+                    case CURSOR:
+                        next = result.getCursor()
+                                .filter(cursor -> !cursor.isEmpty())
+                                .map(cursor -> table.url.newBuilder().setQueryParameter(pagination.getCursorParam(), cursor).build());
+                        break;
+                    case LINK:
+                        next = getNextLink(response).map(link -> requireNonNull(response.request().url().resolve(link), "invalid next link"));
+                        break;
+                    default:
+                        break;
+                }
+                if (next.isEmpty()) {
+                    return;
+                }
+                url = next.get();
+            }
+            catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    static Optional<String> getNextLink(Response response)
+    {
+        for (String header : response.headers("Link")) {
+            for (String link : header.split(",")) {
+                String[] parts = link.split(";");
+                for (int i = 1; i < parts.length; i++) {
+                    if (parts[i].trim().replace(" ", "").equals("rel=\"next\"")) {
+                        String target = parts[0].trim();
+                        if (target.startsWith("<") && target.endsWith(">")) {
+                            return Optional.of(target.substring(1, target.length() - 1));
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Consumer<List> createRowSink(SchemaTableName schemaTableName)
+    {
+        throw new IllegalStateException("This connector does not support write");
+    }
+
+    private CompiledTable getTable(SchemaTableName schemaTableName)
+    {
+        CompiledTable table = tables.get(schemaTableName.getTableName());
+        if (table == null || !schema.equals(schemaTableName.getSchemaName())) {
+            throw new IllegalArgumentException("Unknown table: " + schemaTableName);
+        }
+        return table;
+    }
+
+    private class CompiledTable
+    {
+        final TableSpec spec;
+        final HttpUrl url;
+        final List<ColumnMetadata> columns;
+        final List<Type> types;
+        final Set<String> lowCardinalityColumns;
+        final JsonRowExtractor extractor;
+
+        CompiledTable(TableSpec spec)
+        {
+            this.spec = spec;
+            HttpUrl.Builder url = requireNonNull(baseUrl.resolve(spec.getPath()), "invalid path").newBuilder();
+            spec.getQuery().forEach(url::setQueryParameter);
+            this.url = url.build();
+
+            List<ColumnMetadata> columns = new ArrayList<>();
+            for (ColumnSpec column : spec.getColumns()) {
+                columns.add(new ColumnMetadata(column.getName(), toType(column.getType())));
+            }
+            this.columns = ImmutableList.copyOf(columns);
+            this.types = columns.stream()
+                    .map(ColumnMetadata::getType)
+                    .collect(toImmutableList());
+            this.lowCardinalityColumns = spec.getColumns().stream()
+                    .filter(ColumnSpec::isLowCardinality)
+                    .map(column -> column.getName().toLowerCase(ENGLISH))
+                    .collect(toImmutableSet());
+            this.extractor = JsonRowExtractor.compile(
+                    spec.getRows(),
+                    Optional.ofNullable(spec.getPagination().getCursorPath()),
+                    spec.getColumns().stream()
+                            .map(ColumnSpec::getPath)
+                            .collect(toImmutableList()),
+                    types);
+        }
+    }
+
+    private static Type toType(String type)
+    {
+        switch (type.toLowerCase(ENGLISH)) {
+            case "bigint":
+                return BIGINT;
+            case "double":
+                return DOUBLE;
+            case "boolean":
+                return BOOLEAN;
+            case "varchar":
+                return createUnboundedVarcharType();
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.type.Type;
+import io.trino.spi.type.VarcharType;
+import rocks.trino.rest.RowBuffer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+
+/**
+ * Extracts rows from a JSON response in a single pass over the token stream. The JSON paths of a table
+ * are compiled once into a tree keyed by field names, so reading a response only takes a hash lookup per
+ * field: fields that are not on any path are skipped without being decoded, and values are written
+ * straight into the slots of a {@link RowBuffer}, without building a document tree.
+ */
+public final class JsonRowExtractor
+{
+    private final Node responseRoot;
+    private final Node rowRoot;
+    private final List<Type> types;
+
+    private JsonRowExtractor(Node responseRoot, Node rowRoot, List<Type> types)
+    {
+        this.responseRoot = responseRoot;
+        this.rowRoot = rowRoot;
+        this.types = types;
+    }
+
+    /**
+     * @param rowsPath path of the array of rows in the response
+     * @param cursorPath path of the cursor of the next page in the response, if any
+     * @param columnPaths paths of the column values within a row
+     */
+    public static JsonRowExtractor compile(String rowsPath, Optional<String> cursorPath, List<String> columnPaths, List<Type> types)
+    {
+        checkArgument(columnPaths.size() == types.size(), "columnPaths and types sizes differ");
+        for (Type type : types) {
+            checkArgument(type.equals(BIGINT) || type.equals(DOUBLE) || type.equals(BOOLEAN) || type instanceof VarcharType, "Unsupported type: %s", type);
+        }
+
+        Node responseRoot = new Node();
+        responseRoot.add(parsePath(rowsPath)).rows = true;
+        cursorPath.ifPresent(path -> {
+            List<String> segments = parsePath(path);
+            checkArgument(!segments.isEmpty(), "Cursor path cannot be the whole response");
+            responseRoot.add(segments).cursor = true;
+        });
+
+        Node rowRoot = new Node();
+        for (int field = 0; field < columnPaths.size(); field++) {
+            List<String> segments = parsePath(columnPaths.get(field));
+            checkArgument(!segments.isEmpty(), "Column path cannot be the whole row: %s", columnPaths.get(field));
+            Node node = rowRoot.add(segments);
+            checkArgument(node.field == Node.NO_FIELD && node.children.isEmpty(), "Column path is used more than once, or within another column: %s", columnPaths.get(field));
+            node.field = field;
+        }
+        return new JsonRowExtractor(responseRoot, rowRoot, ImmutableList.copyOf(types));
+    }
+
+    static List<String> parsePath(String path)
+    {
+        checkArgument(path.matches("\\$(\\.[^.\\[\\]]+)*"), "Invalid JSON path, only $.field.field... paths are supported: %s", path);
+        if (path.equals("$")) {
+            return ImmutableList.of();
+        }
+        return Splitter.on('.').splitToList(path.substring(2));
+    }
+
+    /**
+     * Reads a whole response, calling {@link RowBuffer#endRow()} for every row.
+     */
+    public Result extract(JsonParser parser, RowBuffer rows)
+            throws IOException
+    {
+        Result result = new Result();
+        JsonToken token = parser.nextToken();
+        if (token != null) {
+            readValue(parser, token, responseRoot, rows, result);
+        }
+        return result;
+    }
+
+    private void readValue(JsonParser parser, JsonToken token, Node node, RowBuffer rows, Result result)
+            throws IOException
+    {
+        if (node.rows) {
+            if (token == JsonToken.START_ARRAY) {
+                readRows(parser, rows, result);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        else if (node.cursor) {
+            result.cursor = token.isScalarValue() && token != JsonToken.VALUE_NULL ? Optional.of(parser.getText()) : Optional.empty();
+            parser.skipChildren();
+        }
+        else if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.children.get(parser.getCurrentName());
+                JsonToken valueToken = parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                }
+                else {
+                    readValue(parser, valueToken, child, rows, result);
+                }
+            }
+        }
+        else {
+            parser.skipChildren();
+        }
+    }
+
+    private void readRows(JsonParser parser, RowBuffer rows, Result result)
+            throws IOException
+    {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                readRow(parser, rowRoot, rows);
+                rows.endRow();
+                result.rowCount++;
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readRow(JsonParser parser, Node node, RowBuffer rows)
+            throws IOException
+    {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            }
+            else if (child.field != Node.NO_FIELD) {
+                writeValue(parser, token, child.field, rows);
+            }
+            else if (token == JsonToken.START_OBJECT) {
+                readRow(parser, child, rows);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void writeValue(JsonParser parser, JsonToken token, int field, RowBuffer rows)
+            throws IOException
+    {
+        if (token == JsonToken.VALUE_NULL || !token.isScalarValue()) {
+            // nested values are not supported, so they are read as nulls
+            parser.skipChildren();
+            rows.setNull(field);
+            return;
+        }
+        Type type = types.get(field);
+        if (type.equals(BIGINT)) {
+            // some APIs send large numbers as strings, e.g. ids that do not fit into a double
+            rows.setLong(field, token == JsonToken.VALUE_STRING ? Long.parseLong(parser.getText()) : parser.getValueAsLong());
+        }
+        else if (type.equals(DOUBLE)) {
+            rows.setDouble(field, token == JsonToken.VALUE_STRING ? Double.parseDouble(parser.getText()) : parser.getValueAsDouble());
+        }
+        else if (type.equals(BOOLEAN)) {
+            rows.setBoolean(field, token == JsonToken.VALUE_STRING ? Boolean.parseBoolean(parser.getText()) : parser.getValueAsBoolean());
+        }
+        else {
+            rows.setObject(field, parser.getText());
+        }
+    }
+
+    public static class Result
+    {
+        private long rowCount;
+        private Optional<String> cursor = Optional.empty();
+
+        public long getRowCount()
+        {
+            return rowCount;
+        }
+
+        public Optional<String> getCursor()
+        {
+            return cursor;
+        }
+    }
+
+    private static class Node
+    {
+        static final int NO_FIELD = -1;
+
+        final Map<String, Node> children = new HashMap<>();
+        int field = NO_FIELD;
+        boolean rows;
+        boolean cursor;
+
+        Node add(List<String> segments)
+        {
+            Node node = this;
+            for (String segment : segments) {
+                checkArgument(node.field == NO_FIELD && !node.rows && !node.cursor, "Path goes through a value: %s", segments);
+                node = node.children.computeIfAbsent(segment, ignored -> new Node());
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic.spec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Declarative description of an API: where it is, how to authenticate, and which tables it has.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiSpec
+{
+    private final String baseUrl;
+    private final AuthSpec auth;
+    private final String schema;
+    private final List<TableSpec> tables;
+
+    @JsonCreator
+    public ApiSpec(
+            @JsonProperty("baseUrl") String baseUrl,
+            @JsonProperty("auth") AuthSpec auth,
+            @JsonProperty("schema") String schema,
+            @JsonProperty("tables") List<TableSpec> tables)
+    {
+        this.baseUrl = requireNonNull(baseUrl, "baseUrl is null");
+        this.auth = auth == null ? AuthSpec.NONE : auth;
+        this.schema = schema == null ? "default" : schema;
+        this.tables = ImmutableList.copyOf(requireNonNull(tables, "tables is null"));
+    }
+
+    public String getBaseUrl()
+    {
+        return baseUrl;
+    }
+
+    public AuthSpec getAuth()
+    {
+        return auth;
+    }
+
+    public String getSchema()
+    {
+        return schema;
+    }
+
+    public List<TableSpec> getTables()
+    {
+        return tables;
+    }
+}
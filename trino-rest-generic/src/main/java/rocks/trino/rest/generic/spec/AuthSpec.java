@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic.spec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How requests are authenticated: not at all, with a bearer token, with basic credentials,
+ * or with an arbitrary header, e.g. an API key.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AuthSpec
+{
+    public static final AuthSpec NONE = new AuthSpec(Type.NONE, null, null, null, null, null);
+
+    public enum Type
+    {
+        NONE,
+        BEARER,
+        BASIC,
+        HEADER,
+    }
+
+    private final Type type;
+    private final String token;
+    private final String user;
+    private final String password;
+    private final String header;
+    private final String value;
+
+    @JsonCreator
+    public AuthSpec(
+            @JsonProperty("type") Type type,
+            @JsonProperty("token") String token,
+            @JsonProperty("user") String user,
+            @JsonProperty("password") String password,
+            @JsonProperty("header") String header,
+            @JsonProperty("value") String value)
+    {
+        this.type = requireNonNull(type, "type is null");
+        checkArgument(type != Type.BEARER || token != null, "token is required for bearer authentication");
+        checkArgument(type != Type.BASIC || (user != null && password != null), "user and password are required for basic authentication");
+        checkArgument(type != Type.HEADER || (header != null && value != null), "header and value are required for header authentication");
+        this.token = token;
+        this.user = user;
+        this.password = password;
+        this.header = header;
+        this.value = value;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public String getToken()
+    {
+        return token;
+    }
+
+    public String getUser()
+    {
+        return user;
+    }
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+    public String getHeader()
+    {
+        return header;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+}
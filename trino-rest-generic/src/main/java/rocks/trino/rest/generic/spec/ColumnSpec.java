@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic.spec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A column with the JSON path of its value within a row, {@code $.<name>} by default.
+ * The type is one of {@code bigint}, {@code double}, {@code boolean} or {@code varchar}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ColumnSpec
+{
+    private final String name;
+    private final String type;
+    private final String path;
+    private final boolean lowCardinality;
+
+    @JsonCreator
+    public ColumnSpec(
+            @JsonProperty("name") String name,
+            @JsonProperty("type") String type,
+            @JsonProperty("path") String path,
+            @JsonProperty("lowCardinality") boolean lowCardinality)
+    {
+        this.name = requireNonNull(name, "name is null");
+        this.type = requireNonNull(type, "type is null");
+        this.path = path == null ? "$." + name : path;
+        this.lowCardinality = lowCardinality;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public boolean isLowCardinality()
+    {
+        return lowCardinality;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic.spec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How to get the following pages of an endpoint:
+ * <ul>
+ *     <li>{@code NONE} - a single request</li>
+ *     <li>{@code PAGE} - page numbers in {@code pageParam}, starting at {@code firstPage}</li>
+ *     <li>{@code OFFSET} - the number of rows read so far in {@code offsetParam}</li>
+ *     <li>{@code CURSOR} - the value at {@code cursorPath} of the response in {@code cursorParam}</li>
+ *     <li>{@code LINK} - the {@code rel="next"} URL of the {@code Link} header</li>
+ * </ul>
+ * The page size, when {@code sizeParam} is set, is sent in that parameter. Reading stops at the first empty
+ * or short page, when there is no next cursor or link, or after {@code maxPages}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PaginationSpec
+{
+    public static final PaginationSpec NONE = new PaginationSpec(Type.NONE, null, null, null, null, null, null, null, null);
+
+    public enum Type
+    {
+        NONE,
+        PAGE,
+        OFFSET,
+        CURSOR,
+        LINK,
+    }
+
+    private final Type type;
+    private final String pageParam;
+    private final int firstPage;
+    private final String offsetParam;
+    private final String cursorParam;
+    private final String cursorPath;
+    private final String sizeParam;
+    private final int pageSize;
+    private final int maxPages;
+
+    @JsonCreator
+    public PaginationSpec(
+            @JsonProperty("type") Type type,
+            @JsonProperty("pageParam") String pageParam,
+            @JsonProperty("firstPage") Integer firstPage,
+            @JsonProperty("offsetParam") String offsetParam,
+            @JsonProperty("cursorParam") String cursorParam,
+            @JsonProperty("cursorPath") String cursorPath,
+            @JsonProperty("sizeParam") String sizeParam,
+            @JsonProperty("pageSize") Integer pageSize,
+            @JsonProperty("maxPages") Integer maxPages)
+    {
+        this.type = requireNonNull(type, "type is null");
+        checkArgument(type != Type.PAGE || pageParam != null, "pageParam is required for page pagination");
+        checkArgument(type != Type.OFFSET || offsetParam != null, "offsetParam is required for offset pagination");
+        checkArgument(type != Type.CURSOR || (cursorParam != null && cursorPath != null), "cursorParam and cursorPath are required for cursor pagination");
+        this.pageParam = pageParam;
+        this.firstPage = firstPage == null ? 1 : firstPage;
+        this.offsetParam = offsetParam;
+        this.cursorParam = cursorParam;
+        this.cursorPath = cursorPath;
+        this.sizeParam = sizeParam;
+        this.pageSize = pageSize == null ? 100 : pageSize;
+        this.maxPages = maxPages == null ? 100 : maxPages;
+        checkArgument(this.pageSize > 0, "pageSize must be positive");
+        checkArgument(this.maxPages > 0, "maxPages must be positive");
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public String getPageParam()
+    {
+        return pageParam;
+    }
+
+    public int getFirstPage()
+    {
+        return firstPage;
+    }
+
+    public String getOffsetParam()
+    {
+        return offsetParam;
+    }
+
+    public String getCursorParam()
+    {
+        return cursorParam;
+    }
+
+    public String getCursorPath()
+    {
+        return cursorPath;
+    }
+
+    public String getSizeParam()
+    {
+        return sizeParam;
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    public int getMaxPages()
+    {
+        return maxPages;
+    }
+}
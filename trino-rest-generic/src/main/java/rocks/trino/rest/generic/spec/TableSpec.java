@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic.spec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A table read from a single endpoint. {@code rows} is the JSON path of the array of rows
+ * in the response, {@code $} when the response is the array itself.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TableSpec
+{
+    private final String name;
+    private final String path;
+    private final Map<String, String> query;
+    private final String rows;
+    private final PaginationSpec pagination;
+    private final List<ColumnSpec> columns;
+
+    @JsonCreator
+    public TableSpec(
+            @JsonProperty("name") String name,
+            @JsonProperty("path") String path,
+            @JsonProperty("query") Map<String, String> query,
+            @JsonProperty("rows") String rows,
+            @JsonProperty("pagination") PaginationSpec pagination,
+            @JsonProperty("columns") List<ColumnSpec> columns)
+    {
+        this.name = requireNonNull(name, "name is null");
+        this.path = requireNonNull(path, "path is null");
+        this.query = query == null ? ImmutableMap.of() : ImmutableMap.copyOf(query);
+        this.rows = rows == null ? "$" : rows;
+        this.pagination = pagination == null ? PaginationSpec.NONE : pagination;
+        this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+        checkArgument(!this.columns.isEmpty(), "Table %s has no columns", name);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public Map<String, String> getQuery()
+    {
+        return query;
+    }
+
+    public String getRows()
+    {
+        return rows;
+    }
+
+    public PaginationSpec getPagination()
+    {
+        return pagination;
+    }
+
+    public List<ColumnSpec> getColumns()
+    {
+        return columns;
+    }
+}
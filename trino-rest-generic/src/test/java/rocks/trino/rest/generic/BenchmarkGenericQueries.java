@@ -0,0 +1,295 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.trino.Session;
+import io.trino.execution.QueryStats;
+import io.trino.testing.DistributedQueryRunner;
+import io.trino.testing.MaterializedResult;
+import io.trino.testing.ResultWithQueryId;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.trino.testing.TestingSession.testSessionBuilder;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Runs a fixed mix of queries over synthetic datasets of growing sizes, served by a {@link SyntheticApi},
+ * and reports throughput, latency percentiles, HTTP requests per query and peak memory for every size.
+ * Settings are taken from system properties:
+ * <ul>
+ * <li>{@code benchmark.rows}: comma separated dataset sizes, {@code 10000,1000000} by default</li>
+ * <li>{@code benchmark.page_size}: rows per page of the API, 1000 by default</li>
+ * <li>{@code benchmark.latency}: latency of every request in milliseconds, 20 by default</li>
+ * <li>{@code benchmark.quota}: requests per second the API accepts, unlimited (0) by default</li>
+ * <li>{@code benchmark.nodes}: number of Trino nodes, 3 by default</li>
+ * <li>{@code benchmark.concurrency}: number of queries running at the same time, 8 by default</li>
+ * <li>{@code benchmark.iterations}: number of times the query mix is run for every size, 4 by default</li>
+ * <li>{@code benchmark.catalog.*}: catalog properties, e.g. {@code -Dbenchmark.catalog.cache_ttl=5m}</li>
+ * </ul>
+ */
+public final class BenchmarkGenericQueries
+{
+    public static final List<String> QUERIES = ImmutableList.of(
+            "SELECT count(*) FROM %s",
+            "SELECT category, count(*), sum(amount) FROM %s GROUP BY category",
+            "SELECT id, name FROM %s WHERE active ORDER BY amount DESC, id LIMIT 10",
+            "SELECT max(id) FROM %s WHERE name LIKE 'name_1%%'");
+
+    private BenchmarkGenericQueries() {}
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        List<Result> results = run(
+                parseRows(System.getProperty("benchmark.rows", "10000,1000000")),
+                Integer.getInteger("benchmark.page_size", 1000),
+                Duration.ofMillis(Long.getLong("benchmark.latency", 20)),
+                Integer.getInteger("benchmark.quota", 0),
+                Integer.getInteger("benchmark.nodes", 3),
+                Integer.getInteger("benchmark.concurrency", 8),
+                Integer.getInteger("benchmark.iterations", 4),
+                getCatalogProperties());
+
+        System.out.println(format("%12s %8s %10s %10s %10s %10s %12s %10s %14s %12s",
+                "rows", "queries", "queries/s", "p50 ms", "p90 ms", "p99 ms", "requests/q", "throttled", "query peak MB", "heap peak MB"));
+        for (Result result : results) {
+            System.out.println(format("%12s %8s %10.2f %10s %10s %10s %12.1f %10s %14.1f %12.1f",
+                    result.getRows(),
+                    result.getQueries(),
+                    result.getThroughput(),
+                    result.getLatencyPercentile(0.5).toMillis(),
+                    result.getLatencyPercentile(0.9).toMillis(),
+                    result.getLatencyPercentile(0.99).toMillis(),
+                    result.getRequestsPerQuery(),
+                    result.getThrottledRequests(),
+                    result.getPeakQueryMemoryBytes() / 1024.0 / 1024.0,
+                    result.getPeakHeapBytes() / 1024.0 / 1024.0));
+        }
+    }
+
+    public static List<Result> run(
+            List<Long> sizes,
+            int pageSize,
+            Duration latency,
+            int requestsPerSecond,
+            int nodes,
+            int concurrency,
+            int iterations,
+            Map<String, String> catalogProperties)
+            throws Exception
+    {
+        Map<String, Long> datasets = new LinkedHashMap<>();
+        for (long rows : sizes) {
+            datasets.put(tableName(rows), rows);
+        }
+        ImmutableList.Builder<Result> results = ImmutableList.builder();
+        try (SyntheticApi api = new SyntheticApi(datasets, pageSize, latency, requestsPerSecond);
+                DistributedQueryRunner queryRunner = createQueryRunner(api, nodes, catalogProperties)) {
+            ExecutorService executor = newFixedThreadPool(concurrency);
+            try {
+                for (long rows : sizes) {
+                    results.add(run(queryRunner, api, executor, rows, iterations));
+                }
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+        return results.build();
+    }
+
+    private static Result run(DistributedQueryRunner queryRunner, SyntheticApi api, ExecutorService executor, long rows, int iterations)
+            throws Exception
+    {
+        Session session = queryRunner.getDefaultSession();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong peakQueryMemory = new AtomicLong();
+        long requests = api.getRequestCount();
+        long throttled = api.getThrottledRequestCount();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String query : QUERIES) {
+                String sql = format(query, tableName(rows));
+                futures.add(executor.submit(() -> {
+                    long queryStart = System.nanoTime();
+                    ResultWithQueryId<MaterializedResult> result = queryRunner.executeWithQueryId(session, sql);
+                    latencies.add(System.nanoTime() - queryStart);
+                    checkState(!result.getResult().getMaterializedRows().isEmpty(), "No rows returned by %s", sql);
+                    QueryStats stats = queryRunner.getCoordinator().getQueryManager().getFullQueryInfo(result.getQueryId()).getQueryStats();
+                    peakQueryMemory.accumulateAndGet(stats.getPeakTotalMemoryReservation().toBytes(), Math::max);
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        return new Result(
+                rows,
+                latencies,
+                Duration.ofNanos(elapsed),
+                api.getRequestCount() - requests,
+                api.getThrottledRequestCount() - throttled,
+                peakQueryMemory.get(),
+                peakHeap);
+    }
+
+    public static DistributedQueryRunner createQueryRunner(SyntheticApi api, int nodes, Map<String, String> catalogProperties)
+            throws Exception
+    {
+        File spec = File.createTempFile("synthetic", ".json");
+        spec.deleteOnExit();
+        api.writeSpec(spec);
+
+        Session session = testSessionBuilder()
+                .setCatalog("rest")
+                .setSchema("synthetic")
+                .build();
+        DistributedQueryRunner queryRunner = DistributedQueryRunner.builder(session)
+                .setNodeCount(nodes)
+                .build();
+        try {
+            queryRunner.installPlugin(new GenericPlugin());
+            queryRunner.createCatalog("rest", "rest", ImmutableMap.<String, String>builder()
+                    .putAll(catalogProperties)
+                    .put("spec_file", spec.getAbsolutePath())
+                    .build());
+        }
+        catch (RuntimeException e) {
+            queryRunner.close();
+            throw e;
+        }
+        return queryRunner;
+    }
+
+    public static String tableName(long rows)
+    {
+        return "rows_" + rows;
+    }
+
+    private static List<Long> parseRows(String value)
+    {
+        ImmutableList.Builder<Long> result = ImmutableList.builder();
+        for (String rows : value.split(",")) {
+            result.add(Long.parseLong(rows.trim()));
+        }
+        return result.build();
+    }
+
+    private static Map<String, String> getCatalogProperties()
+    {
+        String prefix = "benchmark.catalog.";
+        ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(prefix))
+                .forEach(name -> result.put(name.substring(prefix.length()), System.getProperty(name)));
+        return result.build();
+    }
+
+    public static class Result
+    {
+        private final long rows;
+        private final List<Long> latenciesNanos;
+        private final Duration elapsed;
+        private final long requests;
+        private final long throttledRequests;
+        private final long peakQueryMemoryBytes;
+        private final long peakHeapBytes;
+
+        public Result(long rows, List<Long> latenciesNanos, Duration elapsed, long requests, long throttledRequests, long peakQueryMemoryBytes, long peakHeapBytes)
+        {
+            this.rows = rows;
+            List<Long> sorted = new ArrayList<>(latenciesNanos);
+            Collections.sort(sorted);
+            this.latenciesNanos = ImmutableList.copyOf(sorted);
+            this.elapsed = elapsed;
+            this.requests = requests;
+            this.throttledRequests = throttledRequests;
+            this.peakQueryMemoryBytes = peakQueryMemoryBytes;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public int getQueries()
+        {
+            return latenciesNanos.size();
+        }
+
+        public double getThroughput()
+        {
+            return latenciesNanos.size() / (elapsed.toNanos() / 1e9);
+        }
+
+        public Duration getLatencyPercentile(double percentile)
+        {
+            int index = (int) Math.ceil(percentile * latenciesNanos.size()) - 1;
+            return Duration.ofNanos(latenciesNanos.get(Math.max(0, index)));
+        }
+
+        public long getRequests()
+        {
+            return requests;
+        }
+
+        public double getRequestsPerQuery()
+        {
+            return (double) requests / latenciesNanos.size();
+        }
+
+        public long getThrottledRequests()
+        {
+            return throttledRequests;
+        }
+
+        public long getPeakQueryMemoryBytes()
+        {
+            return peakQueryMemoryBytes;
+        }
+
+        public long getPeakHeapBytes()
+        {
+            return peakHeapBytes;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Local stand-in for a paginated JSON API, serving synthetic datasets of a given number of rows
+ * at {@code /datasets/<name>?page=N&per_page=M}. Every request waits for {@code latency}, and requests
+ * over {@code requestsPerSecond} are rejected with 429, as a rate limited API would do.
+ * Rows are generated on the fly, so datasets of any size take no memory.
+ */
+public class SyntheticApi
+        implements Closeable
+{
+    public static final int CATEGORIES = 16;
+
+    private final Map<String, Long> datasets;
+    private final int pageSize;
+    private final long latencyMillis;
+    private final int requestsPerSecond;
+    private final HttpServer server;
+    private final ExecutorService executor = newCachedThreadPool();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong quotaWindow = new AtomicLong();
+    private final AtomicLong quotaWindowRequests = new AtomicLong();
+
+    /**
+     * @param requestsPerSecond quota of requests, 0 for no quota
+     */
+    public SyntheticApi(Map<String, Long> datasets, int pageSize, Duration latency, int requestsPerSecond)
+            throws IOException
+    {
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkArgument(requestsPerSecond >= 0, "requestsPerSecond is negative");
+        this.datasets = ImmutableMap.copyOf(datasets);
+        this.pageSize = pageSize;
+        this.latencyMillis = latency.toMillis();
+        this.requestsPerSecond = requestsPerSecond;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/datasets/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl()
+    {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    public long getThrottledRequestCount()
+    {
+        return throttledRequests.get();
+    }
+
+    /**
+     * Writes the spec of a schema with a table per dataset.
+     */
+    public void writeSpec(File file)
+            throws IOException
+    {
+        String tables = datasets.entrySet().stream()
+                .map(dataset -> "{" +
+                        "\"name\": \"" + dataset.getKey() + "\", " +
+                        "\"path\": \"/datasets/" + dataset.getKey() + "\", " +
+                        "\"rows\": \"$.items\", " +
+                        "\"pagination\": {\"type\": \"page\", \"pageParam\": \"page\", \"sizeParam\": \"per_page\", " +
+                        "\"pageSize\": " + pageSize + ", \"maxPages\": " + (dataset.getValue() / pageSize + 1) + "}, " +
+                        "\"columns\": [" +
+                        "{\"name\": \"id\", \"type\": \"bigint\"}, " +
+                        "{\"name\": \"category\", \"type\": \"varchar\", \"lowCardinality\": true}, " +
+                        "{\"name\": \"amount\", \"type\": \"double\", \"path\": \"$.stats.amount\"}, " +
+                        "{\"name\": \"active\", \"type\": \"boolean\"}, " +
+                        "{\"name\": \"name\", \"type\": \"varchar\"}]}")
+                .collect(joining(", "));
+        Files.writeString(file.toPath(), "{\"baseUrl\": \"" + getBaseUrl() + "\", \"schema\": \"synthetic\", \"tables\": [" + tables + "]}");
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        requests.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquireQuota()) {
+            throttledRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "{\"message\": \"rate limit exceeded\"}");
+            return;
+        }
+
+        Long rows = datasets.get(exchange.getRequestURI().getPath().substring("/datasets/".length()));
+        if (rows == null) {
+            respond(exchange, 404, "{\"message\": \"not found\"}");
+            return;
+        }
+        Map<String, String> query = getQuery(exchange);
+        long page = Long.parseLong(query.getOrDefault("page", "1"));
+        long size = Long.parseLong(query.getOrDefault("per_page", String.valueOf(pageSize)));
+        long start = (page - 1) * size;
+        long end = Math.min(start + size, rows);
+
+        StringBuilder body = new StringBuilder("{\"items\": [");
+        for (long id = start; id < end; id++) {
+            if (id > start) {
+                body.append(", ");
+            }
+            body.append("{\"id\": ").append(id)
+                    .append(", \"category\": \"category_").append(id % CATEGORIES)
+                    .append("\", \"stats\": {\"amount\": ").append(amount(id))
+                    .append("}, \"active\": ").append(id % 3 == 0)
+                    .append(", \"name\": \"name_").append(id)
+                    .append("\", \"ignored\": [1, 2, 3]}");
+        }
+        respond(exchange, 200, body.append("]}").toString());
+    }
+
+    public static double amount(long id)
+    {
+        return (id * 7919 % 100_000) / 100.0;
+    }
+
+    private boolean acquireQuota()
+    {
+        if (requestsPerSecond == 0) {
+            return true;
+        }
+        long window = System.nanoTime() / 1_000_000_000;
+        if (quotaWindow.getAndSet(window) != window) {
+            quotaWindowRequests.set(0);
+        }
+        return quotaWindowRequests.incrementAndGet() <= requestsPerSecond;
+    }
+
+    private static Map<String, String> getQuery(HttpExchange exchange)
+    {
+        ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                String[] nameAndValue = parameter.split("=", 2);
+                result.put(nameAndValue[0], nameAndValue.length > 1 ? nameAndValue[1] : "");
+            }
+        }
+        return result.build();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException
+    {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.trino.testing.DistributedQueryRunner;
+import io.trino.testing.MaterializedResult;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Keeps the benchmark working, and checks the results of its queries on a small dataset.
+ */
+public class TestBenchmarkGenericQueries
+{
+    private static final long ROWS = 2500;
+
+    @Test
+    public void testQueries()
+            throws Exception
+    {
+        try (SyntheticApi api = new SyntheticApi(ImmutableMap.of("rows_2500", ROWS), 1000, Duration.ZERO, 0);
+                DistributedQueryRunner queryRunner = BenchmarkGenericQueries.createQueryRunner(api, 2, ImmutableMap.of())) {
+            assertEquals(execute(queryRunner, 0).getOnlyValue(), ROWS);
+            assertEquals(execute(queryRunner, 1).getRowCount(), SyntheticApi.CATEGORIES);
+            assertEquals(execute(queryRunner, 2).getRowCount(), 10);
+            assertEquals(
+                    execute(queryRunner, 3).getOnlyValue(),
+                    LongStream.range(0, ROWS).filter(id -> ("name_" + id).startsWith("name_1")).max().getAsLong());
+            // every scan reads all the pages, and the last one is not full
+            assertEquals(api.getRequestCount(), 4 * 3);
+        }
+    }
+
+    @Test
+    public void testRun()
+            throws Exception
+    {
+        List<BenchmarkGenericQueries.Result> results = BenchmarkGenericQueries.run(ImmutableList.of(100L, 1000L), 100, Duration.ofMillis(1), 0, 2, 2, 1, ImmutableMap.of());
+        assertEquals(results.size(), 2);
+        for (BenchmarkGenericQueries.Result result : results) {
+            assertEquals(result.getQueries(), BenchmarkGenericQueries.QUERIES.size());
+            assertTrue(result.getRequests() > 0);
+            assertTrue(result.getLatencyPercentile(0.5).compareTo(result.getLatencyPercentile(0.99)) <= 0);
+        }
+    }
+
+    private static MaterializedResult execute(DistributedQueryRunner queryRunner, int query)
+    {
+        return queryRunner.execute(String.format(BenchmarkGenericQueries.QUERIES.get(query), "rows_2500"));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.trino.spi.connector.SchemaTableName;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.generic.spec.ApiSpec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+public class TestGenericRest
+{
+    private static final int ITEMS = 25;
+    private static final int PAGE_SIZE = 10;
+
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private GenericRest rest;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/pages", exchange -> {
+            int page = Integer.parseInt(getQuery(exchange).get("page"));
+            int size = Integer.parseInt(getQuery(exchange).get("per_page"));
+            respond(exchange, 200, ImmutableMap.of(), "{\"items\": " + items((page - 1) * size, page * size) + "}");
+        });
+        server.createContext("/offsets", exchange -> {
+            int offset = Integer.parseInt(getQuery(exchange).get("offset"));
+            respond(exchange, 200, ImmutableMap.of(), items(offset, offset + PAGE_SIZE));
+        });
+        server.createContext("/cursors", exchange -> {
+            String cursor = getQuery(exchange).getOrDefault("cursor", "0");
+            int start = Integer.parseInt(cursor);
+            String next = start + PAGE_SIZE < ITEMS ? "\"" + (start + PAGE_SIZE) + "\"" : "null";
+            respond(exchange, 200, ImmutableMap.of(), "{\"data\": " + items(start, start + PAGE_SIZE) + ", \"meta\": {\"next_cursor\": " + next + "}}");
+        });
+        server.createContext("/links", exchange -> {
+            int start = Integer.parseInt(getQuery(exchange).getOrDefault("since", "0"));
+            Map<String, String> headers = start + PAGE_SIZE < ITEMS
+                    ? ImmutableMap.of("Link", "</links?since=" + (start + PAGE_SIZE) + ">; rel=\"next\", </links?since=0>; rel=\"first\"")
+                    : ImmutableMap.of();
+            respond(exchange, 200, headers, items(start, start + PAGE_SIZE));
+        });
+        server.createContext("/failing", exchange -> respond(exchange, 404, ImmutableMap.of(), "{}"));
+        server.start();
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        File spec = File.createTempFile("spec", ".json");
+        spec.deleteOnExit();
+        Files.writeString(spec.toPath(), "{" +
+                "\"baseUrl\": \"" + baseUrl + "\", " +
+                "\"schema\": \"test\", " +
+                "\"auth\": {\"type\": \"bearer\", \"token\": \"secret\"}, " +
+                "\"tables\": [" +
+                table("pages", "/pages", "$.items", "{\"type\": \"page\", \"pageParam\": \"page\", \"sizeParam\": \"per_page\", \"pageSize\": " + PAGE_SIZE + "}") + ", " +
+                table("offsets", "/offsets", "$", "{\"type\": \"offset\", \"offsetParam\": \"offset\"}") + ", " +
+                table("cursors", "/cursors", "$.data", "{\"type\": \"cursor\", \"cursorParam\": \"cursor\", \"cursorPath\": \"$.meta.next_cursor\"}") + ", " +
+                table("links", "/links", "$", "{\"type\": \"link\"}") + ", " +
+                table("failing", "/failing", "$", "{\"type\": \"none\"}") +
+                "]}");
+        ApiSpec apiSpec = GenericPlugin.readSpec(spec);
+        rest = new GenericRest(apiSpec, HttpClientConfig.fromConfig(ImmutableMap.of("max_retries", "0")));
+    }
+
+    private static String table(String name, String path, String rows, String pagination)
+    {
+        return "{\"name\": \"" + name + "\", \"path\": \"" + path + "\", \"rows\": \"" + rows + "\", \"pagination\": " + pagination + ", \"columns\": [" +
+                "{\"name\": \"id\", \"type\": \"bigint\"}, " +
+                "{\"name\": \"login\", \"type\": \"varchar\", \"path\": \"$.user.login\", \"lowCardinality\": true}]}";
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testMetadata()
+    {
+        assertEquals(rest.listSchemas(), ImmutableList.of("test"));
+        assertEquals(rest.listTables("test").size(), 5);
+        assertEquals(rest.listTables("other"), ImmutableList.of());
+
+        SchemaTableName table = new SchemaTableName("test", "pages");
+        assertEquals(rest.getTableMetadata(table).getColumns().get(0).getType(), BIGINT);
+        assertEquals(rest.getTableMetadata(table).getColumns().get(1).getType(), createUnboundedVarcharType());
+        assertEquals(rest.getLowCardinalityColumns(table), ImmutableSet.of("login"));
+        assertThrows(IllegalArgumentException.class, () -> rest.getTableMetadata(new SchemaTableName("test", "missing")));
+    }
+
+    @Test
+    public void testPagination()
+    {
+        List<List<?>> expected = IntStream.range(0, ITEMS)
+                .mapToObj(id -> Arrays.asList((long) id, id % 2 == 0 ? "user" + (id % 3) : null))
+                .collect(Collectors.toList());
+        for (String table : new String[] {"pages", "offsets", "cursors", "links"}) {
+            authorizations.clear();
+            assertEquals(ImmutableList.copyOf(rest.getRows(new SchemaTableName("test", table))), expected, table);
+            assertEquals(ImmutableSet.copyOf(authorizations), ImmutableSet.of("Bearer secret"), table);
+        }
+    }
+
+    @Test
+    public void testFailure()
+    {
+        assertThrows(IllegalStateException.class, () -> rest.getRows(new SchemaTableName("test", "failing")));
+    }
+
+    private static String items(int start, int end)
+    {
+        return IntStream.range(start, Math.min(end, ITEMS))
+                .mapToObj(id -> "{\"id\": " + id + ", \"user\": " + (id % 2 == 0 ? "{\"login\": \"user" + (id % 3) + "\"}" : "null") + ", \"body\": [1, 2, 3]}")
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static Map<String, String> getQuery(HttpExchange exchange)
+    {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return ImmutableMap.of();
+        }
+        return Arrays.stream(query.split("&"))
+                .map(parameter -> parameter.split("=", 2))
+                .collect(Collectors.toMap(parameter -> parameter[0], parameter -> parameter[1]));
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, String> headers, String body)
+            throws IOException
+    {
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        byte[] bytes = body.getBytes(UTF_8);
+        headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.generic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.collect.ImmutableList;
+import io.trino.spi.type.Type;
+import org.testng.annotations.Test;
+import rocks.trino.rest.RowBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static io.trino.spi.type.BigintType.BIGINT;
+import static io.trino.spi.type.BooleanType.BOOLEAN;
+import static io.trino.spi.type.DoubleType.DOUBLE;
+import static io.trino.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+public class TestJsonRowExtractor
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, VARCHAR, DOUBLE, BOOLEAN, VARCHAR);
+
+    @Test
+    public void testExtract()
+            throws IOException
+    {
+        JsonRowExtractor extractor = JsonRowExtractor.compile(
+                "$.data.items",
+                Optional.of("$.meta.next"),
+                ImmutableList.of("$.id", "$.name", "$.stats.score", "$.active", "$.owner.login"),
+                TYPES);
+        List<List<Object>> rows = new ArrayList<>();
+        JsonRowExtractor.Result result = extract(
+                extractor,
+                TYPES,
+                "{\"meta\": {\"next\": \"abc\", \"total\": 3}, \"data\": {\"items\": [" +
+                        "{\"id\": 1, \"name\": \"first\", \"stats\": {\"score\": 1.5, \"other\": [1, 2]}, \"active\": true, \"owner\": {\"login\": \"alice\"}}," +
+                        "{\"ignored\": {\"id\": 5}, \"id\": \"2\", \"name\": null, \"active\": false, \"owner\": null}," +
+                        "{\"name\": {\"nested\": \"value\"}, \"stats\": {\"score\": \"2.5\"}, \"extra\": [{\"id\": 7}]}" +
+                        "]}}",
+                rows);
+
+        assertEquals(result.getRowCount(), 3);
+        assertEquals(result.getCursor(), Optional.of("abc"));
+        assertEquals(rows, ImmutableList.of(
+                Arrays.asList(1L, "first", 1.5, true, "alice"),
+                Arrays.asList(2L, null, null, false, null),
+                Arrays.asList(null, null, 2.5, null, null)));
+    }
+
+    @Test
+    public void testTopLevelArray()
+            throws IOException
+    {
+        JsonRowExtractor extractor = JsonRowExtractor.compile("$", Optional.empty(), ImmutableList.of("$.id"), ImmutableList.of(BIGINT));
+        List<List<Object>> rows = new ArrayList<>();
+        JsonRowExtractor.Result result = extract(extractor, ImmutableList.of(BIGINT), "[{\"id\": 1}, 5, {\"id\": 2}, []]", rows);
+
+        assertEquals(result.getRowCount(), 2);
+        assertEquals(result.getCursor(), Optional.empty());
+        assertEquals(rows, ImmutableList.of(ImmutableList.of(1L), ImmutableList.of(2L)));
+    }
+
+    @Test
+    public void testInvalidPaths()
+    {
+        assertThrows(IllegalArgumentException.class, () -> JsonRowExtractor.parsePath("data.items"));
+        assertThrows(IllegalArgumentException.class, () -> JsonRowExtractor.parsePath("$.items[0]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonRowExtractor.parsePath("$..items"));
+        assertEquals(JsonRowExtractor.parsePath("$"), ImmutableList.of());
+        assertEquals(JsonRowExtractor.parsePath("$.a.b"), ImmutableList.of("a", "b"));
+
+        // a column cannot be both a value and an object with other columns
+        assertThrows(IllegalArgumentException.class, () -> JsonRowExtractor.compile(
+                "$",
+                Optional.empty(),
+                ImmutableList.of("$.owner", "$.owner.login"),
+                ImmutableList.of(VARCHAR, VARCHAR)));
+    }
+
+    private static JsonRowExtractor.Result extract(JsonRowExtractor extractor, List<Type> types, String json, List<List<Object>> rows)
+            throws IOException
+    {
+        RowBuffer buffer = new RowBuffer(types, row -> {
+            List<Object> values = new ArrayList<>();
+            for (int field = 0; field < row.getTypes().size(); field++) {
+                values.add(getValue(row, field));
+            }
+            rows.add(values);
+        });
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return extractor.extract(parser, buffer);
+        }
+    }
+
+    private static Object getValue(RowBuffer row, int field)
+    {
+        if (row.isNull(field)) {
+            return null;
+        }
+        Type type = row.getTypes().get(field);
+        if (type.equals(BIGINT)) {
+            return row.getLong(field);
+        }
+        if (type.equals(DOUBLE)) {
+            return row.getDouble(field);
+        }
+        if (type.equals(BOOLEAN)) {
+            return row.getBoolean(field);
+        }
+        return row.getObject(field);
+    }
+}
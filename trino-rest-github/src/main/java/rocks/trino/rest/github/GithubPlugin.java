@@ -11,20 +11,74 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package rocks.trino.rest.github;
 
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import io.trino.spi.NodeManager;
 import io.trino.spi.Plugin;
 import io.trino.spi.connector.ConnectorFactory;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.RestConnectorFactory;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+import static java.util.Locale.ENGLISH;
+import static rocks.trino.rest.Configs.getDataSize;
+import static rocks.trino.rest.Configs.getDouble;
+import static rocks.trino.rest.Configs.getDuration;
+import static rocks.trino.rest.Configs.getList;
+import static rocks.trino.rest.Configs.getLong;
+
 public class GithubPlugin
         implements Plugin
 {
     @Override
     public Iterable<ConnectorFactory> getConnectorFactories()
     {
-        return ImmutableList.of(new RestConnectorFactory("github", config -> new GithubRest()));
+        return ImmutableList.of(new RestConnectorFactory(
+                "github",
+                (config, nodeManager) -> new GithubRest(
+                        getList(config, "token"),
+                        GithubTransport.valueOf(config.getOrDefault("transport", "rest").toUpperCase(ENGLISH)),
+                        toIntExact(getLong(config, "graphql_batch_size", 20)),
+                        Splitter.on(',').trimResults().omitEmptyStrings().splitToList(config.getOrDefault("repositories", GithubRest.DEFAULT_REPOSITORY)),
+                        Optional.ofNullable(config.get("organization")),
+                        getDuration(config, "metadata_refresh_interval", Duration.ofMinutes(5)),
+                        getDouble(config, "metadata_refresh_jitter", 0.1),
+                        HttpClientConfig.fromConfig(config),
+                        createWebhookReceiver(config, nodeManager))));
+    }
+
+    private static Optional<WebhookReceiver> createWebhookReceiver(Map<String, String> config, NodeManager nodeManager)
+    {
+        if (!config.containsKey("webhook_port")) {
+            return Optional.empty();
+        }
+        String secret = config.getOrDefault("webhook_secret", "");
+        checkArgument(!secret.isEmpty(), "webhook_secret is required to receive webhooks");
+        return Optional.of(new WebhookReceiver(
+                toIntExact(getLong(config, "webhook_port", 0)),
+                secret,
+                toIntExact(getLong(config, "webhook_buffer_size", 10_000)),
+                // issue and pull request payloads are often tens of KB, so the memory runs out before the count
+                getDataSize(config, "webhook_buffer_max_memory", 64L << 20),
+                () -> isWorker(nodeManager)));
+    }
+
+    /**
+     * Whether the node gets the splits of node-local tables, which are only pinned to the workers, so a coordinator
+     * that does not schedule splits on itself refuses deliveries instead of keeping events that are never read.
+     * Checked on every delivery, as the workers may not have been discovered yet when the catalog is created.
+     */
+    private static boolean isWorker(NodeManager nodeManager)
+    {
+        String nodeId = nodeManager.getCurrentNode().getNodeIdentifier();
+        return nodeManager.getWorkerNodes().stream()
+                .anyMatch(node -> node.getNodeIdentifier().equals(nodeId));
     }
 }
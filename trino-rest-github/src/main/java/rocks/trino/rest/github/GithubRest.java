@@ -11,50 +11,263 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package rocks.trino.rest.github;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import io.trino.spi.connector.ColumnMetadata;
 import io.trino.spi.connector.ConnectorTableMetadata;
 import io.trino.spi.connector.SchemaTableName;
 import io.trino.spi.type.BigintType;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.jackson.JacksonConverterFactory;
+import rocks.trino.rest.CredentialPool;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.HttpClients;
+import rocks.trino.rest.QuotaLease;
 import rocks.trino.rest.Rest;
+import rocks.trino.rest.RestColumnHandle;
+import rocks.trino.rest.RestPartition;
+import rocks.trino.rest.RestSortItem;
+import rocks.trino.rest.RowBuffer;
+import rocks.trino.rest.SnapshotRefresher;
 import rocks.trino.rest.github.model.Issue;
+import rocks.trino.rest.github.model.RateLimitStatus;
+import rocks.trino.rest.github.model.Repository;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static io.trino.spi.type.TimestampType.TIMESTAMP_MILLIS;
 import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static rocks.trino.rest.HttpClients.newClientBuilder;
+import static rocks.trino.rest.SnapshotRefresher.describeChanges;
 
 public class GithubRest
         implements Rest
 {
     public static final String SCHEMA_NAME = "default";
+    /**
+     * Issues of all the repositories, read with one split per repository.
+     */
+    public static final String ISSUES_TABLE = "issues";
+    /**
+     * Latest webhook deliveries received by every worker, when the webhook receiver is enabled.
+     */
+    public static final String EVENTS_TABLE = "events";
+
+    /**
+     * Repository read when none are configured, whose table keeps the name it had before
+     * the repositories became configurable.
+     */
+    public static final String DEFAULT_REPOSITORY = "prestodb/presto";
+    private static final String DEFAULT_REPOSITORY_TABLE = "prestodb_issues";
+
+    /**
+     * Number of the most recently created open issues listed for every repository, the default page size of GitHub.
+     */
+    static final int ISSUES_PAGE_SIZE = 30;
+
+    private static final Logger log = Logger.getLogger(GithubRest.class.getName());
+
+    /**
+     * How long the remaining quota is reused, so that planning many queries does not read it for every one of them.
+     */
+    private static final Duration REMAINING_QUOTA_TTL = Duration.ofSeconds(10);
+
+    private static final int REPOSITORIES_PAGE_SIZE = 100;
+    private static final Joiner REPOSITORY_JOINER = Joiner.on(',');
+    private static final Splitter REPOSITORY_SPLITTER = Splitter.on(',');
+    private static final Set<String> ISSUE_EVENTS = ImmutableSet.of("issues", "pull_request");
+
+    private final GithubService service;
+    private final List<GithubService> tokenServices;
+    private final Supplier<Optional<QuotaLease>> remainingQuota;
+    private final IssueFetcher issueFetcher;
+    private final List<String> configuredRepositories;
+    private final Optional<String> organization;
+    private final SnapshotRefresher<List<String>> repositories;
+    private final Optional<WebhookReceiver> webhookReceiver;
+    private final List<Consumer<SchemaTableName>> changeListeners = new CopyOnWriteArrayList<>();
+
+    public GithubRest(
+            List<String> tokens,
+            GithubTransport transport,
+            int graphqlBatchSize,
+            List<String> configuredRepositories,
+            Optional<String> organization,
+            Duration metadataRefreshInterval,
+            double metadataRefreshJitter,
+            HttpClientConfig httpClientConfig,
+            Optional<WebhookReceiver> webhookReceiver)
+    {
+        this.service = createService(requireNonNull(tokens, "tokens is null"), httpClientConfig);
+        // the quota of the REST API is counted in requests, so it can be shared out among the splits,
+        // unlike the points of the GraphQL API
+        this.tokenServices = transport == GithubTransport.REST
+                ? tokens.stream()
+                        .map(token -> createService(ImmutableList.of(token), httpClientConfig))
+                        .collect(toImmutableList())
+                : ImmutableList.of();
+        this.remainingQuota = Suppliers.memoizeWithExpiration(this::readRemainingQuota, REMAINING_QUOTA_TTL.toMillis(), MILLISECONDS);
+        switch (transport) {
+            case REST:
+                this.issueFetcher = new RestIssueFetcher(service);
+                break;
+            case GRAPHQL:
+                checkArgument(!tokens.isEmpty(), "GitHub GraphQL API requires a token");
+                this.issueFetcher = new GraphqlIssueFetcher(service, graphqlBatchSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported transport: " + transport);
+        }
+        this.configuredRepositories = ImmutableList.copyOf(requireNonNull(configuredRepositories, "configuredRepositories is null"));
+        for (String repository : configuredRepositories) {
+            checkArgument(repository.matches("[\\w.-]+/[\\w.-]+"), "Repository must be in the owner/name format: %s", repository);
+        }
+        groupByTableName(configuredRepositories).forEach((table, sharing) -> checkArgument(
+                sharing.size() == 1,
+                "Repositories %s would have the same table name %s",
+                sharing,
+                table));
+        this.organization = requireNonNull(organization, "organization is null");
+        this.repositories = new SnapshotRefresher<>(
+                "github-repositories",
+                this::loadRepositories,
+                (previous, current) -> describeChanges("repositories", previous, current),
+                metadataRefreshInterval,
+                metadataRefreshJitter);
+        this.webhookReceiver = requireNonNull(webhookReceiver, "webhookReceiver is null");
+        webhookReceiver.ifPresent(receiver -> receiver.addListener(this::invalidateIssues));
+    }
+
+    private void invalidateIssues(WebhookEvent event)
+    {
+        // the issues API lists pull requests as well
+        if (event.getRepository().isEmpty() || !ISSUE_EVENTS.contains(event.getEvent())) {
+            return;
+        }
+        for (Consumer<SchemaTableName> listener : changeListeners) {
+            listener.accept(new SchemaTableName(SCHEMA_NAME, ISSUES_TABLE));
+            listener.accept(new SchemaTableName(SCHEMA_NAME, issuesTableName(event.getRepository().get())));
+        }
+    }
+
+    @Override
+    public void addChangeListener(Consumer<SchemaTableName> listener)
+    {
+        changeListeners.add(requireNonNull(listener, "listener is null"));
+    }
 
-    private final GithubService service = new Retrofit.Builder()
-            .baseUrl("https://api.github.com/")
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(GithubService.class);
+    private static GithubService createService(List<String> tokens, HttpClientConfig httpClientConfig)
+    {
+        OkHttpClient.Builder client = newClientBuilder(httpClientConfig);
+        if (!tokens.isEmpty()) {
+            // every token has its own rate limit, so requests are spread over all of them
+            client.addInterceptor(new CredentialPool(tokens.stream()
+                    .map(token -> (Interceptor) chain -> chain.proceed(chain.request().newBuilder()
+                            .header("Authorization", "token " + token)
+                            .build()))
+                    .collect(toImmutableList())));
+        }
+        return HttpClients.createService(GithubService.class, "https://api.github.com/", client.build(), httpClientConfig);
+    }
+
+    private List<String> loadRepositories()
+    {
+        ImmutableList.Builder<String> result = ImmutableList.builder();
+        result.addAll(configuredRepositories);
+        organization.ifPresent(org -> result.addAll(listOrganizationRepositories(org)));
+        return result.build().stream()
+                .distinct()
+                .sorted()
+                .collect(toImmutableList());
+    }
+
+    private List<String> listOrganizationRepositories(String organization)
+    {
+        ImmutableList.Builder<String> result = ImmutableList.builder();
+        try {
+            for (int page = 1; ; page++) {
+                Response<List<Repository>> execute = service.listOrganizationRepositories(organization, REPOSITORIES_PAGE_SIZE, page).execute();
+                if (!execute.isSuccessful()) {
+                    throw new IllegalStateException("Unable to list repositories of '" + organization + "': " + execute.message());
+                }
+                List<Repository> repositories = execute.body();
+                repositories.forEach(repository -> result.add(repository.getFullName()));
+                if (repositories.size() < REPOSITORIES_PAGE_SIZE) {
+                    return result.build();
+                }
+            }
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
 
     @Override
     public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
     {
+        if (isEventsTable(schemaTableName)) {
+            return new ConnectorTableMetadata(
+                    schemaTableName,
+                    ImmutableList.of(
+                            new ColumnMetadata("delivery_id", createUnboundedVarcharType()),
+                            new ColumnMetadata("event", createUnboundedVarcharType()),
+                            new ColumnMetadata("action", createUnboundedVarcharType()),
+                            new ColumnMetadata("repository", createUnboundedVarcharType()),
+                            new ColumnMetadata("sender", createUnboundedVarcharType()),
+                            new ColumnMetadata("received_at", TIMESTAMP_MILLIS),
+                            new ColumnMetadata("payload", createUnboundedVarcharType())));
+        }
         return new ConnectorTableMetadata(
                 schemaTableName,
                 ImmutableList.of(
                         new ColumnMetadata("number", BigintType.BIGINT),
                         new ColumnMetadata("state", createUnboundedVarcharType()),
                         new ColumnMetadata("user", createUnboundedVarcharType()),
-                        new ColumnMetadata("title", createUnboundedVarcharType())));
+                        new ColumnMetadata("title", createUnboundedVarcharType()),
+                        new ColumnMetadata("repository", createUnboundedVarcharType())));
+    }
+
+    @Override
+    public Set<String> getLowCardinalityColumns(SchemaTableName schemaTableName)
+    {
+        if (isEventsTable(schemaTableName)) {
+            return ImmutableSet.of("event", "action", "repository", "sender");
+        }
+        return ImmutableSet.of("state", "user", "repository");
     }
 
     @Override
@@ -66,25 +279,211 @@ public class GithubRest
     @Override
     public List<SchemaTableName> listTables(String schema)
     {
-        return ImmutableList.of(new SchemaTableName(SCHEMA_NAME, "prestodb_issues"));
+        ImmutableList.Builder<SchemaTableName> tables = ImmutableList.builder();
+        tables.add(new SchemaTableName(SCHEMA_NAME, ISSUES_TABLE));
+        if (webhookReceiver.isPresent()) {
+            tables.add(new SchemaTableName(SCHEMA_NAME, EVENTS_TABLE));
+        }
+        for (String table : getIssuesTables(repositories.get()).keySet()) {
+            tables.add(new SchemaTableName(SCHEMA_NAME, table));
+        }
+        return tables.build();
+    }
+
+    @Override
+    public List<RestPartition> getPartitions(SchemaTableName schemaTableName)
+    {
+        return Lists.partition(getRepositories(schemaTableName), issueFetcher.getBatchSize()).stream()
+                .map(batch -> RestPartition.of(REPOSITORY_JOINER.join(batch)))
+                .collect(toImmutableList());
     }
 
     @Override
     public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
     {
-        try {
-            Response<List<Issue>> execute = service.listPrestoIssues().execute();
-            if (!execute.isSuccessful()) {
-                throw new IllegalStateException("Unable to read: " + execute.message());
-            }
-            List<Issue> issues = execute.body();
-            return issues.stream()
-                    .map(issue -> ImmutableList.of(issue.getNumber(), issue.getState(), issue.getUser().getLogin(), issue.getTitle()))
+        if (isEventsTable(schemaTableName)) {
+            return webhookReceiver.get().getEvents().stream()
+                    .map(GithubRest::eventRow)
                     .collect(toList());
         }
-        catch (IOException e) {
-            throw Throwables.propagate(e);
+        Set<String> columns = getTableMetadata(schemaTableName).getColumns().stream()
+                .map(ColumnMetadata::getName)
+                .collect(toImmutableSet());
+        return getPartitions(schemaTableName).stream()
+                .flatMap(partition -> issueFetcher.listIssues(REPOSITORY_SPLITTER.splitToList(partition.getKey().get()), columns).stream())
+                .collect(toList());
+    }
+
+    @Override
+    public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns)
+    {
+        if (partition.getKey().isEmpty()) {
+            return getRows(schemaTableName);
+        }
+        return issueFetcher.listIssues(
+                REPOSITORY_SPLITTER.splitToList(partition.getKey().get()),
+                columns.stream()
+                        .map(RestColumnHandle::getName)
+                        .collect(toImmutableSet()));
+    }
+
+    /**
+     * Sum of the remaining REST API quota of all the tokens, until the last of them resets. Anonymous requests
+     * are limited by the address of every worker, so they are not shared out. The quota is only read every
+     * {@link #REMAINING_QUOTA_TTL}, and when it cannot be read, splits are scheduled without leases.
+     */
+    @Override
+    public Optional<QuotaLease> getRemainingQuota()
+    {
+        return remainingQuota.get();
+    }
+
+    private Optional<QuotaLease> readRemainingQuota()
+    {
+        if (tokenServices.isEmpty()) {
+            return Optional.empty();
+        }
+        long remaining = 0;
+        long resetEpochSeconds = 0;
+        for (GithubService tokenService : tokenServices) {
+            RateLimitStatus.Resource core;
+            try {
+                Response<RateLimitStatus> response = tokenService.getRateLimit().execute();
+                if (!response.isSuccessful()) {
+                    log.warning(format("Unable to read rate limit dues: %s, scheduling splits without leases", response.message()));
+                    return Optional.empty();
+                }
+                core = response.body().getResources().get("core");
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Unable to read rate limit, scheduling splits without leases", e);
+                return Optional.empty();
+            }
+            if (core == null) {
+                return Optional.empty();
+            }
+            remaining += core.getRemaining();
+            resetEpochSeconds = Math.max(resetEpochSeconds, core.getReset());
+        }
+        return Optional.of(new QuotaLease(remaining, SECONDS.toMillis(resetEpochSeconds)));
+    }
+
+    @Override
+    public boolean isNodeLocal(SchemaTableName schemaTableName)
+    {
+        return isEventsTable(schemaTableName);
+    }
+
+    @Override
+    public boolean supportsRowCount(SchemaTableName schemaTableName)
+    {
+        return !isEventsTable(schemaTableName);
+    }
+
+    @Override
+    public long getRowCount(SchemaTableName schemaTableName)
+    {
+        return getPartitions(schemaTableName).stream()
+                .mapToLong(partition -> issueFetcher.countIssues(REPOSITORY_SPLITTER.splitToList(partition.getKey().get())))
+                .sum();
+    }
+
+    @Override
+    public boolean supportsTopN(SchemaTableName schemaTableName, List<RestSortItem> sortOrder, long limit)
+    {
+        // issues are listed newest first, and numbers are assigned in the order issues are created,
+        // so the first issues of a single repository are the ones with the highest numbers
+        return !schemaTableName.getTableName().equals(ISSUES_TABLE)
+                && !isEventsTable(schemaTableName)
+                && sortOrder.size() == 1
+                && sortOrder.get(0).getColumn().equals("number")
+                && !sortOrder.get(0).getSortOrder().isAscending()
+                && limit <= ISSUES_PAGE_SIZE;
+    }
+
+    @Override
+    public void scanTopN(SchemaTableName schemaTableName, List<RestColumnHandle> columns, List<RestSortItem> sortOrder, long limit, RowBuffer rows)
+    {
+        List<String> repositories = getRepositories(schemaTableName);
+        checkArgument(repositories.size() == 1, "Expected a single repository for %s", schemaTableName);
+        List<List<?>> issues = issueFetcher.listLatestIssues(
+                repositories.get(0),
+                columns.stream()
+                        .map(RestColumnHandle::getName)
+                        .collect(toImmutableSet()),
+                toIntExact(limit));
+        for (List<?> issue : issues) {
+            rows.setValues(issue);
+            rows.endRow();
+        }
+    }
+
+    private List<String> getRepositories(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.getTableName().equals(ISSUES_TABLE)) {
+            return repositories.get();
         }
+        String repository = getIssuesTables(repositories.get()).get(schemaTableName.getTableName());
+        return repository == null ? ImmutableList.of() : ImmutableList.of(repository);
+    }
+
+    /**
+     * Repository of every issues table. Names shared by several repositories of an organization, e.g. of
+     * {@code owner/a-b} and {@code owner/a_b}, have no table, so that a table never mixes repositories;
+     * their issues are still in the {@value #ISSUES_TABLE} table.
+     */
+    static Map<String, String> getIssuesTables(List<String> repositories)
+    {
+        return groupByTableName(repositories).entrySet().stream()
+                .filter(entry -> entry.getValue().size() == 1)
+                .collect(toImmutableMap(Map.Entry::getKey, entry -> entry.getValue().get(0)));
+    }
+
+    private static Map<String, List<String>> groupByTableName(List<String> repositories)
+    {
+        return repositories.stream()
+                .distinct()
+                .collect(groupingBy(GithubRest::issuesTableName, LinkedHashMap::new, toList()));
+    }
+
+    private boolean isEventsTable(SchemaTableName schemaTableName)
+    {
+        return webhookReceiver.isPresent() && schemaTableName.getTableName().equals(EVENTS_TABLE);
+    }
+
+    static List<?> eventRow(WebhookEvent event)
+    {
+        return asList(
+                event.getDeliveryId(),
+                event.getEvent(),
+                event.getAction().orElse(null),
+                event.getRepository().orElse(null),
+                event.getSender().orElse(null),
+                MILLISECONDS.toMicros(event.getReceivedEpochMillis()),
+                event.getPayload());
+    }
+
+    static List<?> issueRow(Issue issue, String repository)
+    {
+        return asList(
+                issue.getNumber(),
+                issue.getState() == null ? null : issue.getState().toLowerCase(ENGLISH),
+                issue.getUser() == null ? null : issue.getUser().getLogin(),
+                issue.getTitle(),
+                repository);
+    }
+
+    @Override
+    public Map<String, Object> getMBeans()
+    {
+        return ImmutableMap.of("MetadataRefresher", repositories);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        repositories.shutdown();
+        webhookReceiver.ifPresent(WebhookReceiver::close);
     }
 
     @Override
@@ -92,4 +491,12 @@ public class GithubRest
     {
         throw new IllegalStateException("This connector does not support write");
     }
+
+    static String issuesTableName(String repository)
+    {
+        if (repository.equalsIgnoreCase(DEFAULT_REPOSITORY)) {
+            return DEFAULT_REPOSITORY_TABLE;
+        }
+        return repository.toLowerCase(ENGLISH).replaceAll("[^a-z0-9]", "_") + "_issues";
+    }
 }
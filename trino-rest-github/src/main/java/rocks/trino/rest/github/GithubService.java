@@ -11,17 +11,45 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package rocks.trino.rest.github;
 
 import retrofit2.Call;
+import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import rocks.trino.rest.github.model.GraphqlRequest;
+import rocks.trino.rest.github.model.GraphqlResponse;
 import rocks.trino.rest.github.model.Issue;
+import rocks.trino.rest.github.model.RateLimitStatus;
+import rocks.trino.rest.github.model.Repository;
 
 import java.util.List;
 
 public interface GithubService
 {
-    @GET("/repos/prestodb/presto/issues")
-    Call<List<Issue>> listPrestoIssues();
+    @GET("/repos/{owner}/{repo}/issues")
+    Call<List<Issue>> listIssues(
+            @Path("owner") String owner,
+            @Path("repo") String repo);
+
+    @GET("/repos/{owner}/{repo}/issues")
+    Call<List<Issue>> listIssues(
+            @Path("owner") String owner,
+            @Path("repo") String repo,
+            @Query("per_page") int perPage);
+
+    @GET("/orgs/{org}/repos")
+    Call<List<Repository>> listOrganizationRepositories(
+            @Path("org") String organization,
+            @Query("per_page") int perPage,
+            @Query("page") int page);
+
+    @GET("/rate_limit")
+    Call<RateLimitStatus> getRateLimit();
+
+    @POST("/graphql")
+    Call<GraphqlResponse> graphql(
+            @Body GraphqlRequest request);
 }
@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import retrofit2.Response;
+import rocks.trino.rest.github.model.GraphqlData;
+import rocks.trino.rest.github.model.GraphqlError;
+import rocks.trino.rest.github.model.GraphqlRequest;
+import rocks.trino.rest.github.model.GraphqlResponse;
+import rocks.trino.rest.github.model.Issue;
+import rocks.trino.rest.github.model.RateLimit;
+import rocks.trino.rest.github.model.RepositoryIssues;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Reads a batch of repositories with a single GraphQL query, asking only for the fields
+ * of the projected columns. The issues API of the REST transport lists pull requests as well, so every repository
+ * of a batch has two connections, its open issues and its open pull requests, which are merged newest first.
+ * Batches have at most {@value #CONNECTIONS_PER_POINT} connections, so that a query costs a single point
+ * of the GraphQL rate limit. Queries are refused upfront once the known budget is exhausted.
+ */
+public class GraphqlIssueFetcher
+        implements IssueFetcher
+{
+    // GitHub charges one point per hundred requested connections
+    static final int CONNECTIONS_PER_POINT = 100;
+    static final int CONNECTIONS_PER_REPOSITORY = 2;
+    static final int MAX_BATCH_SIZE = CONNECTIONS_PER_POINT / CONNECTIONS_PER_REPOSITORY;
+
+    private static final Map<String, String> COLUMN_FIELDS = ImmutableMap.of(
+            "number", "number",
+            "state", "state",
+            "user", "author { login }",
+            "title", "title");
+
+    private final GithubService service;
+    private final int batchSize;
+    private final AtomicReference<RateLimit> rateLimit = new AtomicReference<>();
+
+    public GraphqlIssueFetcher(GithubService service, int batchSize)
+    {
+        this.service = requireNonNull(service, "service is null");
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        checkArgument(batchSize <= MAX_BATCH_SIZE, "batchSize must be at most %s, so that a query costs a single point: %s", MAX_BATCH_SIZE, batchSize);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    @Override
+    public List<List<?>> listIssues(List<String> repositories, Set<String> columns)
+    {
+        checkBudget(estimateCost(repositories.size()));
+
+        GraphqlData data = execute(buildQuery(repositories, columns));
+        if (data.getRateLimit() != null) {
+            rateLimit.set(data.getRateLimit());
+        }
+
+        ImmutableList.Builder<List<?>> rows = ImmutableList.builder();
+        for (int i = 0; i < repositories.size(); i++) {
+            for (Issue issue : getLatestIssues(data, i, repositories.get(i), GithubRest.ISSUES_PAGE_SIZE)) {
+                rows.add(GithubRest.issueRow(issue, repositories.get(i)));
+            }
+        }
+        return rows.build();
+    }
+
+    @Override
+    public List<List<?>> listLatestIssues(String repository, Set<String> columns, int limit)
+    {
+        checkBudget(estimateCost(1));
+
+        GraphqlData data = execute(buildQuery(ImmutableList.of(repository), columns, limit));
+        if (data.getRateLimit() != null) {
+            rateLimit.set(data.getRateLimit());
+        }
+
+        return getLatestIssues(data, 0, repository, limit).stream()
+                .map(issue -> GithubRest.issueRow(issue, repository))
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Newest of the issues and pull requests of a repository, as listed by the REST API.
+     */
+    static List<Issue> getLatestIssues(GraphqlData data, int index, String repository, int limit)
+    {
+        RepositoryIssues issues = data.getRepositories().get(alias(index));
+        if (issues == null || issues.getIssues() == null || issues.getPullRequests() == null) {
+            throw new IllegalStateException("Missing issues of '" + repository + "' in GraphQL response");
+        }
+        return Stream.concat(issues.getIssues().stream(), issues.getPullRequests().stream())
+                .sorted(comparing(Issue::getCreatedAt).reversed())
+                .limit(limit)
+                .collect(toImmutableList());
+    }
+
+    @Override
+    public long countIssues(List<String> repositories)
+    {
+        checkBudget(estimateCost(repositories.size()));
+
+        GraphqlData data = execute(buildCountQuery(repositories));
+        if (data.getRateLimit() != null) {
+            rateLimit.set(data.getRateLimit());
+        }
+
+        long count = 0;
+        for (int i = 0; i < repositories.size(); i++) {
+            RepositoryIssues repository = data.getRepositories().get(alias(i));
+            if (repository == null || repository.getTotalCount() == null) {
+                throw new IllegalStateException("Missing issue count of '" + repositories.get(i) + "' in GraphQL response");
+            }
+            // only the first page of issues is listed
+            count += Math.min(repository.getTotalCount(), GithubRest.ISSUES_PAGE_SIZE);
+        }
+        return count;
+    }
+
+    static long estimateCost(int repositories)
+    {
+        long connections = (long) repositories * CONNECTIONS_PER_REPOSITORY;
+        return Math.max(1, (connections + CONNECTIONS_PER_POINT - 1) / CONNECTIONS_PER_POINT);
+    }
+
+    private void checkBudget(long cost)
+    {
+        RateLimit current = rateLimit.get();
+        if (current == null || current.getRemaining() >= cost) {
+            return;
+        }
+        Instant resetAt = Instant.parse(current.getResetAt());
+        if (Instant.now().isBefore(resetAt)) {
+            throw new IllegalStateException(format("GitHub GraphQL budget exhausted, %s points left until %s", current.getRemaining(), resetAt));
+        }
+    }
+
+    private GraphqlData execute(String query)
+    {
+        try {
+            Response<GraphqlResponse> execute = service.graphql(new GraphqlRequest(query)).execute();
+            if (!execute.isSuccessful()) {
+                throw new IllegalStateException("Unable to execute GraphQL query: " + execute.message());
+            }
+            GraphqlResponse response = execute.body();
+            if (response.getErrors() != null && !response.getErrors().isEmpty()) {
+                throw new IllegalStateException("Unable to execute GraphQL query: " + response.getErrors().stream()
+                        .map(GraphqlError::getMessage)
+                        .collect(joining(", ")));
+            }
+            return response.getData();
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    static String buildQuery(List<String> repositories, Set<String> columns)
+    {
+        return buildQuery(repositories, columns, GithubRest.ISSUES_PAGE_SIZE);
+    }
+
+    static String buildQuery(List<String> repositories, Set<String> columns, int pageSize)
+    {
+        // the creation time orders issues and pull requests together
+        String fields = Stream.concat(
+                Stream.of("createdAt"),
+                COLUMN_FIELDS.entrySet().stream()
+                        .filter(entry -> columns.contains(entry.getKey()))
+                        .map(Map.Entry::getValue))
+                .collect(joining(" "));
+        String nodes = format("(first: %s, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { %s } }", pageSize, fields);
+
+        StringBuilder query = new StringBuilder("query {");
+        for (int i = 0; i < repositories.size(); i++) {
+            List<String> ownerAndName = Splitter.on('/').splitToList(repositories.get(i));
+            query.append(format(
+                    " %s: repository(owner: \"%s\", name: \"%s\") { issues%s pullRequests%s }",
+                    alias(i),
+                    ownerAndName.get(0),
+                    ownerAndName.get(1),
+                    nodes,
+                    nodes));
+        }
+        return query.append(" rateLimit { cost remaining resetAt } }").toString();
+    }
+
+    static String buildCountQuery(List<String> repositories)
+    {
+        StringBuilder query = new StringBuilder("query {");
+        for (int i = 0; i < repositories.size(); i++) {
+            List<String> ownerAndName = Splitter.on('/').splitToList(repositories.get(i));
+            query.append(format(
+                    " %s: repository(owner: \"%s\", name: \"%s\") { issues(states: OPEN) { totalCount } pullRequests(states: OPEN) { totalCount } }",
+                    alias(i),
+                    ownerAndName.get(0),
+                    ownerAndName.get(1)));
+        }
+        return query.append(" rateLimit { cost remaining resetAt } }").toString();
+    }
+
+    private static String alias(int index)
+    {
+        return "r" + index;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fetches issues of repositories, returning rows of the issue tables.
+ */
+public interface IssueFetcher
+{
+    /**
+     * Number of repositories that are fetched together, and so read by a single split.
+     */
+    int getBatchSize();
+
+    /**
+     * Values of columns that are not in {@code columns} may be left {@code null}.
+     */
+    List<List<?>> listIssues(List<String> repositories, Set<String> columns);
+
+    /**
+     * The {@code limit} most recently created open issues of a repository, newest first.
+     */
+    List<List<?>> listLatestIssues(String repository, Set<String> columns, int limit);
+
+    /**
+     * Number of rows {@link #listIssues} would return, read from the counts reported by GitHub
+     * instead of listing the issues.
+     */
+    long countIssues(List<String> repositories);
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import retrofit2.Response;
+import rocks.trino.rest.github.model.Issue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads every repository with a separate call to the issues endpoint of the REST API.
+ */
+public class RestIssueFetcher
+        implements IssueFetcher
+{
+    private static final Pattern LAST_PAGE = Pattern.compile("<[^>]*[?&]page=(\\d+)[^>]*>;\\s*rel=\"last\"");
+
+    private final GithubService service;
+
+    public RestIssueFetcher(GithubService service)
+    {
+        this.service = requireNonNull(service, "service is null");
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return 1;
+    }
+
+    @Override
+    public List<List<?>> listIssues(List<String> repositories, Set<String> columns)
+    {
+        ImmutableList.Builder<List<?>> rows = ImmutableList.builder();
+        for (String repository : repositories) {
+            for (Issue issue : listIssues(repository)) {
+                rows.add(GithubRest.issueRow(issue, repository));
+            }
+        }
+        return rows.build();
+    }
+
+    @Override
+    public List<List<?>> listLatestIssues(String repository, Set<String> columns, int limit)
+    {
+        List<String> ownerAndName = Splitter.on('/').splitToList(repository);
+        try {
+            // issues are listed newest first by default
+            Response<List<Issue>> execute = service.listIssues(ownerAndName.get(0), ownerAndName.get(1), limit).execute();
+            if (!execute.isSuccessful()) {
+                throw new IllegalStateException("Unable to read issues of '" + repository + "': " + execute.message());
+            }
+            return execute.body().stream()
+                    .limit(limit)
+                    .map(issue -> GithubRest.issueRow(issue, repository))
+                    .collect(toImmutableList());
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public long countIssues(List<String> repositories)
+    {
+        long count = 0;
+        for (String repository : repositories) {
+            count += Math.min(countIssues(repository), GithubRest.ISSUES_PAGE_SIZE);
+        }
+        return count;
+    }
+
+    /**
+     * Lists a single issue per page, so the number of the last page in the {@code Link} header is the number of issues.
+     */
+    private long countIssues(String repository)
+    {
+        List<String> ownerAndName = Splitter.on('/').splitToList(repository);
+        try {
+            Response<List<Issue>> execute = service.listIssues(ownerAndName.get(0), ownerAndName.get(1), 1).execute();
+            if (!execute.isSuccessful()) {
+                throw new IllegalStateException("Unable to count issues of '" + repository + "': " + execute.message());
+            }
+            return getLastPage(execute.headers().get("Link")).orElse(execute.body().size());
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    static OptionalLong getLastPage(String link)
+    {
+        if (link == null) {
+            return OptionalLong.empty();
+        }
+        Matcher matcher = LAST_PAGE.matcher(link);
+        if (!matcher.find()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(Long.parseLong(matcher.group(1)));
+    }
+
+    private List<Issue> listIssues(String repository)
+    {
+        List<String> ownerAndName = Splitter.on('/').splitToList(repository);
+        try {
+            Response<List<Issue>> execute = service.listIssues(ownerAndName.get(0), ownerAndName.get(1)).execute();
+            if (!execute.isSuccessful()) {
+                throw new IllegalStateException("Unable to read issues of '" + repository + "': " + execute.message());
+            }
+            return execute.body();
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
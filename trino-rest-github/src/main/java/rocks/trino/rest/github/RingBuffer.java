@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded buffer of the latest elements added to it. Once it is full, every element replaces the oldest one,
+ * and the oldest elements are also dropped while the elements together weigh more than {@code maxWeight},
+ * though the latest element is always kept. Adding never waits for readers, and readers do not lock. They get
+ * the elements it holds, oldest first, skipping the ones that are replaced while they read.
+ */
+public class RingBuffer<T>
+{
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final long maxWeight;
+    private final ToLongFunction<T> weigher;
+    private final AtomicLong next = new AtomicLong();
+    // sequence of the oldest element held, guarded by this for writes
+    private volatile long first;
+    private long weight;
+
+    public RingBuffer(int capacity)
+    {
+        this(capacity, Long.MAX_VALUE, element -> 0);
+    }
+
+    public RingBuffer(int capacity, long maxWeight, ToLongFunction<T> weigher)
+    {
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(maxWeight >= 0, "maxWeight is negative");
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.maxWeight = maxWeight;
+        this.weigher = requireNonNull(weigher, "weigher is null");
+    }
+
+    public synchronized void add(T element)
+    {
+        long sequence = next.get();
+        long elementWeight = weigher.applyAsLong(element);
+        if (sequence - first == slots.length()) {
+            drop();
+        }
+        weight += elementWeight;
+        while (weight > maxWeight && first < sequence) {
+            drop();
+        }
+        slots.set(index(sequence), new Slot<>(sequence, element, elementWeight));
+        next.set(sequence + 1);
+    }
+
+    private void drop()
+    {
+        weight -= slots.get(index(first)).weight;
+        slots.set(index(first), null);
+        first++;
+    }
+
+    public List<T> getElements()
+    {
+        long end = next.get();
+        ImmutableList.Builder<T> result = ImmutableList.builder();
+        for (long sequence = max(first, end - slots.length()); sequence < end; sequence++) {
+            Slot<T> slot = slots.get(index(sequence));
+            // a slot with another sequence is either dropped or already holds a newer element
+            if (slot != null && slot.sequence == sequence) {
+                result.add(slot.element);
+            }
+        }
+        return result.build();
+    }
+
+    public int getCapacity()
+    {
+        return slots.length();
+    }
+
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    public long getAddedCount()
+    {
+        return next.get();
+    }
+
+    /**
+     * Number of elements that were dropped, to make room for newer ones.
+     */
+    public long getReplacedCount()
+    {
+        return first;
+    }
+
+    private int index(long sequence)
+    {
+        return toIntExact(sequence % slots.length());
+    }
+
+    private static class Slot<T>
+    {
+        private final long sequence;
+        private final T element;
+        private final long weight;
+
+        private Slot(long sequence, T element, long weight)
+        {
+            this.sequence = sequence;
+            this.element = element;
+            this.weight = weight;
+        }
+    }
+}
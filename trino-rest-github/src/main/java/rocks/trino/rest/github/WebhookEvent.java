@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Webhook delivery received from GitHub, with the fields of the payload most queries filter on.
+ */
+public class WebhookEvent
+{
+    private final String deliveryId;
+    private final String event;
+    private final Optional<String> action;
+    private final Optional<String> repository;
+    private final Optional<String> sender;
+    private final long receivedEpochMillis;
+    private final String payload;
+
+    public WebhookEvent(
+            String deliveryId,
+            String event,
+            Optional<String> action,
+            Optional<String> repository,
+            Optional<String> sender,
+            long receivedEpochMillis,
+            String payload)
+    {
+        this.deliveryId = requireNonNull(deliveryId, "deliveryId is null");
+        this.event = requireNonNull(event, "event is null");
+        this.action = requireNonNull(action, "action is null");
+        this.repository = requireNonNull(repository, "repository is null");
+        this.sender = requireNonNull(sender, "sender is null");
+        this.receivedEpochMillis = receivedEpochMillis;
+        this.payload = requireNonNull(payload, "payload is null");
+    }
+
+    public String getDeliveryId()
+    {
+        return deliveryId;
+    }
+
+    /**
+     * Type of the event, e.g. {@code issues} or {@code push}.
+     */
+    public String getEvent()
+    {
+        return event;
+    }
+
+    public Optional<String> getAction()
+    {
+        return action;
+    }
+
+    /**
+     * Full name of the repository, in the owner/name format, for events of a single repository.
+     */
+    public Optional<String> getRepository()
+    {
+        return repository;
+    }
+
+    public Optional<String> getSender()
+    {
+        return sender;
+    }
+
+    public long getReceivedEpochMillis()
+    {
+        return receivedEpochMillis;
+    }
+
+    public String getPayload()
+    {
+        return payload;
+    }
+
+    /**
+     * Upper bound of the memory taken by the strings of the event, at two bytes per character,
+     * which is dominated by the payload.
+     */
+    public long getSizeInBytes()
+    {
+        long characters = deliveryId.length()
+                + event.length()
+                + action.map(String::length).orElse(0)
+                + repository.map(String::length).orElse(0)
+                + sender.map(String::length).orElse(0)
+                + payload.length();
+        return 2 * characters;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Receives webhook deliveries of GitHub on a local port and keeps the latest of them in a {@link RingBuffer},
+ * which holds at most {@code bufferSize} deliveries taking at most {@code bufferMaxMemory} bytes.
+ * Only deliveries signed with the secret of the webhook are accepted, and only while {@code accepting} is true,
+ * e.g. while the node gets the splits that read the buffer. Otherwise deliveries get a 503, so that a load balancer
+ * in front of the nodes sends them elsewhere.
+ */
+public class WebhookReceiver
+        implements Closeable
+{
+    static final String SIGNATURE_HEADER = "X-Hub-Signature-256";
+    static final String EVENT_HEADER = "X-GitHub-Event";
+    static final String DELIVERY_HEADER = "X-GitHub-Delivery";
+
+    // the largest payload GitHub delivers
+    private static final int MAX_PAYLOAD_BYTES = 25 << 20;
+    private static final String SIGNATURE_PREFIX = "sha256=";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HashFunction signer;
+    private final int maxPayloadBytes;
+    private final RingBuffer<WebhookEvent> events;
+    private final List<Consumer<WebhookEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final BooleanSupplier accepting;
+    private final HttpServer server;
+
+    public WebhookReceiver(int port, String secret, int bufferSize)
+    {
+        this(port, secret, bufferSize, Long.MAX_VALUE, () -> true);
+    }
+
+    public WebhookReceiver(int port, String secret, int bufferSize, long bufferMaxMemory, BooleanSupplier accepting)
+    {
+        checkArgument(!secret.isEmpty(), "secret is empty");
+        this.signer = Hashing.hmacSha256(secret.getBytes(UTF_8));
+        this.events = new RingBuffer<>(bufferSize, bufferMaxMemory, WebhookEvent::getSizeInBytes);
+        // a payload is held at up to two bytes per byte received, and larger ones would take the whole buffer
+        this.maxPayloadBytes = (int) min(MAX_PAYLOAD_BYTES, bufferMaxMemory / 2);
+        this.accepting = requireNonNull(accepting, "accepting is null");
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    public List<WebhookEvent> getEvents()
+    {
+        return events.getElements();
+    }
+
+    /**
+     * Registers a callback for every accepted delivery, called after it is added to the buffer.
+     */
+    public void addListener(Consumer<WebhookEvent> listener)
+    {
+        listeners.add(listener);
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!accepting.getAsBoolean()) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] body = ByteStreams.toByteArray(ByteStreams.limit(exchange.getRequestBody(), maxPayloadBytes + 1));
+            if (body.length > maxPayloadBytes) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+            if (!isValidSignature(signer, body, exchange.getRequestHeaders().getFirst(SIGNATURE_HEADER))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            String event = exchange.getRequestHeaders().getFirst(EVENT_HEADER);
+            JsonNode payload;
+            try {
+                payload = MAPPER.readTree(body);
+            }
+            catch (IOException e) {
+                payload = null;
+            }
+            if (event == null || payload == null || !payload.isObject()) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            WebhookEvent webhookEvent = new WebhookEvent(
+                    Optional.ofNullable(exchange.getRequestHeaders().getFirst(DELIVERY_HEADER)).orElse(""),
+                    event,
+                    getText(payload.path("action")),
+                    getText(payload.path("repository").path("full_name")),
+                    getText(payload.path("sender").path("login")),
+                    System.currentTimeMillis(),
+                    new String(body, UTF_8));
+            events.add(webhookEvent);
+            listeners.forEach(listener -> listener.accept(webhookEvent));
+            exchange.sendResponseHeaders(204, -1);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static Optional<String> getText(JsonNode node)
+    {
+        return node.isTextual() ? Optional.of(node.textValue()) : Optional.empty();
+    }
+
+    static boolean isValidSignature(HashFunction signer, byte[] body, String signature)
+    {
+        if (signature == null || !signature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        byte[] actual;
+        try {
+            actual = BaseEncoding.base16().lowerCase().decode(signature.substring(SIGNATURE_PREFIX.length()));
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+        // compared in constant time, so the response time does not tell how much of a forged signature is right
+        return MessageDigest.isEqual(signer.hashBytes(body).asBytes(), actual);
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github.model;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data of a batched query, where every repository is requested under its own alias.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphqlData
+{
+    private final RateLimit rateLimit;
+    private final Map<String, RepositoryIssues> repositories = new HashMap<>();
+
+    @JsonCreator
+    public GraphqlData(
+            @JsonProperty("rateLimit") RateLimit rateLimit)
+    {
+        this.rateLimit = rateLimit;
+    }
+
+    @JsonAnySetter
+    public void addRepository(String alias, RepositoryIssues repository)
+    {
+        repositories.put(alias, repository);
+    }
+
+    public RateLimit getRateLimit()
+    {
+        return rateLimit;
+    }
+
+    public Map<String, RepositoryIssues> getRepositories()
+    {
+        return repositories;
+    }
+}
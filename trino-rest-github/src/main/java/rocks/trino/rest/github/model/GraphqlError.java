@@ -11,28 +11,24 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+package rocks.trino.rest.github.model;
 
-package rocks.trino.rest;
-
-import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import io.trino.spi.connector.ConnectorTableLayoutHandle;
 
-public class RestConnectorTableLayoutHandle
-        implements ConnectorTableLayoutHandle
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphqlError
 {
-    private final RestTableHandle tableHandle;
+    private final String message;
 
-    @JsonCreator
-    public RestConnectorTableLayoutHandle(
-            @JsonProperty("tableHandle") RestTableHandle tableHandle)
+    public GraphqlError(
+            @JsonProperty("message") String message)
     {
-        this.tableHandle = tableHandle;
+        this.message = message;
     }
 
-    @JsonProperty("tableHandle")
-    public RestTableHandle getTableHandle()
+    public String getMessage()
     {
-        return tableHandle;
+        return message;
     }
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GraphqlResponse
+{
+    private final GraphqlData data;
+    private final List<GraphqlError> errors;
+
+    public GraphqlResponse(
+            @JsonProperty("data") GraphqlData data,
+            @JsonProperty("errors") List<GraphqlError> errors)
+    {
+        this.data = data;
+        this.errors = errors;
+    }
+
+    public GraphqlData getData()
+    {
+        return data;
+    }
+
+    public List<GraphqlError> getErrors()
+    {
+        return errors;
+    }
+}
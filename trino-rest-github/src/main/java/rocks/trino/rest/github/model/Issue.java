@@ -14,6 +14,7 @@
 
 package rocks.trino.rest.github.model;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -24,17 +25,20 @@ public class Issue
     private final String state;
     private final String title;
     private final User user;
+    private final String createdAt;
 
     public Issue(
             @JsonProperty("number") long number,
             @JsonProperty("state") String state,
             @JsonProperty("title") String title,
-            @JsonProperty("user") User user)
+            @JsonProperty("user") @JsonAlias("author") User user,
+            @JsonProperty("created_at") @JsonAlias("createdAt") String createdAt)
     {
         this.number = number;
         this.state = state;
         this.title = title;
         this.user = user;
+        this.createdAt = createdAt;
     }
 
     public long getNumber()
@@ -56,4 +60,12 @@ public class Issue
     {
         return user;
     }
+
+    /**
+     * Creation time in ISO 8601, e.g. {@code 2021-03-01T12:00:00Z}, so the newest sorts last.
+     */
+    public String getCreatedAt()
+    {
+        return createdAt;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RateLimit
+{
+    private final long cost;
+    private final long remaining;
+    private final String resetAt;
+
+    public RateLimit(
+            @JsonProperty("cost") long cost,
+            @JsonProperty("remaining") long remaining,
+            @JsonProperty("resetAt") String resetAt)
+    {
+        this.cost = cost;
+        this.remaining = remaining;
+        this.resetAt = resetAt;
+    }
+
+    public long getCost()
+    {
+        return cost;
+    }
+
+    public long getRemaining()
+    {
+        return remaining;
+    }
+
+    public String getResetAt()
+    {
+        return resetAt;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Rate limits of the token, by resource, e.g. {@code core} for the REST API. Checking them does not count against them.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RateLimitStatus
+{
+    private final Map<String, Resource> resources;
+
+    public RateLimitStatus(
+            @JsonProperty("resources") Map<String, Resource> resources)
+    {
+        this.resources = resources == null ? ImmutableMap.of() : ImmutableMap.copyOf(resources);
+    }
+
+    public Map<String, Resource> getResources()
+    {
+        return resources;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Resource
+    {
+        private final long remaining;
+        private final long reset;
+
+        public Resource(
+                @JsonProperty("remaining") long remaining,
+                @JsonProperty("reset") long reset)
+        {
+            this.remaining = remaining;
+            this.reset = reset;
+        }
+
+        public long getRemaining()
+        {
+            return remaining;
+        }
+
+        /**
+         * Seconds since the epoch when the limit resets.
+         */
+        public long getReset()
+        {
+            return reset;
+        }
+    }
+}
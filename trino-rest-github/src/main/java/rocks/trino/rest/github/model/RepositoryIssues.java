@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RepositoryIssues
+{
+    private final IssueConnection issues;
+    private final IssueConnection pullRequests;
+
+    @JsonCreator
+    public RepositoryIssues(
+            @JsonProperty("issues") IssueConnection issues,
+            @JsonProperty("pullRequests") IssueConnection pullRequests)
+    {
+        this.issues = issues;
+        this.pullRequests = pullRequests;
+    }
+
+    public List<Issue> getIssues()
+    {
+        return issues == null ? null : issues.nodes;
+    }
+
+    /**
+     * Pull requests, which have the same fields as issues, and are listed as issues by the REST API.
+     */
+    public List<Issue> getPullRequests()
+    {
+        return pullRequests == null ? null : pullRequests.nodes;
+    }
+
+    public Long getTotalCount()
+    {
+        if (issues == null || issues.totalCount == null || pullRequests == null || pullRequests.totalCount == null) {
+            return null;
+        }
+        return issues.totalCount + pullRequests.totalCount;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class IssueConnection
+    {
+        private final List<Issue> nodes;
+        private final Long totalCount;
+
+        @JsonCreator
+        public IssueConnection(
+                @JsonProperty("nodes") List<Issue> nodes,
+                @JsonProperty("totalCount") Long totalCount)
+        {
+            this.nodes = nodes;
+            this.totalCount = totalCount;
+        }
+    }
+}
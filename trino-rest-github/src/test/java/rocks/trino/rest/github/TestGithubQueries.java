@@ -65,12 +65,18 @@ public class TestGithubQueries
     public void showTables()
     {
         assertQuery("SHOW SCHEMAS FROM github", "VALUES 'default', 'information_schema'");
-        assertQuery("SHOW TABLES FROM github.default", "VALUES 'trino_issues'");
+        assertQuery("SHOW TABLES FROM github.default", "VALUES 'issues', 'prestodb_issues'");
     }
 
     @Test
     public void selectFromGeneral()
     {
-        computeActual("SELECT * FROM trino_issues");
+        computeActual("SELECT * FROM prestodb_issues");
+    }
+
+    @Test
+    public void selectFromAllRepositories()
+    {
+        computeActual("SELECT repository, count(*) FROM issues GROUP BY repository");
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+import rocks.trino.rest.HttpClientConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.expectThrows;
+
+public class TestGithubRest
+{
+    @Test
+    public void testIssuesTableName()
+    {
+        assertEquals(GithubRest.issuesTableName("trinodb/trino"), "trinodb_trino_issues");
+        assertEquals(GithubRest.issuesTableName("Kokosing/trino-rest"), "kokosing_trino_rest_issues");
+        // the table of the default repository keeps its original name
+        assertEquals(GithubRest.issuesTableName("prestodb/presto"), "prestodb_issues");
+    }
+
+    @Test
+    public void testIssuesTables()
+    {
+        assertEquals(
+                GithubRest.getIssuesTables(ImmutableList.of("owner/a-b", "owner/a_b", "owner/a.b.c", "owner/c", "trinodb/trino")),
+                ImmutableMap.of(
+                        "owner_a_b_c_issues", "owner/a.b.c",
+                        "owner_c_issues", "owner/c",
+                        "trinodb_trino_issues", "trinodb/trino"));
+    }
+
+    @Test
+    public void testCollidingConfiguredRepositories()
+    {
+        assertEquals(
+                expectThrows(IllegalArgumentException.class, () -> createRest(ImmutableList.of("owner/a-b", "owner/c", "owner/a.b"))).getMessage(),
+                "Repositories [owner/a-b, owner/a.b] would have the same table name owner_a_b_issues");
+    }
+
+    private static GithubRest createRest(List<String> repositories)
+    {
+        return new GithubRest(
+                ImmutableList.of(),
+                GithubTransport.REST,
+                20,
+                repositories,
+                Optional.empty(),
+                Duration.ofMinutes(5),
+                0.1,
+                HttpClientConfig.fromConfig(ImmutableMap.of()),
+                Optional.empty());
+    }
+}
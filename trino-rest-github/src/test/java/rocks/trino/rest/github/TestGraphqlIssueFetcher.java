@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+import retrofit2.Retrofit;
+import rocks.trino.rest.github.model.GraphqlData;
+import rocks.trino.rest.github.model.Issue;
+
+import java.io.IOException;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.expectThrows;
+
+public class TestGraphqlIssueFetcher
+{
+    @Test
+    public void testQueryRequestsOnlyProjectedFields()
+    {
+        assertEquals(
+                GraphqlIssueFetcher.buildQuery(ImmutableList.of("trinodb/trino", "prestodb/presto"), ImmutableSet.of("title", "user", "repository")),
+                "query {" +
+                        " r0: repository(owner: \"trinodb\", name: \"trino\") { issues(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt author { login } title } } pullRequests(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt author { login } title } } }" +
+                        " r1: repository(owner: \"prestodb\", name: \"presto\") { issues(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt author { login } title } } pullRequests(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt author { login } title } } }" +
+                        " rateLimit { cost remaining resetAt } }");
+        assertEquals(
+                GraphqlIssueFetcher.buildQuery(ImmutableList.of("trinodb/trino"), ImmutableSet.of()),
+                "query {" +
+                        " r0: repository(owner: \"trinodb\", name: \"trino\") { issues(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt } } pullRequests(first: 30, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt } } }" +
+                        " rateLimit { cost remaining resetAt } }");
+    }
+
+    @Test
+    public void testLatestIssuesQuery()
+    {
+        assertEquals(
+                GraphqlIssueFetcher.buildQuery(ImmutableList.of("trinodb/trino"), ImmutableSet.of("number"), 5),
+                "query {" +
+                        " r0: repository(owner: \"trinodb\", name: \"trino\") { issues(first: 5, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt number } } pullRequests(first: 5, states: OPEN, orderBy: {field: CREATED_AT, direction: DESC}) { nodes { createdAt number } } }" +
+                        " rateLimit { cost remaining resetAt } }");
+    }
+
+    @Test
+    public void testCountQuery()
+    {
+        assertEquals(
+                GraphqlIssueFetcher.buildCountQuery(ImmutableList.of("trinodb/trino", "prestodb/presto")),
+                "query {" +
+                        " r0: repository(owner: \"trinodb\", name: \"trino\") { issues(states: OPEN) { totalCount } pullRequests(states: OPEN) { totalCount } }" +
+                        " r1: repository(owner: \"prestodb\", name: \"presto\") { issues(states: OPEN) { totalCount } pullRequests(states: OPEN) { totalCount } }" +
+                        " rateLimit { cost remaining resetAt } }");
+    }
+
+    @Test
+    public void testPullRequestsAreListedAsIssues()
+            throws IOException
+    {
+        GraphqlData data = new ObjectMapper().readValue(
+                "{\"r0\": {" +
+                        "\"issues\": {\"nodes\": [{\"number\": 3, \"createdAt\": \"2021-03-03T00:00:00Z\"}, {\"number\": 1, \"createdAt\": \"2021-03-01T00:00:00Z\"}]}," +
+                        "\"pullRequests\": {\"nodes\": [{\"number\": 4, \"createdAt\": \"2021-03-04T00:00:00Z\"}, {\"number\": 2, \"createdAt\": \"2021-03-02T00:00:00Z\"}]}}}",
+                GraphqlData.class);
+        // merged newest first, as the issues API of the REST transport lists them
+        assertEquals(
+                GraphqlIssueFetcher.getLatestIssues(data, 0, "trinodb/trino", 3).stream()
+                        .map(Issue::getNumber)
+                        .collect(toImmutableList()),
+                ImmutableList.of(4L, 3L, 2L));
+    }
+
+    @Test
+    public void testEstimateCost()
+    {
+        assertEquals(GraphqlIssueFetcher.estimateCost(1), 1);
+        // every repository has a connection for its issues and one for its pull requests
+        assertEquals(GraphqlIssueFetcher.estimateCost(50), 1);
+        assertEquals(GraphqlIssueFetcher.estimateCost(51), 2);
+    }
+
+    @Test
+    public void testBatchSize()
+    {
+        GithubService service = new Retrofit.Builder()
+                .baseUrl("http://localhost/")
+                .build()
+                .create(GithubService.class);
+        assertEquals(new GraphqlIssueFetcher(service, 50).getBatchSize(), 50);
+        // a larger batch would cost more than a point per query
+        assertEquals(
+                expectThrows(IllegalArgumentException.class, () -> new GraphqlIssueFetcher(service, 51)).getMessage(),
+                "batchSize must be at most 50, so that a query costs a single point: 51");
+        expectThrows(IllegalArgumentException.class, () -> new GraphqlIssueFetcher(service, 0));
+    }
+}
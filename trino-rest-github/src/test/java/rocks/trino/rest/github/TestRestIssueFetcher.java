@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import org.testng.annotations.Test;
+
+import java.util.OptionalLong;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestRestIssueFetcher
+{
+    @Test
+    public void testLastPage()
+    {
+        assertEquals(
+                RestIssueFetcher.getLastPage("<https://api.github.com/repositories/6135546/issues?per_page=1&page=2>; rel=\"next\", " +
+                        "<https://api.github.com/repositories/6135546/issues?per_page=1&page=2149>; rel=\"last\""),
+                OptionalLong.of(2149));
+        assertEquals(
+                RestIssueFetcher.getLastPage("<https://api.github.com/repositories/6135546/issues?page=7&per_page=1>; rel=\"last\""),
+                OptionalLong.of(7));
+        // the last page has only the links to the previous pages
+        assertEquals(
+                RestIssueFetcher.getLastPage("<https://api.github.com/repositories/6135546/issues?per_page=1&page=1>; rel=\"first\""),
+                OptionalLong.empty());
+        assertEquals(RestIssueFetcher.getLastPage(null), OptionalLong.empty());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestRingBuffer
+{
+    @Test
+    public void testWraparound()
+    {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(buffer.getElements(), ImmutableList.of());
+
+        buffer.add(1);
+        buffer.add(2);
+        assertEquals(buffer.getElements(), ImmutableList.of(1, 2));
+        assertEquals(buffer.getReplacedCount(), 0);
+
+        buffer.add(3);
+        buffer.add(4);
+        buffer.add(5);
+        assertEquals(buffer.getElements(), ImmutableList.of(3, 4, 5));
+        assertEquals(buffer.getAddedCount(), 5);
+        assertEquals(buffer.getReplacedCount(), 2);
+    }
+
+    @Test
+    public void testMaxWeight()
+    {
+        RingBuffer<String> buffer = new RingBuffer<>(10, 10, String::length);
+        buffer.add("aaaa");
+        buffer.add("bbbb");
+        assertEquals(buffer.getElements(), ImmutableList.of("aaaa", "bbbb"));
+        assertEquals(buffer.getWeight(), 8);
+
+        // the oldest elements are dropped until the new one fits
+        buffer.add("cccccc");
+        assertEquals(buffer.getElements(), ImmutableList.of("bbbb", "cccccc"));
+        assertEquals(buffer.getWeight(), 10);
+        assertEquals(buffer.getReplacedCount(), 1);
+
+        // the latest element is kept even when it is heavier than the whole buffer
+        buffer.add("dddddddddddd");
+        assertEquals(buffer.getElements(), ImmutableList.of("dddddddddddd"));
+        buffer.add("e");
+        assertEquals(buffer.getElements(), ImmutableList.of("e"));
+        assertEquals(buffer.getWeight(), 1);
+        assertEquals(buffer.getReplacedCount(), 4);
+    }
+
+    @Test
+    public void testConcurrentAdds()
+            throws Exception
+    {
+        int capacity = 100;
+        RingBuffer<Integer> buffer = new RingBuffer<>(capacity);
+        ExecutorService executor = newFixedThreadPool(4);
+        try {
+            ImmutableList.Builder<Future<?>> writers = ImmutableList.builder();
+            for (int writer = 0; writer < 4; writer++) {
+                int first = writer * 10_000;
+                writers.add(executor.submit(() -> {
+                    for (int i = first; i < first + 10_000; i++) {
+                        buffer.add(i);
+                        List<Integer> elements = buffer.getElements();
+                        assertTrue(elements.size() <= capacity, "buffer holds more than its capacity");
+                    }
+                }));
+            }
+            for (Future<?> writer : writers.build()) {
+                writer.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(buffer.getAddedCount(), 40_000);
+        assertEquals(buffer.getElements().size(), capacity);
+    }
+}
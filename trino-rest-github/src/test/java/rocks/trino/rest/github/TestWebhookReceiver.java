@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.github;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import io.trino.spi.connector.SchemaTableName;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import rocks.trino.rest.HttpClientConfig;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static rocks.trino.rest.github.GithubRest.EVENTS_TABLE;
+import static rocks.trino.rest.github.GithubRest.ISSUES_TABLE;
+import static rocks.trino.rest.github.GithubRest.SCHEMA_NAME;
+
+public class TestWebhookReceiver
+{
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final OkHttpClient client = new OkHttpClient();
+    private WebhookReceiver receiver;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        receiver = new WebhookReceiver(0, SECRET, 2);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        receiver.close();
+    }
+
+    @Test
+    public void testSignature()
+    {
+        // example of the GitHub documentation on validating webhook deliveries
+        byte[] body = "Hello, World!".getBytes(UTF_8);
+        String signature = "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17";
+        assertTrue(WebhookReceiver.isValidSignature(Hashing.hmacSha256(SECRET.getBytes(UTF_8)), body, signature));
+
+        assertFalse(WebhookReceiver.isValidSignature(Hashing.hmacSha256("other".getBytes(UTF_8)), body, signature));
+        assertFalse(WebhookReceiver.isValidSignature(Hashing.hmacSha256(SECRET.getBytes(UTF_8)), "Hello, World?".getBytes(UTF_8), signature));
+        assertFalse(WebhookReceiver.isValidSignature(Hashing.hmacSha256(SECRET.getBytes(UTF_8)), body, signature.substring(7)));
+        assertFalse(WebhookReceiver.isValidSignature(Hashing.hmacSha256(SECRET.getBytes(UTF_8)), body, "sha256=not-hex"));
+        assertFalse(WebhookReceiver.isValidSignature(Hashing.hmacSha256(SECRET.getBytes(UTF_8)), body, null));
+    }
+
+    @Test
+    public void testDeliveries()
+            throws IOException
+    {
+        List<WebhookEvent> received = new CopyOnWriteArrayList<>();
+        receiver.addListener(received::add);
+
+        String payload = "{\"action\":\"opened\",\"repository\":{\"full_name\":\"trinodb/trino\"},\"sender\":{\"login\":\"octocat\"}}";
+        assertEquals(deliver("issues", payload, sign(payload)), 204);
+        assertEquals(deliver("ping", "{\"zen\":\"Keep it logically awesome.\"}", sign("{\"zen\":\"Keep it logically awesome.\"}")), 204);
+
+        // rejected deliveries are not buffered
+        assertEquals(deliver("issues", payload, null), 401);
+        assertEquals(deliver("issues", payload, sign("{}")), 401);
+        assertEquals(deliver("issues", "[]", sign("[]")), 400);
+
+        List<WebhookEvent> events = receiver.getEvents();
+        assertEquals(events.size(), 2);
+        assertEquals(received, events);
+        WebhookEvent event = events.get(0);
+        assertEquals(event.getDeliveryId(), "issues-delivery");
+        assertEquals(event.getEvent(), "issues");
+        assertEquals(event.getAction(), Optional.of("opened"));
+        assertEquals(event.getRepository(), Optional.of("trinodb/trino"));
+        assertEquals(event.getSender(), Optional.of("octocat"));
+        assertEquals(event.getPayload(), payload);
+        assertEquals(events.get(1).getEvent(), "ping");
+        assertEquals(events.get(1).getRepository(), Optional.empty());
+
+        // only the latest deliveries are kept
+        assertEquals(deliver("push", "{}", sign("{}")), 204);
+        assertEquals(receiver.getEvents().get(0).getEvent(), "ping");
+        assertEquals(receiver.getEvents().get(1).getEvent(), "push");
+    }
+
+    @Test
+    public void testRefusedDeliveries()
+            throws IOException
+    {
+        receiver.close();
+        AtomicBoolean worker = new AtomicBoolean();
+        receiver = new WebhookReceiver(0, SECRET, 2, Long.MAX_VALUE, worker::get);
+
+        // e.g. a coordinator that gets no splits, so the events would never be read
+        String payload = "{\"action\":\"opened\"}";
+        assertEquals(deliver("issues", payload, sign(payload)), 503);
+        assertEquals(receiver.getEvents(), ImmutableList.of());
+
+        worker.set(true);
+        assertEquals(deliver("issues", payload, sign(payload)), 204);
+        assertEquals(receiver.getEvents().size(), 1);
+    }
+
+    @Test
+    public void testBufferMemory()
+            throws IOException
+    {
+        receiver.close();
+        receiver = new WebhookReceiver(0, SECRET, 100, 1000, () -> true);
+
+        String payload = "{\"action\":\"opened\",\"body\":\"" + "x".repeat(150) + "\"}";
+        for (int i = 0; i < 3; i++) {
+            assertEquals(deliver("issues", payload, sign(payload)), 204);
+        }
+        // only the latest deliveries that fit in the memory are kept
+        List<WebhookEvent> events = receiver.getEvents();
+        assertEquals(events.size(), 2);
+        assertTrue(events.stream().mapToLong(WebhookEvent::getSizeInBytes).sum() <= 1000);
+
+        // a payload that would take more than the whole buffer is refused
+        String large = "{\"body\":\"" + "x".repeat(500) + "\"}";
+        assertEquals(deliver("issues", large, sign(large)), 413);
+        assertEquals(receiver.getEvents(), events);
+    }
+
+    @Test
+    public void testEventsTable()
+            throws IOException
+    {
+        GithubRest rest = new GithubRest(
+                ImmutableList.of(),
+                GithubTransport.REST,
+                20,
+                ImmutableList.of("trinodb/trino", "trinodb/docs"),
+                Optional.empty(),
+                Duration.ofMinutes(5),
+                0.1,
+                HttpClientConfig.fromConfig(ImmutableMap.of()),
+                Optional.of(receiver));
+        try {
+            SchemaTableName events = new SchemaTableName(SCHEMA_NAME, EVENTS_TABLE);
+            assertTrue(rest.listTables(SCHEMA_NAME).contains(events));
+            assertTrue(rest.isNodeLocal(events));
+            assertFalse(rest.isNodeLocal(new SchemaTableName(SCHEMA_NAME, ISSUES_TABLE)));
+
+            List<SchemaTableName> changed = new CopyOnWriteArrayList<>();
+            rest.addChangeListener(changed::add);
+
+            String payload = "{\"action\":\"closed\",\"repository\":{\"full_name\":\"trinodb/trino\"}}";
+            assertEquals(deliver("issues", payload, sign(payload)), 204);
+            assertEquals(changed, ImmutableList.of(
+                    new SchemaTableName(SCHEMA_NAME, ISSUES_TABLE),
+                    new SchemaTableName(SCHEMA_NAME, "trinodb_trino_issues")));
+
+            // other events leave the cached issues alone
+            changed.clear();
+            String push = "{\"repository\":{\"full_name\":\"trinodb/trino\"}}";
+            assertEquals(deliver("push", push, sign(push)), 204);
+            assertEquals(changed, ImmutableList.of());
+
+            List<? extends List<?>> rows = ImmutableList.copyOf(rest.getRows(events));
+            assertEquals(rows.size(), 2);
+            List<?> row = rows.get(0);
+            assertEquals(row.get(1), "issues");
+            assertEquals(row.get(2), "closed");
+            assertEquals(row.get(3), "trinodb/trino");
+            assertNull(row.get(4));
+            assertEquals(row.get(6), payload);
+        }
+        finally {
+            rest.shutdown();
+        }
+    }
+
+    private int deliver(String event, String payload, String signature)
+            throws IOException
+    {
+        Request.Builder request = new Request.Builder()
+                .url("http://localhost:" + receiver.getPort() + "/")
+                .header(WebhookReceiver.EVENT_HEADER, event)
+                .header(WebhookReceiver.DELIVERY_HEADER, event + "-delivery")
+                .post(RequestBody.create(JSON, payload));
+        if (signature != null) {
+            request.header(WebhookReceiver.SIGNATURE_HEADER, signature);
+        }
+        try (Response response = client.newCall(request.build()).execute()) {
+            return response.code();
+        }
+    }
+
+    private static String sign(String payload)
+    {
+        return "sha256=" + Hashing.hmacSha256(SECRET.getBytes(UTF_8)).hashString(payload, UTF_8);
+    }
+}
@@ -17,8 +17,15 @@ package rocks.trino.rest.slack;
 import com.google.common.collect.ImmutableList;
 import io.trino.spi.Plugin;
 import io.trino.spi.connector.ConnectorFactory;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.RestConnectorFactory;
 
+import java.time.Duration;
+
+import static rocks.trino.rest.Configs.getDouble;
+import static rocks.trino.rest.Configs.getDuration;
+import static rocks.trino.rest.Configs.getList;
+
 public class SlackPlugin
         implements Plugin
 {
@@ -26,6 +33,12 @@ public class SlackPlugin
     public Iterable<ConnectorFactory> getConnectorFactories()
     {
         return ImmutableList.of(new RestConnectorFactory(
-                "slack", config -> new SlackRest(config.get("token"))));
+                "slack",
+                (config, nodeManager) -> new SlackRest(
+                        getList(config, "token"),
+                        getDuration(config, "metadata_refresh_interval", Duration.ofMinutes(5)),
+                        getDouble(config, "metadata_refresh_jitter", 0.1),
+                        getDuration(config, "history_split_window", Duration.ofDays(30)),
+                        HttpClientConfig.fromConfig(config))));
     }
 }
@@ -16,76 +16,134 @@ package rocks.trino.rest.slack;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.trino.spi.connector.ColumnMetadata;
 import io.trino.spi.connector.ConnectorTableMetadata;
 import io.trino.spi.connector.SchemaTableName;
-import retrofit2.Retrofit;
-import retrofit2.converter.jackson.JacksonConverterFactory;
+import io.trino.spi.predicate.Domain;
+import io.trino.spi.predicate.Marker;
+import io.trino.spi.predicate.Range;
+import io.trino.spi.predicate.TupleDomain;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import rocks.trino.rest.CredentialPool;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.Rest;
+import rocks.trino.rest.RestColumnHandle;
+import rocks.trino.rest.RestPartition;
+import rocks.trino.rest.RestSortItem;
+import rocks.trino.rest.RowBuffer;
+import rocks.trino.rest.SnapshotRefresher;
 import rocks.trino.rest.slack.model.Channel;
 import rocks.trino.rest.slack.model.Channels;
 import rocks.trino.rest.slack.model.History;
 import rocks.trino.rest.slack.model.Im;
 import rocks.trino.rest.slack.model.Ims;
+import rocks.trino.rest.slack.model.Message;
 import rocks.trino.rest.slack.model.SlackResponse;
 import rocks.trino.rest.slack.model.User;
 import rocks.trino.rest.slack.model.Users;
 import rocks.trino.rest.slack.rest.SlackService;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.spi.type.TimestampType.TIMESTAMP_MICROS;
 import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
 import static java.util.Arrays.asList;
-import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static rocks.trino.rest.HttpClients.createService;
+import static rocks.trino.rest.HttpClients.newClientBuilder;
 
 public class SlackRest
         implements Rest
 {
     private static final String CHANNEL_SCHEMA = "channel";
     private static final String IM_SCHEMA = "im";
+    private static final String WORKSPACE_SCHEMA = "workspace";
+    // messages of all the conversations, with one split per conversation
+    private static final SchemaTableName MESSAGES_TABLE = new SchemaTableName(WORKSPACE_SCHEMA, "messages");
+    // history returns at most that many messages per request
+    private static final int MAX_HISTORY_PAGE_SIZE = 1000;
+    private static final RestColumnHandle TS_COLUMN = new RestColumnHandle("ts", TIMESTAMP_MICROS);
+    private static final RestColumnHandle CHANNEL_COLUMN = new RestColumnHandle("channel", createUnboundedVarcharType());
+    private static final RestColumnHandle CONVERSATION_TYPE_COLUMN = new RestColumnHandle("conversation_type", createUnboundedVarcharType());
 
-    private final SlackService service = new Retrofit.Builder()
-            .baseUrl("https://slack.com/api/")
-            .addConverterFactory(JacksonConverterFactory.create())
-            .build()
-            .create(SlackService.class);
+    private final SlackService service;
+    private final SnapshotRefresher<SlackSnapshot> snapshot;
+    private final long historyWindowMicros;
 
-    private final Map<String, Channel> channels;
-    private final Map<String, User> users;
-    private final Map<String, Im> ims;
-    private final String token;
+    /**
+     * Requests are spread over all the {@code tokens}, which must be able to read the same channels and
+     * direct messages, e.g. tokens of several apps installed by the same user.
+     * Histories are read in windows of {@code historyWindow}, which are fetched concurrently.
+     */
+    public SlackRest(List<String> tokens, Duration metadataRefreshInterval, double metadataRefreshJitter, Duration historyWindow, HttpClientConfig httpClientConfig)
+    {
+        checkArgument(!tokens.isEmpty(), "Slack API requires a token");
+        checkArgument(!historyWindow.isNegative() && !historyWindow.isZero(), "historyWindow must be positive");
+        this.historyWindowMicros = historyWindow.toMillis() * 1000;
+        OkHttpClient client = newClientBuilder(httpClientConfig)
+                .addInterceptor(new CredentialPool(tokens.stream()
+                        .map(token -> (Interceptor) chain -> chain.proceed(chain.request().newBuilder()
+                                .url(chain.request().url().newBuilder()
+                                        .setQueryParameter("token", token)
+                                        .build())
+                                .build()))
+                        .collect(toImmutableList())))
+                .build();
+        this.service = createService(SlackService.class, "https://slack.com/api/", client, httpClientConfig);
+        this.snapshot = new SnapshotRefresher<>("slack-metadata", this::loadSnapshot, SlackSnapshot::describeChanges, metadataRefreshInterval, metadataRefreshJitter);
+    }
 
-    public SlackRest(String token)
+    private SlackSnapshot loadSnapshot()
     {
-        this.token = token;
         try {
-            Channels channels = service.listChannels(token).execute().body();
+            Channels channels = service.listChannels().execute().body();
             if (channels.getError() != null) {
                 throw new IllegalStateException("Error during communication with slack: " + channels.getError());
             }
-            this.channels = channels.getChannels().stream()
-                    .filter(Channel::isMember)
-                    .collect(toMap(Channel::getName, identity()));
-
-            Users users = service.listUsers(token).execute().body();
+            Users users = service.listUsers().execute().body();
             if (users.getError() != null) {
-                throw new IllegalStateException("Error during communication with slack: " + channels.getError());
+                throw new IllegalStateException("Error during communication with slack: " + users.getError());
             }
-            this.users = users.getUsers().stream()
-                    .collect(toMap(User::getName, identity()));
-
-            Ims ims = service.listIms(token).execute().body();
+            Ims ims = service.listIms().execute().body();
             if (ims.getError() != null) {
-                throw new IllegalStateException("Error during communication with slack: " + channels.getError());
+                throw new IllegalStateException("Error during communication with slack: " + ims.getError());
             }
-            this.ims = ims.getIms().stream()
-                    .collect(toMap(Im::getUser, identity()));
+            return new SlackSnapshot(
+                    channels.getChannels().stream()
+                            .filter(Channel::isMember)
+                            .collect(toMap(Channel::getName, Channel::getId)),
+                    users.getUsers().stream()
+                            .collect(toMap(User::getName, User::getId)),
+                    ims.getIms().stream()
+                            .collect(toMap(Im::getUser, Im::getId)),
+                    ImmutableMap.<String, Long>builder()
+                            .putAll(channels.getChannels().stream()
+                                    .filter(Channel::isMember)
+                                    .collect(toMap(Channel::getId, Channel::getCreated)))
+                            .putAll(ims.getIms().stream()
+                                    .collect(toMap(Im::getId, Im::getCreated)))
+                            .build());
         }
         catch (IOException e) {
             throw Throwables.propagate(e);
@@ -95,61 +153,292 @@ public class SlackRest
     @Override
     public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
     {
+        ImmutableList.Builder<ColumnMetadata> columns = ImmutableList.builder();
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            // name of the channel, or of the user of a direct message channel
+            columns.add(new ColumnMetadata(CHANNEL_COLUMN.getName(), CHANNEL_COLUMN.getType()));
+            // name of the schema of the conversation's own table
+            columns.add(new ColumnMetadata(CONVERSATION_TYPE_COLUMN.getName(), CONVERSATION_TYPE_COLUMN.getType()));
+        }
         return new ConnectorTableMetadata(
                 schemaTableName,
-                ImmutableList.of(
-                        new ColumnMetadata("type", createUnboundedVarcharType()),
-                        new ColumnMetadata("user", createUnboundedVarcharType()),
-                        new ColumnMetadata("text", createUnboundedVarcharType())));
+                columns
+                        .add(new ColumnMetadata("type", createUnboundedVarcharType()))
+                        .add(new ColumnMetadata("user", createUnboundedVarcharType()))
+                        .add(new ColumnMetadata("text", createUnboundedVarcharType()))
+                        .add(new ColumnMetadata("ts", TIMESTAMP_MICROS))
+                        .build());
+    }
+
+    @Override
+    public Set<String> getLowCardinalityColumns(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            return ImmutableSet.of(CHANNEL_COLUMN.getName(), CONVERSATION_TYPE_COLUMN.getName(), "type", "user");
+        }
+        return ImmutableSet.of("type", "user");
     }
 
     @Override
     public List<String> listSchemas()
     {
-        return ImmutableList.of(CHANNEL_SCHEMA, IM_SCHEMA);
+        return ImmutableList.of(CHANNEL_SCHEMA, IM_SCHEMA, WORKSPACE_SCHEMA);
     }
 
     @Override
     public List<SchemaTableName> listTables(String schema)
     {
         if (CHANNEL_SCHEMA.equalsIgnoreCase(schema)) {
-            return channels.keySet().stream()
+            return snapshot.get().getChannelIds().keySet().stream()
                     .map(tableName -> new SchemaTableName(CHANNEL_SCHEMA, tableName))
                     .collect(toList());
         }
         if (IM_SCHEMA.equalsIgnoreCase(schema)) {
-            return users.keySet().stream()
+            return snapshot.get().getUserIds().keySet().stream()
                     .map(tableName -> new SchemaTableName(IM_SCHEMA, tableName))
                     .collect(toList());
         }
+        if (WORKSPACE_SCHEMA.equalsIgnoreCase(schema)) {
+            return ImmutableList.of(MESSAGES_TABLE);
+        }
         return ImmutableList.of();
     }
 
     @Override
     public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
     {
-        History history = getHistory(schemaTableName);
-
-        if (history.getError() != null) {
-            throw new IllegalStateException("Unable to read from '" + schemaTableName + "' dues: " + history.getError());
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            ImmutableList.Builder<List<?>> rows = ImmutableList.builder();
+            for (SchemaTableName conversation : listConversations(snapshot.get(), TupleDomain.all())) {
+                for (List<?> row : getRows(conversation)) {
+                    rows.add(ImmutableList.builder()
+                            .add(conversation.getTableName(), conversation.getSchemaName())
+                            .addAll(row)
+                            .build());
+                }
+            }
+            return rows.build();
         }
-        return history
-                .getMessages().stream()
-                .map(message -> asList(message.getType(), message.getUser(), message.getText()))
+        return getMessages(schemaTableName, OptionalLong.empty(), OptionalLong.empty(), Long.MAX_VALUE).stream()
+                .map(message -> asList(message.getType(), message.getUser(), message.getText(), message.getTs() == null ? null : parseTimestamp(message.getTs())))
                 .collect(toList());
     }
 
-    private History getHistory(SchemaTableName schemaTableName)
+    @Override
+    public Set<String> getFilterColumns(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            return ImmutableSet.of(CHANNEL_COLUMN.getName(), CONVERSATION_TYPE_COLUMN.getName(), TS_COLUMN.getName());
+        }
+        return ImmutableSet.of(TS_COLUMN.getName());
+    }
+
+    @Override
+    public List<RestPartition> getPartitions(SchemaTableName schemaTableName)
+    {
+        return getPartitions(schemaTableName, TupleDomain.all());
+    }
+
+    @Override
+    public List<RestPartition> getPartitions(SchemaTableName schemaTableName, TupleDomain<RestColumnHandle> constraint)
+    {
+        Map<RestColumnHandle, Domain> domains = constraint.getDomains().orElse(null);
+        if (domains == null) {
+            return ImmutableList.of();
+        }
+        Domain ts = domains.getOrDefault(TS_COLUMN, Domain.all(TIMESTAMP_MICROS));
+        long now = System.currentTimeMillis() * 1000 + 1;
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            // a single window per conversation, as there are already as many splits as conversations
+            ImmutableList.Builder<RestPartition> partitions = ImmutableList.builder();
+            for (SchemaTableName conversation : listConversations(snapshot.get(), constraint)) {
+                Long created = snapshot.get().getCreatedTimes().get(getChannelId(conversation));
+                for (RestPartition window : getWindows(ts, created == null ? 0 : created * 1_000_000, now, Long.MAX_VALUE)) {
+                    partitions.add(new RestPartition(Optional.of(conversation.toString()), window.getStart(), window.getEnd()));
+                }
+            }
+            return partitions.build();
+        }
+        Long created = snapshot.get().getCreatedTimes().get(getChannelId(schemaTableName));
+        if (created == null || created <= 0) {
+            // without the creation time, the start of the history is unknown, so it is read as a whole
+            return ImmutableList.of(RestPartition.ALL);
+        }
+        // messages posted once the query started are not read
+        return getWindows(ts, created * 1_000_000, now, historyWindowMicros);
+    }
+
+    /**
+     * Tables of the conversations of {@code current} that can match {@code constraint} on the columns of the messages table.
+     */
+    static List<SchemaTableName> listConversations(SlackSnapshot current, TupleDomain<RestColumnHandle> constraint)
+    {
+        Map<RestColumnHandle, Domain> domains = constraint.getDomains().orElse(ImmutableMap.of());
+        Domain type = domains.getOrDefault(CONVERSATION_TYPE_COLUMN, Domain.all(CONVERSATION_TYPE_COLUMN.getType()));
+        Domain channel = domains.getOrDefault(CHANNEL_COLUMN, Domain.all(CHANNEL_COLUMN.getType()));
+        ImmutableList.Builder<SchemaTableName> conversations = ImmutableList.builder();
+        if (type.includesNullableValue(utf8Slice(CHANNEL_SCHEMA))) {
+            current.getChannelIds().keySet().stream()
+                    .filter(name -> channel.includesNullableValue(utf8Slice(name)))
+                    .map(name -> new SchemaTableName(CHANNEL_SCHEMA, name))
+                    .forEach(conversations::add);
+        }
+        if (type.includesNullableValue(utf8Slice(IM_SCHEMA))) {
+            current.getUserIds().entrySet().stream()
+                    .filter(user -> current.getImIds().containsKey(user.getValue()))
+                    .map(Map.Entry::getKey)
+                    .filter(name -> channel.includesNullableValue(utf8Slice(name)))
+                    .map(name -> new SchemaTableName(IM_SCHEMA, name))
+                    .forEach(conversations::add);
+        }
+        return conversations.build();
+    }
+
+    /**
+     * Splits the part of {@code [start, end)} that {@code domain} can match into windows of at most {@code windowMicros}.
+     * Windows are aligned to multiples of {@code windowMicros}, so the same windows are read by queries with different predicates.
+     */
+    static List<RestPartition> getWindows(Domain domain, long start, long end, long windowMicros)
+    {
+        if (domain.getValues().isNone()) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<RestPartition> windows = ImmutableList.builder();
+        for (Range range : domain.getValues().getRanges().getOrderedRanges()) {
+            long low = start;
+            if (!range.getLow().isLowerUnbounded()) {
+                long value = (long) range.getLow().getValue();
+                low = max(low, range.getLow().getBound() == Marker.Bound.EXACTLY ? value : value + 1);
+            }
+            long high = end;
+            if (!range.getHigh().isUpperUnbounded()) {
+                long value = (long) range.getHigh().getValue();
+                high = min(high, range.getHigh().getBound() == Marker.Bound.EXACTLY ? value + 1 : value);
+            }
+            long windowStart = low;
+            while (windowStart < high) {
+                long windowEnd = min(high, (floorDiv(windowStart, windowMicros) + 1) * windowMicros);
+                windows.add(RestPartition.range(windowStart, windowEnd));
+                windowStart = windowEnd;
+            }
+        }
+        return windows.build();
+    }
+
+    @Override
+    public void scanRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns, RowBuffer rows)
+    {
+        if (schemaTableName.equals(MESSAGES_TABLE)) {
+            String key = partition.getKey().orElseThrow(() -> new IllegalArgumentException("Missing conversation of " + partition));
+            // conversation types have no dots, unlike user names
+            int dot = key.indexOf('.');
+            SchemaTableName conversation = new SchemaTableName(key.substring(0, dot), key.substring(dot + 1));
+            writeMessages(
+                    getMessages(conversation, partition.getStart(), partition.getEnd(), Long.MAX_VALUE),
+                    ImmutableList.of(conversation.getTableName(), conversation.getSchemaName()),
+                    rows);
+            return;
+        }
+        writeMessages(getMessages(schemaTableName, partition.getStart(), partition.getEnd(), Long.MAX_VALUE), ImmutableList.of(), rows);
+    }
+
+    @Override
+    public boolean supportsTopN(SchemaTableName schemaTableName, List<RestSortItem> sortOrder, long limit)
+    {
+        // history lists the newest messages first, but only within a single conversation
+        return !schemaTableName.equals(MESSAGES_TABLE)
+                && sortOrder.size() == 1
+                && sortOrder.get(0).getColumn().equals(TS_COLUMN.getName())
+                && !sortOrder.get(0).getSortOrder().isAscending();
+    }
+
+    @Override
+    public void scanTopN(SchemaTableName schemaTableName, List<RestColumnHandle> columns, List<RestSortItem> sortOrder, long limit, RowBuffer rows)
+    {
+        writeMessages(getMessages(schemaTableName, OptionalLong.empty(), OptionalLong.empty(), limit), ImmutableList.of(), rows);
+    }
+
+    /**
+     * Writes rows of {@code messages}, after the {@code conversation} columns of the messages table, if any.
+     */
+    private static void writeMessages(List<Message> messages, List<String> conversation, RowBuffer rows)
+    {
+        int offset = conversation.size();
+        for (Message message : messages) {
+            for (int field = 0; field < offset; field++) {
+                rows.setObject(field, conversation.get(field));
+            }
+            rows.setObject(offset, message.getType());
+            rows.setObject(offset + 1, message.getUser());
+            rows.setObject(offset + 2, message.getText());
+            if (message.getTs() != null) {
+                rows.setLong(offset + 3, parseTimestamp(message.getTs()));
+            }
+            rows.endRow();
+        }
+    }
+
+    /**
+     * Converts Slack timestamps, i.e. seconds with a fraction of up to six digits such as {@code 1512085950.000216}, into microseconds.
+     */
+    static long parseTimestamp(String ts)
+    {
+        int dot = ts.indexOf('.');
+        if (dot < 0) {
+            return Long.parseLong(ts) * 1_000_000;
+        }
+        String fraction = ts.substring(dot + 1);
+        checkArgument(fraction.length() <= 6, "Invalid Slack timestamp: %s", ts);
+        return Long.parseLong(ts.substring(0, dot)) * 1_000_000 + Long.parseLong(fraction + "000000".substring(fraction.length()));
+    }
+
+    /**
+     * Converts microseconds into a Slack timestamp.
+     */
+    static String formatTimestamp(long micros)
+    {
+        return format("%d.%06d", floorDiv(micros, 1_000_000), floorMod(micros, 1_000_000));
+    }
+
+    /**
+     * Reads at most {@code limit} of the newest messages posted in {@code [start, end)}, following
+     * the pages of the history.
+     */
+    private List<Message> getMessages(SchemaTableName schemaTableName, OptionalLong start, OptionalLong end, long limit)
+    {
+        // both bounds of history requests are exclusive
+        String oldest = start.isPresent() && start.getAsLong() > 0 ? formatTimestamp(start.getAsLong() - 1) : null;
+        String latest = end.isPresent() ? formatTimestamp(end.getAsLong()) : null;
+        ImmutableList.Builder<Message> messages = ImmutableList.builder();
+        long remaining = limit;
+        while (remaining > 0) {
+            History history = getHistory(schemaTableName, toIntExact(min(remaining, MAX_HISTORY_PAGE_SIZE)), oldest, latest);
+            if (history.getError() != null) {
+                throw new IllegalStateException("Unable to read from '" + schemaTableName + "' dues: " + history.getError());
+            }
+            List<Message> page = history.getMessages();
+            messages.addAll(page);
+            remaining -= page.size();
+            if (!history.hasMore() || page.isEmpty() || page.get(page.size() - 1).getTs() == null) {
+                break;
+            }
+            // pages go from the newest messages to the oldest ones
+            latest = page.get(page.size() - 1).getTs();
+        }
+        return messages.build();
+    }
+
+    private History getHistory(SchemaTableName schemaTableName, int count, String oldest, String latest)
     {
         String schemaName = schemaTableName.getSchemaName();
         try {
             if (CHANNEL_SCHEMA.equalsIgnoreCase(schemaName)) {
-                return service.channelHistory(token, getChannelId(schemaTableName))
+                return service.channelHistory(getChannelId(schemaTableName), count, oldest, latest)
                         .execute()
                         .body();
             }
             if (IM_SCHEMA.equalsIgnoreCase(schemaName)) {
-                return service.imHistory(token, getChannelId(schemaTableName))
+                return service.imHistory(getChannelId(schemaTableName), count, oldest, latest)
                         .execute()
                         .body();
             }
@@ -157,21 +446,41 @@ public class SlackRest
         catch (IOException e) {
             throw Throwables.propagate(e);
         }
-        return new History(true, "no such schema", ImmutableList.of());
+        return new History(true, "no such schema", ImmutableList.of(), false);
     }
 
     private String getChannelId(SchemaTableName schemaTableName)
     {
         String schemaName = schemaTableName.getSchemaName();
         String tableName = schemaTableName.getTableName();
+        SlackSnapshot current = snapshot.get();
+        String channelId = null;
         if (CHANNEL_SCHEMA.equalsIgnoreCase(schemaName)) {
-            return channels.get(tableName).getId();
+            channelId = current.getChannelIds().get(tableName);
+        }
+        else if (IM_SCHEMA.equalsIgnoreCase(schemaName)) {
+            String userId = current.getUserIds().get(tableName);
+            channelId = userId == null ? null : current.getImIds().get(userId);
+        }
+        else {
+            throw new IllegalArgumentException("Unknown schema: " + schemaName);
         }
-        if (IM_SCHEMA.equalsIgnoreCase(schemaName)) {
-            String userId = users.get(tableName).getId();
-            return ims.get(userId).getId();
+        if (channelId == null) {
+            throw new IllegalArgumentException("Unknown table: " + schemaTableName);
         }
-        throw new IllegalArgumentException("Unknown schema: " + schemaName);
+        return channelId;
+    }
+
+    @Override
+    public Map<String, Object> getMBeans()
+    {
+        return ImmutableMap.of("MetadataRefresher", snapshot);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        snapshot.shutdown();
     }
 
     @Override
@@ -179,7 +488,7 @@ public class SlackRest
     {
         return list -> {
             try {
-                SlackResponse body = service.postMessage(token, getChannelId(schemaTableName), (String) list.get(2)).execute().body();
+                SlackResponse body = service.postMessage(getChannelId(schemaTableName), (String) list.get(2)).execute().body();
                 if (body.getError() != null) {
                     throw new IllegalStateException("Unable to write to '" + schemaTableName + "' dues: " + body.getError());
                 }
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.slack;
+
+import com.google.common.collect.ImmutableMap;
+import rocks.trino.rest.SnapshotRefresher;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Immutable view of the workspace: channel name to channel id, user name to user id
+ * user id to the id of the direct message channel with that user, and the id of every channel,
+ * including direct message channels, to the time it was created, in seconds since the epoch.
+ */
+public class SlackSnapshot
+{
+    private final Map<String, String> channelIds;
+    private final Map<String, String> userIds;
+    private final Map<String, String> imIds;
+    private final Map<String, Long> createdTimes;
+
+    public SlackSnapshot(Map<String, String> channelIds, Map<String, String> userIds, Map<String, String> imIds, Map<String, Long> createdTimes)
+    {
+        this.channelIds = ImmutableMap.copyOf(requireNonNull(channelIds, "channelIds is null"));
+        this.userIds = ImmutableMap.copyOf(requireNonNull(userIds, "userIds is null"));
+        this.imIds = ImmutableMap.copyOf(requireNonNull(imIds, "imIds is null"));
+        this.createdTimes = ImmutableMap.copyOf(requireNonNull(createdTimes, "createdTimes is null"));
+    }
+
+    public Map<String, String> getChannelIds()
+    {
+        return channelIds;
+    }
+
+    public Map<String, String> getUserIds()
+    {
+        return userIds;
+    }
+
+    public Map<String, String> getImIds()
+    {
+        return imIds;
+    }
+
+    public Map<String, Long> getCreatedTimes()
+    {
+        return createdTimes;
+    }
+
+    /**
+     * Channels, users and direct messages added or removed since {@code previous}.
+     */
+    public static String describeChanges(SlackSnapshot previous, SlackSnapshot current)
+    {
+        String changes = Stream.of(
+                        SnapshotRefresher.describeChanges("channels", previous.channelIds.keySet(), current.channelIds.keySet()),
+                        SnapshotRefresher.describeChanges("users", previous.userIds.keySet(), current.userIds.keySet()),
+                        SnapshotRefresher.describeChanges("direct messages", previous.imIds.keySet(), current.imIds.keySet()))
+                .filter(change -> !change.isEmpty())
+                .collect(joining(", "));
+        // e.g. a channel that was renamed back and forth, or archived and recreated
+        return changes.isEmpty() ? "ids changed" : changes;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SlackSnapshot that = (SlackSnapshot) o;
+        return Objects.equals(channelIds, that.channelIds) &&
+                Objects.equals(userIds, that.userIds) &&
+                Objects.equals(imIds, that.imIds) &&
+                Objects.equals(createdTimes, that.createdTimes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(channelIds, userIds, imIds, createdTimes);
+    }
+}
@@ -25,18 +25,21 @@ public class Channel
     private final String name;
     private final boolean isMember;
     private final boolean isArchived;
+    private final long created;
 
     @JsonCreator
     public Channel(
             @JsonProperty("id") String id,
             @JsonProperty("name") String name,
             @JsonProperty("is_member") boolean isMember,
-            @JsonProperty("is_archived") boolean isArchived)
+            @JsonProperty("is_archived") boolean isArchived,
+            @JsonProperty("created") long created)
     {
         this.id = id;
         this.name = name;
         this.isMember = isMember;
         this.isArchived = isArchived;
+        this.created = created;
     }
 
     public String getName()
@@ -58,4 +61,9 @@ public class Channel
     {
         return id;
     }
+
+    public long getCreated()
+    {
+        return created;
+    }
 }
@@ -24,18 +24,29 @@ public class History
         extends SlackResponse
 {
     private final List<Message> messages;
+    private final boolean hasMore;
 
     public History(
             @JsonProperty("ok") boolean ok,
             @JsonProperty("error") String error,
-            @JsonProperty("messages") List<Message> messages)
+            @JsonProperty("messages") List<Message> messages,
+            @JsonProperty("has_more") boolean hasMore)
     {
         super(ok, error);
         this.messages = messages;
+        this.hasMore = hasMore;
     }
 
     public List<Message> getMessages()
     {
         return messages;
     }
+
+    /**
+     * Whether there are older messages than the ones returned, in the requested range.
+     */
+    public boolean hasMore()
+    {
+        return hasMore;
+    }
 }
@@ -23,14 +23,17 @@ public class Im
 {
     private final String id;
     private final String user;
+    private final long created;
 
     @JsonCreator
     public Im(
             @JsonProperty("id") String id,
-            @JsonProperty("user") String user)
+            @JsonProperty("user") String user,
+            @JsonProperty("created") long created)
     {
         this.id = id;
         this.user = user;
+        this.created = created;
     }
 
     public String getUser()
@@ -42,4 +45,9 @@ public class Im
     {
         return id;
     }
+
+    public long getCreated()
+    {
+        return created;
+    }
 }
@@ -23,15 +23,18 @@ public class Message
     private final String type;
     private final String user;
     private final String text;
+    private final String ts;
 
     public Message(
             @JsonProperty("type") String type,
             @JsonProperty("user") String user,
-            @JsonProperty("text") String text)
+            @JsonProperty("text") String text,
+            @JsonProperty("ts") String ts)
     {
         this.type = type;
         this.user = user;
         this.text = text;
+        this.ts = ts;
     }
 
     public String getType()
@@ -48,4 +51,9 @@ public class Message
     {
         return text;
     }
+
+    public String getTs()
+    {
+        return ts;
+    }
 }
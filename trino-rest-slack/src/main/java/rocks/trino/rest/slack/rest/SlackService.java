@@ -27,30 +27,30 @@ import rocks.trino.rest.slack.model.Users;
 public interface SlackService
 {
     @GET("channels.list")
-    Call<Channels> listChannels(
-            @Query("token") String token);
+    Call<Channels> listChannels();
 
     @GET("channels.history")
     Call<History> channelHistory(
-            @Query("token") String token,
-            @Query("channel") String channel);
+            @Query("channel") String channel,
+            @Query("count") int count,
+            @Query("oldest") String oldest,
+            @Query("latest") String latest);
 
     @POST("chat.postMessage")
     Call<SlackResponse> postMessage(
-            @Query("token") String token,
             @Query("channel") String channel,
             @Query("text") String text);
 
     @GET("users.list")
-    Call<Users> listUsers(
-            @Query("token") String token);
+    Call<Users> listUsers();
 
     @GET("im.list")
-    Call<Ims> listIms(
-            @Query("token") String token);
+    Call<Ims> listIms();
 
     @GET("im.history")
     Call<History> imHistory(
-            @Query("token") String token,
-            @Query("channel") String channel);
+            @Query("channel") String channel,
+            @Query("count") int count,
+            @Query("oldest") String oldest,
+            @Query("latest") String latest);
 }
@@ -64,9 +64,17 @@ public class TestSlackQueries
     @Test
     public void showTables()
     {
-        assertQuery("SHOW SCHEMAS FROM slack", "VALUES 'channel', 'im', 'information_schema'");
+        assertQuery("SHOW SCHEMAS FROM slack", "VALUES 'channel', 'im', 'workspace', 'information_schema'");
         computeActual("SHOW TABLES FROM slack.channel");
         computeActual("SHOW TABLES FROM slack.im");
+        assertQuery("SHOW TABLES FROM slack.workspace", "VALUES 'messages'");
+    }
+
+    @Test
+    public void selectFromMessages()
+    {
+        computeActual("SELECT channel, count(*) FROM slack.workspace.messages GROUP BY channel");
+        computeActual("SELECT text FROM slack.workspace.messages WHERE conversation_type = 'channel' AND channel = 'general'");
     }
 
     @Test
@@ -79,7 +87,7 @@ public class TestSlackQueries
     @Test
     public void insertIntoChannel()
     {
-        assertUpdate("INSERT INTO slack.channel.gko_tests VALUES (null, null, 'ala ma kota')", 1);
+        assertUpdate("INSERT INTO slack.channel.gko_tests VALUES (null, null, 'ala ma kota', null)", 1);
         assertUpdate("INSERT INTO slack.channel.gko_tests(text) VALUES ('ala ma kota 2')", 1);
     }
 
@@ -93,7 +101,7 @@ public class TestSlackQueries
     @Test
     public void insertIntoGkokosinski()
     {
-        assertUpdate("INSERT INTO slack.im.gkokosinski VALUES (null, null, 'ala ma kota')", 1);
+        assertUpdate("INSERT INTO slack.im.gkokosinski VALUES (null, null, 'ala ma kota', null)", 1);
         assertUpdate("INSERT INTO slack.im.gkokosinski(text) VALUES ('ala ma kota 2')", 1);
     }
 }
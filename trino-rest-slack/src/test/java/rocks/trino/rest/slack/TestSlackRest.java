@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.slack;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.spi.predicate.Domain;
+import io.trino.spi.predicate.Range;
+import io.trino.spi.predicate.TupleDomain;
+import io.trino.spi.predicate.ValueSet;
+import org.testng.annotations.Test;
+import rocks.trino.rest.RestColumnHandle;
+import rocks.trino.rest.RestPartition;
+
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.trino.spi.type.TimestampType.TIMESTAMP_MICROS;
+import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+public class TestSlackRest
+{
+    private static final SlackSnapshot SNAPSHOT = new SlackSnapshot(
+            ImmutableMap.of("general", "C1", "random", "C2"),
+            ImmutableMap.of("alice", "U1", "bob", "U2"),
+            // there is no direct message channel with bob
+            ImmutableMap.of("U1", "D1"),
+            ImmutableMap.of("C1", 1L, "C2", 2L, "D1", 3L));
+    private static final RestColumnHandle CHANNEL = new RestColumnHandle("channel", createUnboundedVarcharType());
+    private static final RestColumnHandle CONVERSATION_TYPE = new RestColumnHandle("conversation_type", createUnboundedVarcharType());
+
+    @Test
+    public void testParseTimestamp()
+    {
+        assertEquals(SlackRest.parseTimestamp("1512085950.000216"), 1512085950_000216L);
+        assertEquals(SlackRest.parseTimestamp("1512085950.5"), 1512085950_500000L);
+        assertEquals(SlackRest.parseTimestamp("1512085950"), 1512085950_000000L);
+        assertThrows(IllegalArgumentException.class, () -> SlackRest.parseTimestamp("1512085950.0000001"));
+    }
+
+    @Test
+    public void testFormatTimestamp()
+    {
+        assertEquals(SlackRest.formatTimestamp(1512085950_000216L), "1512085950.000216");
+        assertEquals(SlackRest.formatTimestamp(1512085950_000000L), "1512085950.000000");
+        assertEquals(SlackRest.parseTimestamp(SlackRest.formatTimestamp(1512085950_500000L)), 1512085950_500000L);
+    }
+
+    @Test
+    public void testWindows()
+    {
+        // the whole history, in windows aligned to multiples of the window size
+        assertEquals(
+                SlackRest.getWindows(Domain.all(TIMESTAMP_MICROS), 150, 420, 100),
+                ImmutableList.of(RestPartition.range(150, 200), RestPartition.range(200, 300), RestPartition.range(300, 400), RestPartition.range(400, 420)));
+
+        // windows are clipped by the predicate
+        assertEquals(
+                SlackRest.getWindows(Domain.create(ValueSet.ofRanges(Range.range(TIMESTAMP_MICROS, 250L, false, 310L, true)), false), 150, 420, 100),
+                ImmutableList.of(RestPartition.range(251, 300), RestPartition.range(300, 311)));
+        assertEquals(
+                SlackRest.getWindows(Domain.create(ValueSet.ofRanges(Range.greaterThanOrEqual(TIMESTAMP_MICROS, 390L)), false), 150, 420, 100),
+                ImmutableList.of(RestPartition.range(390, 400), RestPartition.range(400, 420)));
+        assertEquals(
+                SlackRest.getWindows(Domain.create(ValueSet.ofRanges(Range.lessThan(TIMESTAMP_MICROS, 180L), Range.equal(TIMESTAMP_MICROS, 350L)), false), 150, 420, 100),
+                ImmutableList.of(RestPartition.range(150, 180), RestPartition.range(350, 351)));
+
+        // nothing outside of the history is read
+        assertEquals(SlackRest.getWindows(Domain.singleValue(TIMESTAMP_MICROS, 100L), 150, 420, 100), ImmutableList.of());
+        assertEquals(SlackRest.getWindows(Domain.onlyNull(TIMESTAMP_MICROS), 150, 420, 100), ImmutableList.of());
+    }
+
+    @Test
+    public void testListConversations()
+    {
+        assertEquals(
+                SlackRest.listConversations(SNAPSHOT, TupleDomain.all()),
+                ImmutableList.of(new SchemaTableName("channel", "general"), new SchemaTableName("channel", "random"), new SchemaTableName("im", "alice")));
+        assertEquals(
+                SlackRest.listConversations(SNAPSHOT, TupleDomain.withColumnDomains(ImmutableMap.of(CONVERSATION_TYPE, Domain.singleValue(createUnboundedVarcharType(), utf8Slice("im"))))),
+                ImmutableList.of(new SchemaTableName("im", "alice")));
+        assertEquals(
+                SlackRest.listConversations(SNAPSHOT, TupleDomain.withColumnDomains(ImmutableMap.of(CHANNEL, Domain.multipleValues(createUnboundedVarcharType(), ImmutableList.of(utf8Slice("random"), utf8Slice("alice")))))),
+                ImmutableList.of(new SchemaTableName("channel", "random"), new SchemaTableName("im", "alice")));
+        assertEquals(
+                SlackRest.listConversations(SNAPSHOT, TupleDomain.withColumnDomains(ImmutableMap.of(
+                        CHANNEL, Domain.singleValue(createUnboundedVarcharType(), utf8Slice("general")),
+                        CONVERSATION_TYPE, Domain.singleValue(createUnboundedVarcharType(), utf8Slice("im"))))),
+                ImmutableList.of());
+    }
+}
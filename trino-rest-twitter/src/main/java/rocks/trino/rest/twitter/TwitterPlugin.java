@@ -17,8 +17,13 @@ package rocks.trino.rest.twitter;
 import com.google.common.collect.ImmutableList;
 import io.trino.spi.Plugin;
 import io.trino.spi.connector.ConnectorFactory;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.RestConnectorFactory;
 
+import static java.lang.Math.toIntExact;
+import static rocks.trino.rest.Configs.getList;
+import static rocks.trino.rest.Configs.getLong;
+
 public class TwitterPlugin
         implements Plugin
 {
@@ -27,10 +32,15 @@ public class TwitterPlugin
     {
         return ImmutableList.of(new RestConnectorFactory(
                 "twitter",
-                config -> new TwitterRest(
-                        config.get("customer_key"),
-                        config.get("customer_secret"),
-                        config.get("token"),
-                        config.get("secret"))));
+                (config, nodeManager) -> new TwitterRest(
+                        getList(config, "customer_key"),
+                        getList(config, "customer_secret"),
+                        getList(config, "token"),
+                        getList(config, "secret"),
+                        toIntExact(getLong(config, "search_splits", 7)),
+                        toIntExact(getLong(config, "search_max_pages", 10)),
+                        config.getOrDefault("api_url", "https://api.twitter.com/1.1/"),
+                        config.getOrDefault("stream_url", "https://stream.twitter.com/1.1/"),
+                        HttpClientConfig.fromConfig(config))));
     }
 }
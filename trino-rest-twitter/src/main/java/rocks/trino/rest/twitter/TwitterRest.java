@@ -14,42 +14,152 @@
 
 package rocks.trino.rest.twitter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import io.trino.spi.connector.ColumnMetadata;
 import io.trino.spi.connector.ConnectorTableMetadata;
 import io.trino.spi.connector.SchemaTableName;
+import okhttp3.Interceptor;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import retrofit2.Response;
+import rocks.trino.rest.CredentialPool;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.Rest;
+import rocks.trino.rest.RestColumnHandle;
+import rocks.trino.rest.RestPartition;
+import rocks.trino.rest.RowBuffer;
 import rocks.trino.rest.twitter.model.SearchResult;
 import rocks.trino.rest.twitter.model.Status;
+import rocks.trino.rest.twitter.model.User;
 import rocks.trino.rest.twitter.rest.TwitterService;
+import rocks.trino.rest.twitter.rest.TwitterStreamService;
+import se.akerfeldt.okhttp.signpost.OkHttpOAuthConsumer;
+import se.akerfeldt.okhttp.signpost.SigningInterceptor;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.trino.spi.type.BigintType.BIGINT;
 import static io.trino.spi.type.VarcharType.createUnboundedVarcharType;
 import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toList;
+import static java.util.Objects.requireNonNull;
 
 public class TwitterRest
         implements Rest
 {
     private static final String SCHEMA = "default";
+    /**
+     * Tables of tweets with the same hashtags as the search tables of the default schema, read from the stream
+     * of tweets as they are posted.
+     */
+    private static final String STREAM_SCHEMA = "stream";
+    private static final List<String> HASHTAGS = ImmutableList.of("whug", "trino", "teradata", "hive");
+    private static final ObjectReader STATUS_READER = new ObjectMapper().readerFor(Status.class);
+    /**
+     * Users looked up by id or screen name. There is no endpoint listing all the users,
+     * so the table is read only by joins on one of these columns.
+     */
+    private static final String USERS_TABLE = "users";
+    private static final Set<String> USERS_INDEX_COLUMNS = ImmutableSet.of("id", "screen_name");
+    // maximum number of users of a single lookup
+    private static final int USERS_LOOKUP_SIZE = 100;
+    private static final int SEARCH_PAGE_SIZE = 100;
+    // standard search only returns tweets from the last week
+    private static final Duration SEARCH_WINDOW = Duration.ofDays(7);
+    // tweet ids are snowflakes, starting with milliseconds since this epoch
+    private static final long SNOWFLAKE_EPOCH_MILLIS = 1288834974657L;
+    private static final int SNOWFLAKE_TIMESTAMP_SHIFT = 22;
 
+    private final CredentialPool credentials;
     private final TwitterService service;
+    private final TwitterStreamService streamService;
+    private final int searchSplits;
+    private final int searchMaxPages;
+    private final Clock clock;
 
-    public TwitterRest(String consumerKey, String consumerSecret, String token, String secret)
+    /**
+     * Requests are spread over all the {@code tokens}, each with its own rate limit. There is either
+     * a single consumer key, shared by all the tokens, or one for every token.
+     */
+    public TwitterRest(
+            List<String> consumerKeys,
+            List<String> consumerSecrets,
+            List<String> tokens,
+            List<String> secrets,
+            int searchSplits,
+            int searchMaxPages,
+            String apiUrl,
+            String streamUrl,
+            HttpClientConfig httpClientConfig)
     {
-        service = TwitterService.create(consumerKey, consumerSecret, token, secret);
+        this(consumerKeys, consumerSecrets, tokens, secrets, searchSplits, searchMaxPages, apiUrl, streamUrl, httpClientConfig, Clock.systemUTC());
+    }
+
+    TwitterRest(
+            List<String> consumerKeys,
+            List<String> consumerSecrets,
+            List<String> tokens,
+            List<String> secrets,
+            int searchSplits,
+            int searchMaxPages,
+            String apiUrl,
+            String streamUrl,
+            HttpClientConfig httpClientConfig,
+            Clock clock)
+    {
+        checkArgument(searchSplits > 0, "searchSplits must be positive");
+        checkArgument(searchMaxPages > 0, "searchMaxPages must be positive");
+        this.credentials = new CredentialPool(createSigners(consumerKeys, consumerSecrets, tokens, secrets));
+        this.service = TwitterService.create(apiUrl, credentials, httpClientConfig);
+        this.streamService = TwitterStreamService.create(streamUrl, credentials, httpClientConfig);
+        this.searchSplits = searchSplits;
+        this.searchMaxPages = searchMaxPages;
+        this.clock = requireNonNull(clock, "clock is null");
+    }
+
+    private static List<Interceptor> createSigners(List<String> consumerKeys, List<String> consumerSecrets, List<String> tokens, List<String> secrets)
+    {
+        checkArgument(!tokens.isEmpty(), "Twitter API requires a token");
+        checkArgument(secrets.size() == tokens.size(), "Every token requires a secret");
+        checkArgument(consumerKeys.size() == consumerSecrets.size(), "Every consumer key requires a consumer secret");
+        checkArgument(consumerKeys.size() == 1 || consumerKeys.size() == tokens.size(), "There must be a single consumer key or one for every token");
+        ImmutableList.Builder<Interceptor> result = ImmutableList.builder();
+        for (int i = 0; i < tokens.size(); i++) {
+            int consumer = consumerKeys.size() == 1 ? 0 : i;
+            OkHttpOAuthConsumer signer = new OkHttpOAuthConsumer(consumerKeys.get(consumer), consumerSecrets.get(consumer));
+            signer.setTokenWithSecret(tokens.get(i), secrets.get(i));
+            result.add(new SigningInterceptor(signer));
+        }
+        return result.build();
     }
 
     @Override
     public ConnectorTableMetadata getTableMetadata(SchemaTableName schemaTableName)
     {
+        if (schemaTableName.getTableName().equals(USERS_TABLE)) {
+            return new ConnectorTableMetadata(
+                    schemaTableName,
+                    ImmutableList.of(
+                            new ColumnMetadata("id", createUnboundedVarcharType()),
+                            new ColumnMetadata("name", createUnboundedVarcharType()),
+                            new ColumnMetadata("screen_name", createUnboundedVarcharType()),
+                            new ColumnMetadata("followers_count", BIGINT)));
+        }
         return new ConnectorTableMetadata(
                 schemaTableName,
                 ImmutableList.of(
@@ -60,48 +170,251 @@ public class TwitterRest
                         new ColumnMetadata("user_screen_name", createUnboundedVarcharType())));
     }
 
+    @Override
+    public Set<String> getLowCardinalityColumns(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.getTableName().equals(USERS_TABLE)) {
+            return ImmutableSet.of();
+        }
+        return ImmutableSet.of("user_name", "user_screen_name");
+    }
+
     @Override
     public List<String> listSchemas()
     {
-        return ImmutableList.of(SCHEMA);
+        return ImmutableList.of(SCHEMA, STREAM_SCHEMA);
     }
 
     @Override
     public List<SchemaTableName> listTables(String schema)
     {
         if (schema.equalsIgnoreCase(SCHEMA)) {
-            return ImmutableList.of(
-                    new SchemaTableName(SCHEMA, "whug"),
-                    new SchemaTableName(SCHEMA, "trino"),
-                    new SchemaTableName(SCHEMA, "teradata"),
-                    new SchemaTableName(SCHEMA, "hive"));
+            return ImmutableList.<SchemaTableName>builder()
+                    .addAll(HASHTAGS.stream()
+                            .map(hashtag -> new SchemaTableName(SCHEMA, hashtag))
+                            .collect(toImmutableList()))
+                    .add(new SchemaTableName(SCHEMA, USERS_TABLE))
+                    .build();
+        }
+        if (schema.equalsIgnoreCase(STREAM_SCHEMA)) {
+            return HASHTAGS.stream()
+                    .map(hashtag -> new SchemaTableName(STREAM_SCHEMA, hashtag))
+                    .collect(toImmutableList());
         }
         return ImmutableList.of();
     }
 
+    @Override
+    public boolean isStreaming(SchemaTableName schemaTableName)
+    {
+        return schemaTableName.getSchemaName().equals(STREAM_SCHEMA);
+    }
+
+    /**
+     * Splits the search window into id ranges of equal time spans, which are searched independently.
+     */
+    @Override
+    public List<RestPartition> getPartitions(SchemaTableName schemaTableName)
+    {
+        // a single connection reads the stream, as every token may only have one open
+        if (schemaTableName.getTableName().equals(USERS_TABLE) || isStreaming(schemaTableName)) {
+            return ImmutableList.of(RestPartition.ALL);
+        }
+        long now = clock.millis();
+        long windowStart = now - SEARCH_WINDOW.toMillis();
+        long step = (now - windowStart + searchSplits - 1) / searchSplits;
+        ImmutableList.Builder<RestPartition> partitions = ImmutableList.builder();
+        for (long start = windowStart; start < now; start += step) {
+            long end = Math.min(start + step, now);
+            // the first and the last range are open, so no tweet falls out due to clock skew
+            partitions.add(new RestPartition(
+                    Optional.empty(),
+                    start == windowStart ? OptionalLong.empty() : OptionalLong.of(toMinTweetId(start)),
+                    end == now ? OptionalLong.empty() : OptionalLong.of(toMinTweetId(end))));
+        }
+        return partitions.build();
+    }
+
     @Override
     public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName)
     {
-        return searchTweets("#" + schemaTableName.getTableName());
+        return getRows(schemaTableName, RestPartition.ALL, ImmutableList.of());
+    }
+
+    @Override
+    public Collection<? extends List<?>> getRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns)
+    {
+        checkUsersScan(schemaTableName);
+        ImmutableList.Builder<List<?>> rows = ImmutableList.builder();
+        searchTweets("#" + schemaTableName.getTableName(), partition.getStart(), partition.getEnd(), status -> rows.add(asList(
+                status.getId(),
+                status.getText(),
+                status.getRetweetCount(),
+                status.getUser().getName(),
+                status.getUser().getScreenName())));
+        return rows.build();
+    }
+
+    @Override
+    public void scanRows(SchemaTableName schemaTableName, RestPartition partition, List<RestColumnHandle> columns, RowBuffer rows)
+    {
+        checkUsersScan(schemaTableName);
+        if (isStreaming(schemaTableName)) {
+            streamTweets("#" + schemaTableName.getTableName(), rows);
+            return;
+        }
+        searchTweets("#" + schemaTableName.getTableName(), partition.getStart(), partition.getEnd(), status -> writeStatus(status, rows));
+    }
+
+    private static void writeStatus(Status status, RowBuffer rows)
+    {
+        rows.setObject(0, status.getId());
+        rows.setObject(1, status.getText());
+        rows.setLong(2, status.getRetweetCount());
+        rows.setObject(3, status.getUser().getName());
+        rows.setObject(4, status.getUser().getScreenName());
+        rows.endRow();
+    }
+
+    /**
+     * Reads tweets from the stream as they are posted, until the stream ends or its call is cancelled.
+     * Every line is parsed as soon as it arrives, and rows are flushed whenever no more data is buffered,
+     * so tweets are returned without waiting for a full page.
+     */
+    private void streamTweets(String track, RowBuffer rows)
+    {
+        try {
+            Response<ResponseBody> response = streamService.filter(track).execute();
+            if (!response.isSuccessful()) {
+                throw new IllegalStateException("Unable to stream tweets for '" + track + "' dues: " + response.message());
+            }
+            try (ResponseBody body = response.body()) {
+                BufferedSource source = body.source();
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    // blank lines are keep-alives
+                    if (!line.isBlank()) {
+                        Status status = STATUS_READER.readValue(line);
+                        // the stream also sends notices, e.g. of deleted tweets, which are not tweets
+                        if (status.getId() != null && status.getUser() != null) {
+                            writeStatus(status, rows);
+                        }
+                    }
+                    if (source.buffer().size() == 0) {
+                        rows.flush();
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static void checkUsersScan(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.getTableName().equals(USERS_TABLE)) {
+            throw new IllegalStateException("Table '" + schemaTableName + "' can only be joined on one of " + USERS_INDEX_COLUMNS);
+        }
+    }
+
+    @Override
+    public Set<String> getIndexColumns(SchemaTableName schemaTableName)
+    {
+        if (schemaTableName.getTableName().equals(USERS_TABLE)) {
+            return USERS_INDEX_COLUMNS;
+        }
+        return ImmutableSet.of();
     }
 
-    private Collection<? extends List<?>> searchTweets(String query)
+    @Override
+    public void lookupRows(SchemaTableName schemaTableName, String keyColumn, List<Object> keys, List<RestColumnHandle> columns, RowBuffer rows)
     {
+        checkArgument(schemaTableName.getTableName().equals(USERS_TABLE) && USERS_INDEX_COLUMNS.contains(keyColumn), "Unsupported lookup of %s by %s", schemaTableName, keyColumn);
+        for (List<Object> batch : Lists.partition(keys, USERS_LOOKUP_SIZE)) {
+            for (User user : lookupUsers(keyColumn, batch)) {
+                rows.setObject(0, user.getId());
+                rows.setObject(1, user.getName());
+                rows.setObject(2, user.getScreenName());
+                if (user.getFollowersCount() != null) {
+                    rows.setLong(3, user.getFollowersCount());
+                }
+                rows.endRow();
+            }
+        }
+    }
+
+    private List<User> lookupUsers(String keyColumn, List<Object> keys)
+    {
+        // lookups have a rate limit of their own, separate from the one of search tracked here
+        String joined = Joiner.on(',').join(keys);
         try {
-            Response<SearchResult> response = service.searchTweets(query, 100, "recent").execute();
+            Response<List<User>> response = keyColumn.equals("id")
+                    ? service.lookupUsers(joined, null).execute()
+                    : service.lookupUsers(null, joined).execute();
+            // none of the users exist
+            if (response.code() == 404) {
+                return ImmutableList.of();
+            }
+            if (!response.isSuccessful()) {
+                throw new IllegalStateException("Unable to look users up dues: " + response.message());
+            }
+            return response.body();
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Walks the pages of search results from the newest tweet down, using {@code max_id}
+     * of the oldest tweet seen so far, until the start of the range is reached.
+     */
+    private void searchTweets(String query, OptionalLong start, OptionalLong end, Consumer<Status> consumer)
+    {
+        Long sinceId = start.isPresent() ? start.getAsLong() - 1 : null;
+        Long maxId = end.isPresent() ? end.getAsLong() - 1 : null;
+        for (int page = 0; page < searchMaxPages; page++) {
+            List<Status> statuses = searchTweets(query, sinceId, maxId);
+            if (statuses.isEmpty()) {
+                break;
+            }
+            long minId = Long.MAX_VALUE;
+            for (Status status : statuses) {
+                consumer.accept(status);
+                minId = Math.min(minId, Long.parseLong(status.getId()));
+            }
+            maxId = minId - 1;
+        }
+    }
+
+    private List<Status> searchTweets(String query, Long sinceId, Long maxId)
+    {
+        checkRateLimit(query);
+        try {
+            Response<SearchResult> response = service.searchTweets(query, SEARCH_PAGE_SIZE, "recent", sinceId, maxId).execute();
             if (!response.isSuccessful()) {
                 throw new IllegalStateException("Unable to search tweets for '" + query + "' dues: " + response.message());
             }
-            List<Status> statuses = response.body().getStatuses();
-            return statuses.stream()
-                    .map(status -> asList(status.getId(), status.getText(), status.getRetweetCount(), status.getUser().getName(), status.getUser().getScreenName()))
-                    .collect(toList());
+            return response.body().getStatuses();
         }
         catch (IOException e) {
             throw Throwables.propagate(e);
         }
     }
 
+    private void checkRateLimit(String query)
+    {
+        if (credentials.getAvailableCount() == 0) {
+            throw new IllegalStateException("Unable to search tweets for '" + query + "' dues: rate limit of every token exhausted");
+        }
+    }
+
+    static long toMinTweetId(long epochMillis)
+    {
+        return (epochMillis - SNOWFLAKE_EPOCH_MILLIS) << SNOWFLAKE_TIMESTAMP_SHIFT;
+    }
+
     @Override
     public Consumer<List> createRowSink(SchemaTableName schemaTableName)
     {
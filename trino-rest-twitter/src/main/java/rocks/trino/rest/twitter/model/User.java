@@ -20,15 +20,26 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class User
 {
+    private final String id;
     private final String name;
     private final String screenName;
+    private final Long followersCount;
 
     public User(
+            @JsonProperty("id_str") String id,
             @JsonProperty("name") String name,
-            @JsonProperty("screen_name") String screenName)
+            @JsonProperty("screen_name") String screenName,
+            @JsonProperty("followers_count") Long followersCount)
     {
+        this.id = id;
         this.name = name;
         this.screenName = screenName;
+        this.followersCount = followersCount;
+    }
+
+    public String getId()
+    {
+        return id;
     }
 
     public String getName()
@@ -40,4 +51,9 @@ public class User
     {
         return screenName;
     }
+
+    public Long getFollowersCount()
+    {
+        return followersCount;
+    }
 }
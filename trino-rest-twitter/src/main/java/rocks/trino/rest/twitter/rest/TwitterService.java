@@ -16,36 +16,39 @@ package rocks.trino.rest.twitter.rest;
 
 import okhttp3.OkHttpClient;
 import retrofit2.Call;
-import retrofit2.Retrofit;
-import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import rocks.trino.rest.CredentialPool;
+import rocks.trino.rest.HttpClientConfig;
 import rocks.trino.rest.twitter.model.SearchResult;
-import se.akerfeldt.okhttp.signpost.OkHttpOAuthConsumer;
-import se.akerfeldt.okhttp.signpost.SigningInterceptor;
+import rocks.trino.rest.twitter.model.User;
+
+import java.util.List;
+
+import static rocks.trino.rest.HttpClients.createService;
+import static rocks.trino.rest.HttpClients.newClientBuilder;
 
 public interface TwitterService
 {
-    static TwitterService create(String consumerKey, String consumerSecret, String token, String secret)
+    static TwitterService create(String baseUrl, CredentialPool credentials, HttpClientConfig httpClientConfig)
     {
-        OkHttpOAuthConsumer consumer = new OkHttpOAuthConsumer(consumerKey, consumerSecret);
-        consumer.setTokenWithSecret(token, secret);
-
-        OkHttpClient client = new OkHttpClient.Builder()
-                .addInterceptor(new SigningInterceptor(consumer))
+        OkHttpClient client = newClientBuilder(httpClientConfig)
+                .addInterceptor(credentials)
                 .build();
 
-        return new Retrofit.Builder()
-                .baseUrl("https://api.twitter.com/1.1/")
-                .addConverterFactory(JacksonConverterFactory.create())
-                .client(client)
-                .build()
-                .create(TwitterService.class);
+        return createService(TwitterService.class, baseUrl, client, httpClientConfig);
     }
 
     @GET("search/tweets.json")
     Call<SearchResult> searchTweets(
             @Query("q") String query,
             @Query("count") int count,
-            @Query("result_type") String resultType);
+            @Query("result_type") String resultType,
+            @Query("since_id") Long sinceId,
+            @Query("max_id") Long maxId);
+
+    @GET("users/lookup.json")
+    Call<List<User>> lookupUsers(
+            @Query("user_id") String userIds,
+            @Query("screen_name") String screenNames);
 }
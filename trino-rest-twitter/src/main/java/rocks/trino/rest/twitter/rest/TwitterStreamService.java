@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.twitter.rest;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.http.POST;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+import rocks.trino.rest.CredentialPool;
+import rocks.trino.rest.HttpClientConfig;
+
+import java.time.Duration;
+
+import static rocks.trino.rest.HttpClients.createService;
+
+public interface TwitterStreamService
+{
+    /**
+     * The stream sends a keep-alive every 30 seconds, so a connection without one for longer is stalled.
+     */
+    Duration STALL_TIMEOUT = Duration.ofSeconds(90);
+
+    static TwitterStreamService create(String baseUrl, CredentialPool credentials, HttpClientConfig httpClientConfig)
+    {
+        // neither retried nor limited in size, as a stream has no end to retry from or to measure
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(credentials)
+                .readTimeout(STALL_TIMEOUT)
+                .build();
+
+        return createService(TwitterStreamService.class, baseUrl, client, httpClientConfig);
+    }
+
+    /**
+     * Tweets matching any of the comma separated phrases of {@code track}, one JSON object per line, as they are posted.
+     */
+    @Streaming
+    @POST("statuses/filter.json")
+    Call<ResponseBody> filter(@Query("track") String track);
+}
@@ -67,8 +67,8 @@ public class TestTwitterQueries
     @Test
     public void showTables()
     {
-        assertQuery("SHOW SCHEMAS FROM twitter", "VALUES 'default', 'information_schema'");
-        assertQuery("SHOW TABLES FROM twitter.default", "VALUES 'whug', 'trino', 'teradata', 'hive'");
+        assertQuery("SHOW SCHEMAS FROM twitter", "VALUES 'default', 'stream', 'information_schema'");
+        assertQuery("SHOW TABLES FROM twitter.default", "VALUES 'whug', 'trino', 'teradata', 'hive', 'users'");
     }
 
     @Test
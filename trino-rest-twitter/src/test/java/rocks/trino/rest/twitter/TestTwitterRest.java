@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.twitter;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpServer;
+import io.trino.spi.connector.SchemaTableName;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.RestPartition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+
+public class TestTwitterRest
+{
+    private static final SchemaTableName TRINO = new SchemaTableName("default", "trino");
+    private static final long SNOWFLAKE_EPOCH_MILLIS = 1288834974657L;
+    private static final Instant NOW = Instant.parse("2021-03-01T00:00:00Z");
+    // tweets of the stand-in search, with ids from 1 to this
+    private static final int TWEETS = 250;
+
+    private final List<Map<String, String>> searches = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeClass
+    public void setUp()
+            throws IOException
+    {
+        // returns the newest tweets in (since_id, max_id], as the search API does
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/search/tweets.json", exchange -> {
+            Map<String, String> parameters = Splitter.on('&').withKeyValueSeparator('=').split(exchange.getRequestURI().getRawQuery());
+            searches.add(parameters);
+            long sinceId = Long.parseLong(parameters.getOrDefault("since_id", "0"));
+            long maxId = Long.parseLong(parameters.getOrDefault("max_id", String.valueOf(TWEETS)));
+            long count = Long.parseLong(parameters.get("count"));
+            String statuses = LongStream.iterate(Math.min(maxId, TWEETS), id -> id - 1)
+                    .takeWhile(id -> id > sinceId && id > 0)
+                    .limit(count)
+                    .mapToObj(id -> format("{\"id_str\":\"%s\",\"text\":\"tweet %s\",\"retweet_count\":0,\"user\":{\"id_str\":\"1\",\"name\":\"alice\",\"screen_name\":\"alice\"}}", id, id))
+                    .collect(joining(","));
+            byte[] body = ("{\"statuses\":[" + statuses + "]}").getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testToMinTweetId()
+    {
+        assertEquals(TwitterRest.toMinTweetId(SNOWFLAKE_EPOCH_MILLIS), 0);
+        long millis = NOW.toEpochMilli();
+        long id = TwitterRest.toMinTweetId(millis);
+        assertEquals((id >> 22) + SNOWFLAKE_EPOCH_MILLIS, millis);
+        // ids of the tweets posted within a millisecond differ only in their 22 lowest bits
+        assertEquals(TwitterRest.toMinTweetId(millis + 1) - id, 1L << 22);
+    }
+
+    @Test
+    public void testPartitions()
+    {
+        List<RestPartition> partitions = createRest(7, 1).getPartitions(TRINO);
+        assertEquals(partitions.size(), 7);
+        // the first and the last range are open
+        assertEquals(partitions.get(0).getStart(), OptionalLong.empty());
+        assertEquals(partitions.get(6).getEnd(), OptionalLong.empty());
+        for (int i = 0; i < 6; i++) {
+            OptionalLong boundary = OptionalLong.of(TwitterRest.toMinTweetId(NOW.minus(Duration.ofDays(6 - i)).toEpochMilli()));
+            assertEquals(partitions.get(i).getEnd(), boundary);
+            assertEquals(partitions.get(i + 1).getStart(), boundary);
+        }
+
+        // the last range is shorter when the window does not divide evenly
+        partitions = createRest(3, 1).getPartitions(TRINO);
+        long windowStart = NOW.minus(Duration.ofDays(7)).toEpochMilli();
+        long step = (Duration.ofDays(7).toMillis() + 2) / 3;
+        assertEquals(partitions, ImmutableList.of(
+                new RestPartition(Optional.empty(), OptionalLong.empty(), OptionalLong.of(TwitterRest.toMinTweetId(windowStart + step))),
+                RestPartition.range(TwitterRest.toMinTweetId(windowStart + step), TwitterRest.toMinTweetId(windowStart + 2 * step)),
+                new RestPartition(Optional.empty(), OptionalLong.of(TwitterRest.toMinTweetId(windowStart + 2 * step)), OptionalLong.empty())));
+
+        assertEquals(createRest(1, 1).getPartitions(TRINO), ImmutableList.of(RestPartition.ALL));
+        assertEquals(createRest(7, 1).getPartitions(new SchemaTableName("stream", "trino")), ImmutableList.of(RestPartition.ALL));
+    }
+
+    @Test
+    public void testPaging()
+    {
+        // pages are read until one is empty
+        searches.clear();
+        assertEquals(search(createRest(1, 10), RestPartition.ALL), range(TWEETS, 0));
+        assertEquals(searches.stream().map(search -> search.get("max_id")).collect(toList()), asList(null, "150", "50", "0"));
+
+        // or until the maximum number of pages is read
+        searches.clear();
+        assertEquals(search(createRest(1, 2), RestPartition.ALL), range(TWEETS, 50));
+        assertEquals(searches.size(), 2);
+
+        // a range of ids [start, end) is searched with since_id and max_id, which are exclusive and inclusive
+        searches.clear();
+        assertEquals(search(createRest(1, 10), RestPartition.range(101, 151)), range(150, 100));
+        assertEquals(searches.get(0).get("since_id"), "100");
+        assertEquals(searches.get(0).get("max_id"), "150");
+        assertEquals(searches.size(), 2);
+    }
+
+    private static List<Long> search(TwitterRest rest, RestPartition partition)
+    {
+        return rest.getRows(TRINO, partition, ImmutableList.of()).stream()
+                .map(row -> Long.parseLong((String) row.get(0)))
+                .collect(toList());
+    }
+
+    // ids from first down to last, exclusive
+    private static List<Long> range(long first, long last)
+    {
+        return LongStream.iterate(first, id -> id - 1)
+                .takeWhile(id -> id > last)
+                .boxed()
+                .collect(toList());
+    }
+
+    private TwitterRest createRest(int searchSplits, int searchMaxPages)
+    {
+        return new TwitterRest(
+                ImmutableList.of("key"),
+                ImmutableList.of("secret"),
+                ImmutableList.of("token"),
+                ImmutableList.of("secret"),
+                searchSplits,
+                searchMaxPages,
+                "http://localhost:" + server.getAddress().getPort() + "/",
+                "https://stream.twitter.com/1.1/",
+                // hedged requests would be counted as searches
+                HttpClientConfig.fromConfig(ImmutableMap.of("hedge_max_ratio", "0")),
+                Clock.fixed(NOW, UTC));
+    }
+}
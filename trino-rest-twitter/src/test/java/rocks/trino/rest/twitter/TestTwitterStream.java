@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.twitter;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.trino.Session;
+import io.trino.spi.connector.SchemaTableName;
+import io.trino.testing.AbstractTestQueryFramework;
+import io.trino.testing.DistributedQueryRunner;
+import io.trino.testing.QueryRunner;
+import io.trino.testing.TestingSession;
+import org.testng.annotations.Test;
+import rocks.trino.rest.HttpClientConfig;
+import rocks.trino.rest.RestPartition;
+import rocks.trino.rest.RowBuffer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestTwitterStream
+        extends AbstractTestQueryFramework
+{
+    private static final SchemaTableName TRINO_STREAM = new SchemaTableName("stream", "trino");
+
+    @Override
+    protected QueryRunner createQueryRunner()
+            throws Exception
+    {
+        Session defaultSession = TestingSession.testSessionBuilder()
+                .setCatalog("twitter")
+                .setSchema("stream")
+                .build();
+
+        QueryRunner queryRunner = DistributedQueryRunner.builder(defaultSession)
+                .setNodeCount(1)
+                .build();
+        queryRunner.installPlugin(new TwitterPlugin());
+        return queryRunner;
+    }
+
+    @Test
+    public void testRowsAreFlushedAsTheyArrive()
+            throws Exception
+    {
+        try (TwitterStreamServer server = new TwitterStreamServer()) {
+            TwitterRest rest = createRest(server.getUrl());
+            assertTrue(rest.isStreaming(TRINO_STREAM));
+            assertFalse(rest.isStreaming(new SchemaTableName("default", "trino")));
+
+            List<List<Object>> rows = new CopyOnWriteArrayList<>();
+            AtomicInteger flushedRows = new AtomicInteger();
+            RowBuffer buffer = new RowBuffer(rest.getTypes(TRINO_STREAM), row -> rows.add(row.getValues()), () -> flushedRows.set(rows.size()));
+            server.sendTweet(1, "first", "alice");
+            server.send("");
+            server.send("{\"delete\":{\"status\":{\"id_str\":\"0\"}}}");
+            server.sendTweet(2, "second", "bob");
+            CompletableFuture<?> scan = CompletableFuture.runAsync(() -> rest.scanRows(TRINO_STREAM, RestPartition.ALL, ImmutableList.of(), buffer));
+
+            // rows are handed over while the stream is still open
+            long deadline = System.nanoTime() + SECONDS.toNanos(10);
+            while (flushedRows.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(flushedRows.get(), 2);
+            assertFalse(scan.isDone());
+
+            server.sendTweet(3, "third", "alice");
+            server.end();
+            scan.get(10, SECONDS);
+            assertEquals(rows.size(), 3);
+            assertEquals(rows.get(0), ImmutableList.of("1", "first", 0L, "alice", "alice"));
+            assertEquals(rows.get(2).get(1), "third");
+            assertEquals(server.getTracks(), ImmutableList.of("track=#trino"));
+        }
+    }
+
+    @Test
+    public void testLimitEndsStream()
+            throws Exception
+    {
+        try (TwitterStreamServer server = new TwitterStreamServer()) {
+            createCatalog("twitter_limit", server, "0", "0s");
+            for (int id = 0; id < 5; id++) {
+                server.sendTweet(id, "tweet", "alice");
+            }
+            // the stream stays open, so only the limit ends the scan
+            assertQuery("SELECT count(*) FROM (SELECT * FROM twitter_limit.stream.trino LIMIT 2)", "VALUES 2");
+        }
+    }
+
+    @Test
+    public void testRowBoundEndsStream()
+            throws Exception
+    {
+        try (TwitterStreamServer server = new TwitterStreamServer()) {
+            createCatalog("twitter_rows", server, "3", "0s");
+            for (int id = 0; id < 5; id++) {
+                server.sendTweet(id, "tweet", "alice");
+            }
+            assertQuery("SELECT count(*) FROM twitter_rows.stream.trino", "VALUES 3");
+        }
+    }
+
+    @Test
+    public void testTimeBoundEndsStream()
+            throws Exception
+    {
+        try (TwitterStreamServer server = new TwitterStreamServer()) {
+            createCatalog("twitter_time", server, "0", "1s");
+            server.sendTweet(1, "first", "alice");
+            server.sendTweet(2, "second", "bob");
+            assertQuery("SELECT count(*), count(DISTINCT user_screen_name) FROM twitter_time.stream.trino", "VALUES (2, 2)");
+        }
+    }
+
+    private void createCatalog(String name, TwitterStreamServer server, String maxRows, String maxDuration)
+    {
+        getQueryRunner().createCatalog(name, "twitter", ImmutableMap.<String, String>builder()
+                .put("customer_key", "key")
+                .put("customer_secret", "secret")
+                .put("token", "token")
+                .put("secret", "secret")
+                .put("stream_url", server.getUrl())
+                .put("stream_max_rows", maxRows)
+                .put("stream_max_duration", maxDuration)
+                .build());
+    }
+
+    private static TwitterRest createRest(String streamUrl)
+    {
+        return new TwitterRest(
+                ImmutableList.of("key"),
+                ImmutableList.of("secret"),
+                ImmutableList.of("token"),
+                ImmutableList.of("secret"),
+                1,
+                1,
+                "https://api.twitter.com/1.1/",
+                streamUrl,
+                HttpClientConfig.DEFAULT);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.trino.rest.twitter;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Local stand-in for the filtered stream of Twitter. Every connection sends the lines {@link #send sent}
+ * to the server as they come, and stays open until {@link #end()} is called or the server is closed.
+ */
+public class TwitterStreamServer
+        implements Closeable
+{
+    private final BlockingQueue<Optional<String>> lines = new LinkedBlockingQueue<>();
+    private final List<String> tracks = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = newCachedThreadPool();
+    private final HttpServer server;
+
+    public TwitterStreamServer()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/statuses/filter.json", exchange -> {
+            tracks.add(exchange.getRequestURI().getQuery());
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (true) {
+                    Optional<String> line = lines.take();
+                    if (line.isEmpty()) {
+                        break;
+                    }
+                    out.write((line.get() + "\r\n").getBytes(UTF_8));
+                    out.flush();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    public String getUrl()
+    {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Query strings of the requests received so far.
+     */
+    public List<String> getTracks()
+    {
+        return tracks;
+    }
+
+    public void send(String line)
+    {
+        lines.add(Optional.of(line));
+    }
+
+    public void sendTweet(long id, String text, String screenName)
+    {
+        send(format("{\"id_str\":\"%s\",\"text\":\"%s\",\"retweet_count\":0,\"user\":{\"id_str\":\"1\",\"name\":\"%s\",\"screen_name\":\"%s\"}}", id, text, screenName, screenName));
+    }
+
+    /**
+     * Ends the stream of the next connection once the lines sent before are written.
+     */
+    public void end()
+    {
+        lines.add(Optional.empty());
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}